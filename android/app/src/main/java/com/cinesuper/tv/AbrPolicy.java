@@ -0,0 +1,184 @@
+package com.cinesuper.tv;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.Timeline;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.exoplayer.source.MediaSource;
+import androidx.media3.exoplayer.trackselection.AdaptiveTrackSelection;
+import androidx.media3.exoplayer.trackselection.ExoTrackSelection;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+
+import java.util.Arrays;
+
+/**
+ * Política de ABR configurável pelo init(). Os valores são lidos a cada
+ * seleção, então um init() novo vale na próxima troca de source/faixa sem
+ * recriar o player.
+ */
+final class AbrPolicy implements ExoTrackSelection.Factory {
+  static final float DEFAULT_BANDWIDTH_FRACTION = AdaptiveTrackSelection.DEFAULT_BANDWIDTH_FRACTION;
+  static final int DEFAULT_MIN_BUFFER_FOR_UP_MS = AdaptiveTrackSelection.DEFAULT_MIN_DURATION_FOR_QUALITY_INCREASE_MS;
+  static final int DEFAULT_MAX_BUFFER_FOR_DOWN_MS = AdaptiveTrackSelection.DEFAULT_MAX_DURATION_FOR_QUALITY_DECREASE_MS;
+  static final int DEFAULT_RETAIN_AFTER_DISCARD_MS = AdaptiveTrackSelection.DEFAULT_MIN_DURATION_TO_RETAIN_AFTER_DISCARD_MS;
+
+  private volatile float bandwidthFraction = DEFAULT_BANDWIDTH_FRACTION;
+  private volatile int minBufferForUpMs = DEFAULT_MIN_BUFFER_FOR_UP_MS;
+  private volatile int maxBufferForDownMs = DEFAULT_MAX_BUFFER_FOR_DOWN_MS;
+  private volatile VideoFilter videoFilter = null;
+  // resultado do filtro na última seleção com vídeo
+  static final int FILTER_UNKNOWN = 0;
+  static final int FILTER_HELD = 1;
+  static final int FILTER_MISSED = -1;
+  private volatile int filterResult = FILTER_UNKNOWN;
+
+  // estimativa do probeNetwork: vale até o meter do player medir algo novo
+  static final long PROBE_TTL_MS = 5 * 60_000L;
+  private volatile long probeBps = 0L;
+  private volatile long probeAtMs = 0L;
+  private volatile long meterAtProbe = 0L;
+
+  /** Exclui variantes de vídeo já na seleção inicial (ex.: HDR quando queremos SDR). */
+  interface VideoFilter {
+    boolean exclude(Format fmt);
+  }
+
+  void setVideoFilter(VideoFilter filter) {
+    videoFilter = filter;
+    filterResult = FILTER_UNKNOWN;
+  }
+
+  /**
+   * HELD = nenhuma faixa excluída ficou numa definição de vídeo; MISSED =
+   * ficou (seleção fixa de uma faixa, ou só sobrariam faixas que as
+   * constraints já tinham cortado) e quem pediu o filtro tem que forçar.
+   */
+  int filterResult() {
+    return filterResult;
+  }
+
+  void configure(float fraction, int minUpMs, int maxDownMs) {
+    bandwidthFraction = fraction > 0f && fraction <= 1f ? fraction : DEFAULT_BANDWIDTH_FRACTION;
+    minBufferForUpMs = minUpMs > 0 ? minUpMs : DEFAULT_MIN_BUFFER_FOR_UP_MS;
+    // media3 exige maxDown >= minUp
+    int down = maxDownMs > 0 ? maxDownMs : DEFAULT_MAX_BUFFER_FOR_DOWN_MS;
+    maxBufferForDownMs = Math.max(down, minBufferForUpMs);
+  }
+
+  /** Mesma configuração, sem filtro de vídeo nem estimativa do probe (preview). */
+  AbrPolicy copyConfig() {
+    AbrPolicy p = new AbrPolicy();
+    p.bandwidthFraction = bandwidthFraction;
+    p.minBufferForUpMs = minBufferForUpMs;
+    p.maxBufferForDownMs = maxBufferForDownMs;
+    return p;
+  }
+
+  /** meterEstimate = estimativa do meter no momento do probe (para saber quando ele "andou"). */
+  void setProbeEstimate(long bps, long meterEstimate) {
+    probeBps = Math.max(0L, bps);
+    meterAtProbe = meterEstimate;
+    probeAtMs = SystemClock.elapsedRealtime();
+  }
+
+  long probeEstimate(long meterEstimate) {
+    long bps = probeBps;
+    if (bps <= 0L) return 0L;
+    if (meterEstimate != meterAtProbe || SystemClock.elapsedRealtime() - probeAtMs > PROBE_TTL_MS) {
+      probeBps = 0L;
+      return 0L;
+    }
+    return bps;
+  }
+
+  String describe() {
+    return "fraction=" + bandwidthFraction + " upMs=" + minBufferForUpMs + " downMs=" + maxBufferForDownMs;
+  }
+
+  @Override
+  public ExoTrackSelection[] createTrackSelections(
+    ExoTrackSelection.Definition[] definitions,
+    BandwidthMeter bandwidthMeter,
+    MediaSource.MediaPeriodId mediaPeriodId,
+    Timeline timeline
+  ) {
+    AdaptiveTrackSelection.Factory delegate = new AdaptiveTrackSelection.Factory(
+      minBufferForUpMs,
+      maxBufferForDownMs,
+      Math.min(DEFAULT_RETAIN_AFTER_DISCARD_MS, maxBufferForDownMs),
+      bandwidthFraction
+    );
+    return delegate.createTrackSelections(filter(definitions), new ProbeAwareMeter(bandwidthMeter), mediaPeriodId, timeline);
+  }
+
+  /** Meter do player com o probe por cima enquanto ele ainda não mediu segmento nenhum. */
+  private final class ProbeAwareMeter implements BandwidthMeter {
+    private final BandwidthMeter meter;
+
+    ProbeAwareMeter(BandwidthMeter meter) {
+      this.meter = meter;
+    }
+
+    @Override
+    public long getBitrateEstimate() {
+      long real = meter.getBitrateEstimate();
+      long probe = probeEstimate(real);
+      return probe > 0L ? probe : real;
+    }
+
+    @Override
+    public long getTimeToFirstByteEstimateUs() {
+      return meter.getTimeToFirstByteEstimateUs();
+    }
+
+    @Nullable
+    @Override
+    public TransferListener getTransferListener() {
+      return meter.getTransferListener();
+    }
+
+    @Override
+    public void addEventListener(Handler eventHandler, EventListener eventListener) {
+      meter.addEventListener(eventHandler, eventListener);
+    }
+
+    @Override
+    public void removeEventListener(EventListener eventListener) {
+      meter.removeEventListener(eventListener);
+    }
+  }
+
+  private ExoTrackSelection.Definition[] filter(ExoTrackSelection.Definition[] definitions) {
+    VideoFilter f = videoFilter;
+    if (f == null || definitions == null) return definitions;
+    ExoTrackSelection.Definition[] out = definitions.clone();
+    int result = FILTER_UNKNOWN;
+    for (int i = 0; i < out.length; i++) {
+      ExoTrackSelection.Definition def = out[i];
+      if (def == null) continue;
+      TrackGroup group = def.group;
+      if (group.type != C.TRACK_TYPE_VIDEO) continue;
+
+      int[] kept = new int[def.tracks.length];
+      int n = 0;
+      for (int t : def.tracks) {
+        if (!f.exclude(group.getFormat(t))) kept[n++] = t;
+      }
+      // seleção fixa ou filtro que removeria tudo: mantém a definição original
+      if (n < def.tracks.length && (n == 0 || def.tracks.length < 2)) {
+        result = FILTER_MISSED;
+        continue;
+      }
+      if (result == FILTER_UNKNOWN) result = FILTER_HELD;
+      if (n == def.tracks.length) continue;
+      out[i] = new ExoTrackSelection.Definition(group, Arrays.copyOf(kept, n), def.type);
+    }
+    if (result != FILTER_UNKNOWN) filterResult = result;
+    return out;
+  }
+}
@@ -0,0 +1,249 @@
+package com.cinesuper.tv;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Capas já reduzidas para o tamanho do card. O disco guarda o JPEG/PNG
+ * final (cacheDir/artwork, LRU por lastModified até DISK_MAX_BYTES); a
+ * memória guarda só chave -> arquivo pronto, para o caminho quente não
+ * tocar em disco nem decodificar nada. Os pixels ficam com o WebView, que
+ * agora decodifica uma imagem do tamanho do card e não o original.
+ */
+final class ArtworkCache {
+  private static final String TAG = "CineSuperExo";
+  static final long DISK_MAX_BYTES = 96L * 1024 * 1024;
+  private static final int MEMORY_ENTRIES = 512;
+  private static final int TIMEOUT_MS = 10_000;
+
+  private static volatile ArtworkCache instance;
+
+  // um por processo: o ArtworkPlugin serve, o aviso de memória do ExoPlayerPlugin apara
+  static ArtworkCache get(File cacheDir) {
+    if (instance == null) {
+      synchronized (ArtworkCache.class) {
+        if (instance == null) instance = new ArtworkCache(cacheDir);
+      }
+    }
+    return instance;
+  }
+
+  private final File dir;
+  // hit da memória só marca o horário aqui; vai para o lastModified quando a entrada sai
+  private final LruCache<String, Slot> memory = new LruCache<String, Slot>(MEMORY_ENTRIES) {
+    @Override
+    protected void entryRemoved(boolean evicted, String key, Slot old, Slot replacement) {
+      if (evicted && old.usedAtMs > old.file.lastModified()) old.file.setLastModified(old.usedAtMs);
+    }
+  };
+  final AtomicLong memoryHits = new AtomicLong();
+  final AtomicLong diskHits = new AtomicLong();
+  final AtomicLong misses = new AtomicLong();
+  private long diskBytes = -1L;
+
+  private ArtworkCache(File cacheDir) {
+    dir = new File(cacheDir, "artwork");
+    if (!dir.exists() && !dir.mkdirs()) Log.w(TAG, "artwork dir create failed");
+  }
+
+  static String key(String url, int width, int height) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      byte[] d = md.digest(url.getBytes("UTF-8"));
+      StringBuilder sb = new StringBuilder(d.length * 2 + 16);
+      for (byte b : d) sb.append(String.format("%02x", b));
+      return sb.append('_').append(width).append('x').append(height).toString();
+    } catch (Exception e) {
+      return Integer.toHexString(url.hashCode()) + "_" + width + "x" + height;
+    }
+  }
+
+  /** Memória, depois disco. null = precisa baixar. */
+  @Nullable
+  File peek(String key) {
+    Slot s = memory.get(key);
+    if (s != null && s.file.exists()) {
+      s.usedAtMs = System.currentTimeMillis();
+      memoryHits.incrementAndGet();
+      return s.file;
+    }
+    for (String ext : new String[] { ".jpg", ".png" }) {
+      File d = new File(dir, key + ext);
+      if (!d.exists()) continue;
+      long now = System.currentTimeMillis();
+      d.setLastModified(now);
+      memory.put(key, new Slot(d, now));
+      diskHits.incrementAndGet();
+      return d;
+    }
+    return null;
+  }
+
+  File fetch(String url, String key, int width, int height) throws IOException {
+    misses.incrementAndGet();
+    File raw = new File(dir, key + ".part");
+    try {
+      download(url, raw);
+      File out = decodeInto(raw, key, width, height);
+      memory.put(key, new Slot(out, out.lastModified()));
+      account(out.length());
+      return out;
+    } finally {
+      if (raw.exists() && !raw.delete()) Log.w(TAG, "artwork tmp delete failed");
+    }
+  }
+
+  private void download(String url, File to) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setConnectTimeout(TIMEOUT_MS);
+    conn.setReadTimeout(TIMEOUT_MS);
+    try {
+      int code = conn.getResponseCode();
+      if (code < 200 || code >= 300) throw new IOException("artwork http " + code);
+      try (InputStream in = conn.getInputStream(); FileOutputStream out = new FileOutputStream(to)) {
+        byte[] buf = new byte[16 * 1024];
+        int n;
+        while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+      }
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  /** inSampleSize em potência de 2 até perto do alvo, depois escala fina (cover). */
+  private File decodeInto(File raw, String key, int width, int height) throws IOException {
+    BitmapFactory.Options bounds = new BitmapFactory.Options();
+    bounds.inJustDecodeBounds = true;
+    BitmapFactory.decodeFile(raw.getAbsolutePath(), bounds);
+    if (bounds.outWidth <= 0 || bounds.outHeight <= 0) throw new IOException("artwork decode bounds");
+
+    int sample = 1;
+    while (bounds.outWidth / (sample * 2) >= width && (height <= 0 || bounds.outHeight / (sample * 2) >= height)) {
+      sample *= 2;
+    }
+    BitmapFactory.Options opts = new BitmapFactory.Options();
+    opts.inSampleSize = sample;
+    Bitmap bmp = BitmapFactory.decodeFile(raw.getAbsolutePath(), opts);
+    if (bmp == null) throw new IOException("artwork decode failed");
+
+    float scale = (float) width / bmp.getWidth();
+    if (height > 0) scale = Math.max(scale, (float) height / bmp.getHeight());
+    if (scale < 1f) {
+      Bitmap scaled = Bitmap.createScaledBitmap(bmp,
+        Math.max(1, Math.round(bmp.getWidth() * scale)), Math.max(1, Math.round(bmp.getHeight() * scale)), true);
+      if (scaled != bmp) bmp.recycle();
+      bmp = scaled;
+    }
+
+    boolean alpha = bmp.hasAlpha();
+    File out = new File(dir, key + (alpha ? ".png" : ".jpg"));
+    File tmp = new File(dir, key + ".tmp");
+    try (FileOutputStream os = new FileOutputStream(tmp)) {
+      bmp.compress(alpha ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG, 85, os);
+    } finally {
+      bmp.recycle();
+    }
+    if (!tmp.renameTo(out)) throw new IOException("artwork rename failed");
+    return out;
+  }
+
+  private synchronized void account(long added) {
+    if (diskBytes < 0) diskBytes = sizeOnDisk();
+    diskBytes += added;
+    if (diskBytes > DISK_MAX_BYTES) trim();
+  }
+
+  private long sizeOnDisk() {
+    long total = 0L;
+    File[] files = dir.listFiles();
+    if (files != null) for (File f : files) total += f.length();
+    return total;
+  }
+
+  /**
+   * Apaga os mais antigos até 80% do teto; .part/.tmp são de um fetch em
+   * andamento. O uso vem do lastModified ou, se mais novo, do hit em memória.
+   */
+  synchronized void trim() {
+    File[] files = dir.listFiles();
+    if (files == null) return;
+    Map<String, Slot> live = memory.snapshot();
+    Map<File, Long> usedAt = new HashMap<>(files.length * 2);
+    long total = 0L;
+    for (File f : files) {
+      total += f.length();
+      Slot s = live.get(keyOf(f));
+      usedAt.put(f, s != null ? Math.max(s.usedAtMs, f.lastModified()) : f.lastModified());
+    }
+    Arrays.sort(files, (a, b) -> Long.compare(usedAt.get(a), usedAt.get(b)));
+    long target = DISK_MAX_BYTES * 8 / 10;
+    for (File f : files) {
+      if (total <= target) break;
+      if (isInFlight(f)) continue;
+      long len = f.length();
+      if (f.delete()) {
+        total -= len;
+        memory.remove(keyOf(f));
+      }
+    }
+    diskBytes = total;
+  }
+
+  private static String keyOf(File f) {
+    String n = f.getName();
+    int dot = n.lastIndexOf('.');
+    return dot > 0 ? n.substring(0, dot) : n;
+  }
+
+  /** Aviso de memória: o índice em memória encolhe; o disco fica. */
+  void trimMemory() {
+    memory.trimToSize(MEMORY_ENTRIES / 4);
+  }
+
+  private static boolean isInFlight(File f) {
+    String n = f.getName();
+    return n.endsWith(".part") || n.endsWith(".tmp");
+  }
+
+  synchronized void clear() {
+    memory.evictAll();
+    File[] files = dir.listFiles();
+    if (files != null) for (File f : files) f.delete();
+    diskBytes = 0L;
+  }
+
+  synchronized long diskBytes() {
+    if (diskBytes < 0) diskBytes = sizeOnDisk();
+    return diskBytes;
+  }
+
+  int memoryEntries() {
+    return memory.size();
+  }
+
+  private static final class Slot {
+    final File file;
+    volatile long usedAtMs;
+
+    Slot(File file, long usedAtMs) {
+      this.file = file;
+      this.usedAtMs = usedAtMs;
+    }
+  }
+}
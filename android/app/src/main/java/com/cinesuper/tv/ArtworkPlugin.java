@@ -0,0 +1,174 @@
+package com.cinesuper.tv;
+
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capas/artes das fileiras baixadas e reduzidas no nativo (ArtworkCache).
+ * load devolve o caminho do arquivo local; o JS passa por
+ * Capacitor.convertFileSrc e o WebView carrega uma imagem já no tamanho do
+ * card. prefetch corre numa fila própria de baixa prioridade que descarta
+ * os pedidos mais velhos quando o usuário muda de direção.
+ */
+@CapacitorPlugin(name = "ArtworkPlugin")
+public class ArtworkPlugin extends Plugin {
+  private static final String TAG = "CineSuperExo";
+  private static final int MAX_SIDE = 1920;
+  private static final int PREFETCH_QUEUE = 48;
+
+  private ArtworkCache cache;
+  private ExecutorService loadExec;
+  private ThreadPoolExecutor prefetchExec;
+  // pedidos iguais em voo esperam o mesmo download
+  private final Map<String, List<PluginCall>> inflight = new HashMap<>();
+
+  @Override
+  public void load() {
+    super.load();
+    cache = ArtworkCache.get(getContext().getCacheDir());
+    loadExec = Executors.newFixedThreadPool(3);
+    prefetchExec = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<>(PREFETCH_QUEUE),
+      r -> {
+        Thread t = new Thread(r, "cs-artwork-prefetch");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+      },
+      new ThreadPoolExecutor.DiscardOldestPolicy());
+  }
+
+  @Override
+  protected void handleOnDestroy() {
+    if (loadExec != null) loadExec.shutdownNow();
+    if (prefetchExec != null) prefetchExec.shutdownNow();
+    super.handleOnDestroy();
+  }
+
+  @PluginMethod
+  public void load(PluginCall call) {
+    String url = call.getString("url", "");
+    int width = clampSide(call.getInt("width", 0));
+    int height = clampSide(call.getInt("height", 0));
+    if (url == null || !url.startsWith("http") || width <= 0) {
+      call.reject("invalid_args");
+      return;
+    }
+    String key = ArtworkCache.key(url, width, height);
+    File hit = cache.peek(key);
+    if (hit != null) {
+      call.resolve(result(hit, true));
+      return;
+    }
+    synchronized (inflight) {
+      List<PluginCall> waiting = inflight.get(key);
+      if (waiting != null) {
+        waiting.add(call);
+        return;
+      }
+      waiting = new ArrayList<>();
+      waiting.add(call);
+      inflight.put(key, waiting);
+    }
+    loadExec.execute(() -> fetchAndResolve(url, key, width, height));
+  }
+
+  /** Baixa/reduz e responde a todos que esperam a chave (load ou prefetch). */
+  private void fetchAndResolve(String url, String key, int width, int height) {
+    File file = null;
+    Exception error = null;
+    try {
+      file = cache.peek(key);
+      if (file == null) file = cache.fetch(url, key, width, height);
+    } catch (Exception e) {
+      error = e;
+    }
+    List<PluginCall> calls;
+    synchronized (inflight) {
+      calls = inflight.remove(key);
+    }
+    if (file == null) Log.w(TAG, "artwork failed: " + (error != null ? error.getMessage() : "?"));
+    if (calls == null) return;
+    for (PluginCall c : calls) {
+      if (file != null) c.resolve(result(file, false));
+      else c.reject("artwork_failed", error);
+    }
+  }
+
+  @PluginMethod
+  public void prefetch(PluginCall call) {
+    JSArray urls = call.getArray("urls");
+    int width = clampSide(call.getInt("width", 0));
+    int height = clampSide(call.getInt("height", 0));
+    if (urls == null || width <= 0) {
+      call.reject("invalid_args");
+      return;
+    }
+    int queued = 0;
+    for (int i = 0; i < urls.length(); i++) {
+      String url = urls.optString(i, "");
+      if (url == null || !url.startsWith("http")) continue;
+      String key = ArtworkCache.key(url, width, height);
+      if (cache.peek(key) != null) continue;
+      prefetchExec.execute(() -> {
+        synchronized (inflight) {
+          if (inflight.containsKey(key)) return;
+          inflight.put(key, new ArrayList<>());
+        }
+        fetchAndResolve(url, key, width, height);
+      });
+      queued++;
+    }
+    JSObject res = new JSObject();
+    res.put("queued", queued);
+    call.resolve(res);
+  }
+
+  @PluginMethod
+  public void getStats(PluginCall call) {
+    JSObject res = new JSObject();
+    res.put("memoryHits", cache.memoryHits.get());
+    res.put("diskHits", cache.diskHits.get());
+    res.put("misses", cache.misses.get());
+    res.put("memoryEntries", cache.memoryEntries());
+    res.put("diskBytes", cache.diskBytes());
+    res.put("prefetchQueued", prefetchExec.getQueue().size());
+    call.resolve(res);
+  }
+
+  @PluginMethod
+  public void clear(PluginCall call) {
+    prefetchExec.getQueue().clear();
+    loadExec.execute(() -> {
+      cache.clear();
+      call.resolve();
+    });
+  }
+
+  private static int clampSide(int v) {
+    return v <= 0 ? 0 : Math.min(v, MAX_SIDE);
+  }
+
+  private static JSObject result(File file, boolean cached) {
+    JSObject res = new JSObject();
+    res.put("path", file.getAbsolutePath());
+    res.put("cached", cached);
+    return res;
+  }
+}
@@ -0,0 +1,259 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Origens alternativas (mesmo caminho, outro host) da fonte atual e o
+ * ranking delas a partir de throughput, erro e TTFB medidos. As médias são
+ * EWMA por host e ficam em SharedPreferences, então valem entre sessões.
+ * Host sem amostras suficientes vai primeiro, na ordem da lista: é como o
+ * ranking aprende sem precisar de sondagem separada. A taxa de erro cai pela
+ * metade a cada ERROR_HALF_LIFE_MS sem falha nova (um host rebaixado só é
+ * tentado quando os outros falham, então não dá para esperar um sucesso
+ * dele), e stats gravadas há mais de STATS_MAX_AGE_MS são descartadas no
+ * load: o host volta a ser desconhecido e é reavaliado.
+ */
+final class CdnRouter {
+  private static final String TAG = "CineSuperExo";
+  private static final String PREFS = "cinesuper_cdn";
+  private static final String KEY_STATS = "stats";
+  private static final double ALPHA = 0.2;
+  private static final int MIN_SAMPLES = 3;
+  private static final long SAVE_EVERY_MS = 30_000L;
+  private static final long ERROR_HALF_LIFE_MS = 15 * 60_000L;
+  private static final long STATS_MAX_AGE_MS = 24 * 60 * 60_000L;
+
+  static final class HostStats {
+    double throughputBps;
+    double errorRate;
+    double ttfbMs;
+    int samples;
+    long requests;
+    long failures;
+    // relógio de parede: vale entre sessões
+    long errorAtMs;
+    long updatedAtMs;
+
+    /** Decaimento da taxa de erro pelo tempo desde a última atualização dela. */
+    void decay(long nowMs) {
+      if (errorAtMs > 0 && nowMs > errorAtMs && errorRate > 0) {
+        errorRate *= Math.pow(0.5d, (nowMs - errorAtMs) / (double) ERROR_HALF_LIFE_MS);
+      }
+      errorAtMs = nowMs;
+    }
+
+    double score() {
+      double ok = 1d - Math.min(0.95d, errorRate);
+      // TTFB pesa pouco: segmentos de vários MB são dominados pelo throughput
+      return throughputBps * ok * ok / (1d + ttfbMs / 1000d);
+    }
+  }
+
+  private final SharedPreferences prefs;
+  private final Map<String, HostStats> stats = new HashMap<>();
+  private final List<Uri> origins = new ArrayList<>();
+  @Nullable private String primaryHost;
+  private long lastSaveMs = 0L;
+  private boolean dirty = false;
+  private volatile int firstByteTimeoutMs = 3_000;
+
+  CdnRouter(Context ctx) {
+    prefs = ctx.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    load();
+  }
+
+  /** Timeout de conexão/primeiro byte das tentativas que ainda têm outra origem atrás. */
+  void setFirstByteTimeoutMs(int ms) {
+    if (ms > 0) firstByteTimeoutMs = ms;
+  }
+
+  int firstByteTimeoutMs() {
+    return firstByteTimeoutMs;
+  }
+
+  /** Fonte nova: a própria origem dela + alternativas na ordem dada. */
+  synchronized void setOrigins(@Nullable String sourceUrl, @Nullable List<String> baseUrls) {
+    origins.clear();
+    primaryHost = null;
+    if (sourceUrl == null) return;
+    Uri src = Uri.parse(sourceUrl);
+    primaryHost = src.getHost();
+    if (primaryHost == null) return;
+    origins.add(new Uri.Builder().scheme(src.getScheme()).encodedAuthority(src.getEncodedAuthority()).build());
+    if (baseUrls == null) return;
+    for (String raw : baseUrls) {
+      try {
+        Uri u = Uri.parse(raw.trim());
+        if (u.getHost() == null || u.getScheme() == null) continue;
+        boolean dup = false;
+        for (Uri o : origins) dup |= o.getEncodedAuthority().equals(u.getEncodedAuthority());
+        if (!dup) origins.add(new Uri.Builder().scheme(u.getScheme()).encodedAuthority(u.getEncodedAuthority()).build());
+      } catch (Exception ignored) {}
+    }
+  }
+
+  /** Origens ranqueadas para esta URI; vazio = não roteia (outro host ou uma origem só). */
+  synchronized List<Uri> candidatesFor(Uri uri) {
+    if (origins.size() < 2 || primaryHost == null || !primaryHost.equals(uri.getHost())) {
+      return Collections.emptyList();
+    }
+    List<Uri> ranked = new ArrayList<>(origins);
+    final Map<Uri, Double> keys = new HashMap<>();
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < ranked.size(); i++) {
+      Uri o = ranked.get(i);
+      HostStats s = stats.get(o.getEncodedAuthority());
+      if (s != null) s.decay(now);
+      boolean known = s != null && s.samples >= MIN_SAMPLES;
+      keys.put(o, known ? s.score() : Double.MAX_VALUE / (i + 1));
+    }
+    Collections.sort(ranked, (a, b) -> Double.compare(keys.get(b), keys.get(a)));
+    return ranked;
+  }
+
+  static Uri rewrite(Uri uri, Uri origin) {
+    return uri.buildUpon().scheme(origin.getScheme()).encodedAuthority(origin.getEncodedAuthority()).build();
+  }
+
+  synchronized void onOpen(Uri origin, long ttfbMs) {
+    HostStats s = statsFor(origin);
+    s.updatedAtMs = System.currentTimeMillis();
+    s.decay(s.updatedAtMs);
+    s.requests++;
+    s.ttfbMs = s.samples == 0 ? ttfbMs : s.ttfbMs + ALPHA * (ttfbMs - s.ttfbMs);
+    s.errorRate = s.errorRate * (1d - ALPHA);
+    dirty = true;
+  }
+
+  synchronized void onError(Uri origin) {
+    HostStats s = statsFor(origin);
+    s.updatedAtMs = System.currentTimeMillis();
+    s.decay(s.updatedAtMs);
+    s.requests++;
+    s.failures++;
+    s.errorRate = s.errorRate + ALPHA * (1d - s.errorRate);
+    s.samples++;
+    dirty = true;
+  }
+
+  synchronized void onTransfer(Uri origin, long bytes, long elapsedMs) {
+    // respostas pequenas (playlists) medem latência, não banda
+    if (bytes < 64 * 1024 || elapsedMs <= 0) return;
+    HostStats s = statsFor(origin);
+    s.updatedAtMs = System.currentTimeMillis();
+    double bps = bytes * 8000d / elapsedMs;
+    s.throughputBps = s.samples == 0 || s.throughputBps <= 0 ? bps : s.throughputBps + ALPHA * (bps - s.throughputBps);
+    s.samples++;
+    dirty = true;
+  }
+
+  private HostStats statsFor(Uri origin) {
+    String key = origin.getEncodedAuthority();
+    HostStats s = stats.get(key);
+    if (s == null) {
+      s = new HostStats();
+      stats.put(key, s);
+    }
+    return s;
+  }
+
+  synchronized JSArray describe() {
+    JSArray out = new JSArray();
+    List<Uri> ranked = primaryHost != null ? candidatesFor(new Uri.Builder().authority(primaryHost).build())
+      : Collections.emptyList();
+    for (Map.Entry<String, HostStats> e : stats.entrySet()) {
+      HostStats s = e.getValue();
+      JSObject o = new JSObject();
+      o.put("host", e.getKey());
+      o.put("throughputBps", Math.round(s.throughputBps));
+      o.put("errorRate", s.errorRate);
+      o.put("ttfbMs", Math.round(s.ttfbMs));
+      o.put("samples", s.samples);
+      o.put("requests", s.requests);
+      o.put("failures", s.failures);
+      int rank = -1;
+      for (int i = 0; i < ranked.size(); i++) {
+        if (ranked.get(i).getEncodedAuthority().equals(e.getKey())) rank = i;
+      }
+      o.put("rank", rank);
+      out.put(o);
+    }
+    return out;
+  }
+
+  /** Chamado do tick; grava no máximo a cada 30s. */
+  void maybeSave() {
+    String json;
+    synchronized (this) {
+      long now = SystemClock.elapsedRealtime();
+      if (!dirty || now - lastSaveMs < SAVE_EVERY_MS) return;
+      lastSaveMs = now;
+      dirty = false;
+      json = toJson().toString();
+    }
+    prefs.edit().putString(KEY_STATS, json).apply();
+  }
+
+  private JSONObject toJson() {
+    JSONObject root = new JSONObject();
+    try {
+      for (Map.Entry<String, HostStats> e : stats.entrySet()) {
+        HostStats s = e.getValue();
+        JSONObject o = new JSONObject();
+        o.put("bps", s.throughputBps);
+        o.put("err", s.errorRate);
+        o.put("ttfb", s.ttfbMs);
+        o.put("n", s.samples);
+        o.put("errAt", s.errorAtMs);
+        o.put("t", s.updatedAtMs);
+        root.put(e.getKey(), o);
+      }
+    } catch (Exception ignored) {}
+    return root;
+  }
+
+  private void load() {
+    try {
+      String raw = prefs.getString(KEY_STATS, null);
+      if (raw == null) return;
+      JSONObject root = new JSONObject(raw);
+      Iterator<String> keys = root.keys();
+      long now = System.currentTimeMillis();
+      while (keys.hasNext()) {
+        String k = keys.next();
+        JSONObject o = root.getJSONObject(k);
+        // sem "t" = gravado antes do decaimento existir: também não confia
+        long t = o.optLong("t", 0L);
+        if (t <= 0 || now - t > STATS_MAX_AGE_MS) continue;
+        HostStats s = new HostStats();
+        s.updatedAtMs = t;
+        s.errorAtMs = o.optLong("errAt", t);
+        s.throughputBps = o.optDouble("bps", 0d);
+        s.errorRate = o.optDouble("err", 0d);
+        s.ttfbMs = o.optDouble("ttfb", 0d);
+        s.samples = o.optInt("n", 0);
+        stats.put(k, s);
+      }
+    } catch (Exception e) {
+      Log.w(TAG, "cdn stats load failed", e);
+    }
+  }
+}
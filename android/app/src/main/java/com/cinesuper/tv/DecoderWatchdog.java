@@ -0,0 +1,132 @@
+package com.cinesuper.tv;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.exoplayer.DecoderCounters;
+
+/**
+ * Saúde do decoder numa janela deslizante de amostras de 1s: frames
+ * renderizados/descartados e o offset médio de processamento (negativo =
+ * frame saindo atrasado). Decide descer ou subir um degrau do ladder de
+ * RECOVERY_CONSTRAINTS antes do codec estourar.
+ */
+final class DecoderWatchdog {
+  static final int NONE = 0;
+  static final int STEP_DOWN = 1;
+  static final int STEP_UP = 2;
+
+  private static final int WINDOW = 10;
+  private static final int MIN_SAMPLES = 5;
+  private static final float DOWN_DROP_RATIO = 0.10f;
+  private static final long DOWN_LATE_OFFSET_US = -20_000L;
+  private static final float STABLE_DROP_RATIO = 0.01f;
+  private static final long COOLDOWN_MS = 15_000L;
+  private static final long STABLE_FOR_UP_MS = 60_000L;
+
+  private final int[] rendered = new int[WINDOW];
+  private final int[] dropped = new int[WINDOW];
+  private final long[] offsetUs = new long[WINDOW];
+  private final int[] offsetCount = new int[WINDOW];
+  private int head = 0;
+  private int size = 0;
+
+  private DecoderCounters lastCounters;
+  private int lastRendered;
+  private int lastDropped;
+  private long lastOffsetUs;
+  private int lastOffsetCount;
+
+  private long lastDecisionAtMs = 0L;
+  private long stableSinceMs = 0L;
+
+  private float dropRatio = 0f;
+  private long avgOffsetUs = 0L;
+
+  void reset(long nowMs) {
+    head = 0;
+    size = 0;
+    lastCounters = null;
+    lastDecisionAtMs = nowMs;
+    stableSinceMs = nowMs;
+    dropRatio = 0f;
+    avgOffsetUs = 0L;
+  }
+
+  float getDropRatio() {
+    return dropRatio;
+  }
+
+  long getAvgOffsetUs() {
+    return avgOffsetUs;
+  }
+
+  /** Uma amostra por segundo, só com o vídeo tocando. */
+  int sample(@Nullable DecoderCounters counters, boolean playing, long nowMs, boolean canStepUp) {
+    if (counters == null || !playing) {
+      stableSinceMs = nowMs;
+      lastCounters = null;
+      return NONE;
+    }
+    counters.ensureUpdated();
+    int r = counters.renderedOutputBufferCount;
+    int d = counters.droppedBufferCount;
+    long o = counters.totalVideoFrameProcessingOffsetUs;
+    int oc = counters.videoFrameProcessingOffsetCount;
+
+    // decoder novo = contadores novos; só rebaseia
+    if (counters != lastCounters || r < lastRendered || d < lastDropped) {
+      lastCounters = counters;
+      lastRendered = r;
+      lastDropped = d;
+      lastOffsetUs = o;
+      lastOffsetCount = oc;
+      return NONE;
+    }
+
+    rendered[head] = r - lastRendered;
+    dropped[head] = d - lastDropped;
+    offsetUs[head] = o - lastOffsetUs;
+    offsetCount[head] = Math.max(0, oc - lastOffsetCount);
+    head = (head + 1) % WINDOW;
+    if (size < WINDOW) size++;
+    lastRendered = r;
+    lastDropped = d;
+    lastOffsetUs = o;
+    lastOffsetCount = oc;
+
+    int sumR = 0;
+    int sumD = 0;
+    long sumO = 0L;
+    int sumOc = 0;
+    for (int i = 0; i < size; i++) {
+      sumR += rendered[i];
+      sumD += dropped[i];
+      sumO += offsetUs[i];
+      sumOc += offsetCount[i];
+    }
+    int total = sumR + sumD;
+    dropRatio = total > 0 ? sumD / (float) total : 0f;
+    avgOffsetUs = sumOc > 0 ? sumO / sumOc : 0L;
+
+    if (size < MIN_SAMPLES || nowMs - lastDecisionAtMs < COOLDOWN_MS) return NONE;
+
+    if (dropRatio >= DOWN_DROP_RATIO || avgOffsetUs <= DOWN_LATE_OFFSET_US) {
+      lastDecisionAtMs = nowMs;
+      stableSinceMs = nowMs;
+      size = 0;
+      return STEP_DOWN;
+    }
+
+    if (dropRatio > STABLE_DROP_RATIO) {
+      stableSinceMs = nowMs;
+      return NONE;
+    }
+    if (canStepUp && nowMs - stableSinceMs >= STABLE_FOR_UP_MS) {
+      lastDecisionAtMs = nowMs;
+      stableSinceMs = nowMs;
+      size = 0;
+      return STEP_UP;
+    }
+    return NONE;
+  }
+}
@@ -1,17 +1,28 @@
 package com.cinesuper.tv;
 
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Matrix;
+import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.SurfaceTexture;
 import android.net.Uri;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.Display;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.TextureView;
 import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.view.WindowInsets;
 
 import androidx.annotation.Nullable;
@@ -32,14 +43,31 @@ import androidx.media3.common.PlaybackException;
 import androidx.media3.common.Player;
 import androidx.media3.common.Tracks;
 import androidx.media3.common.TrackSelectionOverride;
+import androidx.media3.common.TrackSelectionParameters;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.DefaultRenderersFactory;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
 import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.audio.AudioCapabilities;
+import androidx.media3.exoplayer.audio.AudioSink;
+import androidx.media3.exoplayer.audio.DefaultAudioSink;
+import androidx.media3.exoplayer.audio.ForwardingAudioSink;
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
 import androidx.media3.datasource.HttpDataSource;
 
 import com.google.common.collect.ImmutableList;
 
+import java.io.File;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -52,9 +80,24 @@ public class ExoPlayerPlugin extends Plugin {
     {1280, 720, 30},
     {854, 480, 30}
   };
+  // teto por degrau do ThermalMonitor (1..3); combina com o ladder acima pelo menor
+  private static final int[][] THERMAL_CONSTRAINTS = new int[][]{
+    {3840, 2160, 30},
+    {1920, 1080, 30},
+    {1280, 720, 30}
+  };
+  private static final int PREVIEW_MAX_WIDTH = 960;
+  private static final int PREVIEW_MAX_HEIGHT = 540;
   private ExoPlayer player;
   private TextureView textureView;
   private DefaultTrackSelector trackSelector;
+  private TvLoadControl loadControl;
+  private PreviewPlayer preview;
+  private int nextPreviewHandle = 1;
+  private static final long MEMORY_RELAX_MS = 60_000L;
+  private int memoryStep = 0;
+  private ComponentCallbacks2 memoryCallbacks;
+  private Handler memoryRelaxHandler;
   private int viewW = 0;
   private int viewH = 0;
   private int videoW = 0;
@@ -67,6 +110,36 @@ public class ExoPlayerPlugin extends Plugin {
   private float manualOffsetY = 0f;
   private boolean preferSdr = true;
   private boolean preferSdrApplied = false;
+  private String colorMode = "sdr";
+  // modo da fonte atual (setSource pode sobrescrever o do init)
+  private String effectiveColorMode = "sdr";
+  private String colorDecision = "none";
+  private boolean colorDecidedBeforePrepare = false;
+  // "sdr" com master misto: o filtro do ABR está armado, mas só conta como
+  // decidido quando ele de fato tirou o HDR da seleção (AbrPolicy.filterResult)
+  private boolean sdrFilterArmed = false;
+  private boolean colorReselectAvoided = false;
+  private long colorProbeMs = 0L;
+  // parte do probe gasta na media playlist (só fastStart com posição inicial)
+  private long mediaProbeMs = 0L;
+  private long setSourceAtMs = 0L;
+  private boolean fastStart = false;
+  private boolean sourceFastStart = false;
+  // só métrica: sem CODECS em todas as variantes o media3 baixa chunks no prepare
+  private boolean sourceChunkless = false;
+  private long startRequestedMs = 0L;
+  private long startAlignedMs = 0L;
+  private boolean startupReported = true;
+  private int sourceGeneration = 0;
+  // seek que chegou entre o setSource e o prepare (probe do master em voo) vira a posição inicial
+  private boolean awaitingPrepare = false;
+  private long pendingSeekMs = -1L;
+  private final PlayerCommands commands = new PlayerCommands();
+  private static Boolean cachedDisplayHdr = null;
+  private static Boolean cachedDecoderHdr = null;
+  private final ExecutorService io = Executors.newSingleThreadExecutor();
+  // probe de rede separado: não segura o probe do master no setSource
+  private final ExecutorService probeIo = Executors.newSingleThreadExecutor();
   private boolean visibleWanted = true;
   private boolean waitingFirstFrame = false;
   private int configuredMaxVideoWidth = 0;
@@ -76,49 +149,372 @@ public class ExoPlayerPlugin extends Plugin {
   private int maxVideoHeight = 0;
   private int maxVideoFrameRate = 0;
   private int recoveryProfileIndex = 0;
+  // degrau imposto por erro fatal do codec: o watchdog não relaxa abaixo dele
+  private int recoveryFloorIndex = 0;
   private long lastRecoverAtMs = 0L;
+  // trocada no promotePreview pela do preview (é a que o trackSelector usa)
+  private volatile AbrPolicy abrPolicy = new AbrPolicy();
+  private boolean capToViewport = true;
+  private int viewportW = 0;
+  private int viewportH = 0;
+  private boolean audioPassthrough = false;
+  private boolean audioOffload = false;
+  private final FrameRateMatcher frameRateMatcher = new FrameRateMatcher();
+  private final DecoderWatchdog decoderWatchdog = new DecoderWatchdog();
+  private boolean watchdogEnabled = true;
+  private final ThermalMonitor thermal = new ThermalMonitor();
+  private boolean thermalScaling = true;
+  private final IdlePolicy idlePolicy = new IdlePolicy();
+  // não-nulo = player parado pelo IdlePolicy, esperando o play
+  @Nullable private IdlePolicy.Snapshot idleSnapshot;
+  private ImageView idlePlaceholder;
+  // progresso/sessão nativos (diário local + sync em lote)
+  private static final long WATCH_SAVE_EVERY_MS = 10_000L;
+  private static final long WATCH_MIN_DELTA_SEC = 2L;
+  private static final long WATCH_HEARTBEAT_MS = 25_000L;
+  private static final long WATCH_END_TAIL_SEC = 20L;
+  private WatchSync watchSync;
+  private String watchVideoId = null;
+  private String watchProfileId = null;
+  private String watchTitlePublicId = "";
+  private long watchLastSavedAtMs = 0L;
+  private long watchLastSavedPos = -1L;
+  private long watchLastHeartbeatMs = 0L;
+  private boolean watchWasPlaying = false;
+
+  private final StringBuilder fastMsg = new StringBuilder(64);
+  // trocado no promotePreview pelo do preview (é o que a cadeia de data sources dele usa)
+  private volatile PlaybackToken playbackToken = new PlaybackToken();
+  private int tokenWaitMs = 0;
+  private final TvLoadErrorPolicy loadErrorPolicy = new TvLoadErrorPolicy();
+  private CdnRouter cdnRouter;
+  private final SegmentPrefetcher prefetcher = new SegmentPrefetcher();
+  private StatsOverlayView statsOverlay;
+  private String videoDecoderName = "";
+  private String audioDecoderName = "";
+  private final StatsOverlayView.Source statsSource = this::fillStats;
 
   private Handler timeHandler;
   private Runnable timeTick;
 
-  private final List<TrackRef> audioRefs = new ArrayList<>();
-  private final List<TrackRef> textRefs = new ArrayList<>();
+  private final TrackRegistry trackRegistry = new TrackRegistry();
+
+  @Override
+  public void load() {
+    super.load();
+    watchSync = new WatchSync(getContext().getFilesDir());
+    watchSync.setListener(this::emitWatchSync);
+    playbackToken.setListener(this::emitTokenExpired);
+    cdnRouter = new CdnRouter(getContext());
+    thermal.start(getContext(), this::onThermal);
+    memoryCallbacks = new ComponentCallbacks2() {
+      @Override
+      public void onTrimMemory(int level) {
+        onMemoryPressure(level);
+      }
+
+      @Override
+      public void onLowMemory() {
+        onMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+      }
+
+      @Override
+      public void onConfigurationChanged(Configuration newConfig) {}
+    };
+    try {
+      getContext().getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+    } catch (Exception e) {
+      Log.w(TAG, "registerComponentCallbacks failed", e);
+    }
+  }
+
+  @Override
+  protected void handleOnDestroy() {
+    try {
+      if (memoryCallbacks != null) {
+        getContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+      }
+    } catch (Exception ignored) {}
+    memoryCallbacks = null;
+    if (memoryRelaxHandler != null) memoryRelaxHandler.removeCallbacks(memoryRelax);
+    thermal.stop();
+    if (watchSync != null) {
+      // o que já está na fila (inclusive um flush agendado) ainda roda
+      watchSync.shutdown();
+      watchSync = null;
+    }
+    super.handleOnDestroy();
+  }
+
+  @Override
+  protected void handleOnPause() {
+    // app indo para background: grava a posição e tenta mandar agora
+    trackWatchProgress(true);
+    if (watchSync != null) watchSync.flushNow();
+    super.handleOnPause();
+  }
+
+  private static int memoryStepFor(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) return 3;
+    if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) return 3;
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) return 2;
+    if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) return 2;
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) return 1;
+    return 0;
+  }
+
+  /**
+   * Degrada em passos em vez de deixar o sistema matar o app:
+   * 1) corta buffer à frente/back buffer; 2) solta caches e o preview;
+   * 3) libera players ociosos.
+   */
+  private void onMemoryPressure(int level) {
+    int step = memoryStepFor(level);
+    if (step <= 0) return;
+    runOnUiThread(() -> {
+      memoryStep = Math.max(memoryStep, step);
+      applyLoadMemoryStep();
+      scheduleMemoryRelax();
+
+      if (step >= 2) {
+        HlsPlaylistCache.get().clear();
+        ArtworkCache.get(getContext().getCacheDir()).trimMemory();
+        WebResponseCache.get(getContext()).trimMemory();
+        prefetcher.cancelAll();
+        if (preview != null && !preview.player.isPlaying()) releasePreview();
+      }
+      if (step >= 3) {
+        releasePreview();
+        if (player != null) {
+          int state = player.getPlaybackState();
+          // parado pelo IdlePolicy já não segura codec nem buffer; e o play precisa dele
+          if ((state == Player.STATE_IDLE || state == Player.STATE_ENDED) && idleSnapshot == null) {
+            try {
+              if (textureView != null) player.clearVideoTextureView(textureView);
+            } catch (Exception ignored) {}
+            player.release();
+            player = null;
+            loadControl = null;
+            commands.moveTo(PlayerCommands.RELEASED);
+            stopTimeLoop();
+            Log.w(TAG, "memory: released idle main player");
+          }
+        }
+      }
+
+      Runtime rt = Runtime.getRuntime();
+      long usedMb = (rt.totalMemory() - rt.freeMemory()) / (1024 * 1024);
+      Log.w(TAG, "memory pressure level=" + level + " step=" + step + " heapUsedMb=" + usedMb);
 
-  private static class TrackRef {
-    public Tracks.Group group;
-    public int trackIndex;
-    public String label;
-    public String lang;
+      JSObject payload = new JSObject();
+      payload.put("level", level);
+      payload.put("step", step);
+      payload.put("heapUsedMb", usedMb);
+      payload.put("heapMaxMb", rt.maxMemory() / (1024 * 1024));
+      try {
+        notifyListeners("memoryPressure", payload, true);
+      } catch (Exception e) {
+        Log.e(TAG, "memoryPressure notify failed", e);
+      }
+    });
+  }
+
+  // pausa longa apara como o passo 2 de memória, sem mexer no memoryStep
+  private void applyLoadMemoryStep() {
+    if (loadControl == null) return;
+    loadControl.setMemoryStep(idlePolicy.step() >= IdlePolicy.TRIM ? 2 : Math.min(2, memoryStep));
+  }
+
+  // sem novo aviso por um minuto, relaxa um passo
+  private void scheduleMemoryRelax() {
+    if (memoryRelaxHandler == null) memoryRelaxHandler = new Handler(Looper.getMainLooper());
+    memoryRelaxHandler.removeCallbacks(memoryRelax);
+    memoryRelaxHandler.postDelayed(memoryRelax, MEMORY_RELAX_MS);
   }
 
+  private final Runnable memoryRelax = () -> {
+    if (memoryStep <= 0) return;
+    memoryStep--;
+    applyLoadMemoryStep();
+    Log.i(TAG, "memory pressure relaxed -> step=" + memoryStep);
+    if (memoryStep > 0) scheduleMemoryRelax();
+  };
+
   private void runOnUiThread(Runnable r) {
     if (getActivity() == null) return;
     getActivity().runOnUiThread(r);
   }
 
+  /**
+   * Sink de áudio: com passthrough usa as capacidades reais do HDMI/AVR
+   * (AC-3/E-AC-3 saem sem decodificar); sem passthrough fica só PCM. O
+   * Builder(context) acompanha as capacidades do HDMI sozinho, então o "só
+   * PCM" é o sink recusando formato codificado: o renderer decodifica.
+   */
+  private DefaultRenderersFactory buildRenderersFactory() {
+    final boolean passthrough = audioPassthrough;
+    return new DefaultRenderersFactory(getContext()) {
+      @Override
+      @Nullable
+      protected AudioSink buildAudioSink(Context context, boolean enableFloatOutput, boolean enableAudioTrackPlaybackParams) {
+        AudioSink sink = new DefaultAudioSink.Builder(context)
+          .setEnableFloatOutput(enableFloatOutput)
+          .setEnableAudioTrackPlaybackParams(enableAudioTrackPlaybackParams)
+          .build();
+        return passthrough ? sink : new PcmOnlyAudioSink(sink);
+      }
+    };
+  }
+
+  private static final class PcmOnlyAudioSink extends ForwardingAudioSink {
+    PcmOnlyAudioSink(AudioSink sink) {
+      super(sink);
+    }
+
+    @Override
+    public boolean supportsFormat(Format format) {
+      return MimeTypes.AUDIO_RAW.equals(format.sampleMimeType) && super.supportsFormat(format);
+    }
+
+    @Override
+    public int getFormatSupport(Format format) {
+      return MimeTypes.AUDIO_RAW.equals(format.sampleMimeType)
+        ? super.getFormatSupport(format)
+        : AudioSink.SINK_FORMAT_UNSUPPORTED;
+    }
+  }
+
+  @Nullable
+  private AudioCapabilities getAudioCapabilities() {
+    try {
+      return AudioCapabilities.getCapabilities(getContext());
+    } catch (Exception e) {
+      Log.w(TAG, "AudioCapabilities failed", e);
+      return null;
+    }
+  }
+
+  /**
+   * Ordem de preferência de codec de áudio antes da primeira seleção:
+   * com passthrough, o que o sink aceita codificado vem primeiro; sem ele,
+   * AAC antes de AC-3/E-AC-3 para não decodificar surround na CPU.
+   */
+  private void applyAudioPreferences(DefaultTrackSelector.Parameters.Builder builder) {
+    AudioCapabilities caps = audioPassthrough ? getAudioCapabilities() : null;
+    List<String> preferred = new ArrayList<>();
+    if (caps != null) {
+      if (caps.supportsEncoding(C.ENCODING_E_AC3_JOC)) preferred.add(MimeTypes.AUDIO_E_AC3_JOC);
+      if (caps.supportsEncoding(C.ENCODING_E_AC3)) preferred.add(MimeTypes.AUDIO_E_AC3);
+      if (caps.supportsEncoding(C.ENCODING_AC3)) preferred.add(MimeTypes.AUDIO_AC3);
+    }
+    preferred.add(MimeTypes.AUDIO_AAC);
+    builder.setPreferredAudioMimeTypes(preferred.toArray(new String[0]));
+
+    builder.setAudioOffloadPreferences(
+      new TrackSelectionParameters.AudioOffloadPreferences.Builder()
+        .setAudioOffloadMode(audioOffload
+          ? TrackSelectionParameters.AudioOffloadPreferences.AUDIO_OFFLOAD_MODE_ENABLED
+          : TrackSelectionParameters.AudioOffloadPreferences.AUDIO_OFFLOAD_MODE_DISABLED)
+        .build()
+    );
+  }
+
   private void ensurePlayer() {
     if (player != null) return;
     if (getContext() == null) return;
 
     try {
-      trackSelector = new DefaultTrackSelector(getContext());
-      player = new ExoPlayer.Builder(getContext()).setTrackSelector(trackSelector).build();
+      trackSelector = new DefaultTrackSelector(getContext(), abrPolicy);
+      loadControl = new TvLoadControl(TvLoadControl.FULL);
+      applyLoadMemoryStep();
+      player = new ExoPlayer.Builder(getContext(), buildRenderersFactory())
+        .setTrackSelector(trackSelector)
+        .setLoadControl(loadControl)
+        .build();
       try {
         DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
         applyVideoConstraints(builder);
+        applyAudioPreferences(builder);
         trackSelector.setParameters(builder);
       } catch (Exception ignored) {}
-      Log.i(TAG, "ensurePlayer ok");
+      trackRegistry.setAudioCapabilities(audioPassthrough ? getAudioCapabilities() : null);
+      commands.moveTo(PlayerCommands.IDLE);
+      Log.i(TAG, "ensurePlayer ok (passthrough=" + audioPassthrough + " offload=" + audioOffload + ")");
     } catch (Exception e) {
       Log.e(TAG, "ensurePlayer failed", e);
       return;
     }
 
-    player.addListener(new Player.Listener() {
+    player.addListener(createMainListener());
+    player.addAnalyticsListener(createMainAnalyticsListener());
+    startTimeLoop();
+  }
+
+  private AnalyticsListener createMainAnalyticsListener() {
+    return new AnalyticsListener() {
+      @Override
+      public void onDroppedVideoFrames(AnalyticsListener.EventTime eventTime, int droppedFrames, long elapsedMs) {
+        frameRateMatcher.onDroppedFrames(droppedFrames);
+      }
+
+      @Override
+      public void onVideoDecoderInitialized(AnalyticsListener.EventTime eventTime, String decoderName,
+                                            long initializedTimestampMs, long initializationDurationMs) {
+        videoDecoderName = decoderName;
+      }
+
+      @Override
+      public void onAudioDecoderInitialized(AnalyticsListener.EventTime eventTime, String decoderName,
+                                            long initializedTimestampMs, long initializationDurationMs) {
+        audioDecoderName = decoderName;
+      }
+
+      @Override
+      public void onVideoInputFormatChanged(
+        AnalyticsListener.EventTime eventTime,
+        Format format,
+        @Nullable DecoderReuseEvaluation decoderReuseEvaluation
+      ) {
+        if (format != null && format.frameRate > 0) {
+          frameRateMatcher.onVideoFormat(getActivity(), format.frameRate, ExoPlayerPlugin.this::emitFrameRateSwitch);
+        }
+      }
+    };
+  }
+
+  private void emitFrameRateSwitch(float contentFps, float fromHz, float toHz, boolean seamless,
+                                   long droppedBefore, long beforeMs, long droppedAfter, long afterMs) {
+    JSObject payload = new JSObject();
+    payload.put("contentFps", contentFps);
+    payload.put("fromHz", fromHz);
+    payload.put("toHz", toHz);
+    payload.put("seamless", seamless);
+    payload.put("droppedBefore", droppedBefore);
+    payload.put("beforeMs", beforeMs);
+    payload.put("droppedAfter", droppedAfter);
+    payload.put("afterMs", afterMs);
+    Log.i(TAG, "frameRate report " + payload);
+    try {
+      notifyListeners("frameRateMatch", payload, true);
+    } catch (Exception e) {
+      Log.e(TAG, "emitFrameRateSwitch notify failed", e);
+    }
+  }
+
+  private Player.Listener createMainListener() {
+    return new Player.Listener() {
       @Override
       public void onPlaybackStateChanged(int state) {
         emitState();
         if (state == Player.STATE_READY) {
+          if (commands.is(PlayerCommands.PREPARING) || commands.is(PlayerCommands.RECOVERING)) {
+            commands.moveTo(PlayerCommands.READY);
+          }
+          TvLog.endSpan(TvLog.SPAN_SOURCE);
+          TvLog.endSpan(TvLog.SPAN_SEEK);
+          TvLog.endSpan(TvLog.SPAN_RECOVERY);
+          TvLog.endSpan(TvLog.SPAN_IDLE_RESUME);
+          emitStartup();
           waitingFirstFrame = false;
           runOnUiThread(ExoPlayerPlugin.this::applyVisibility);
         }
@@ -139,13 +535,16 @@ public class ExoPlayerPlugin extends Plugin {
       @Override
       public void onPlayerError(PlaybackException error) {
         if (error != null) {
-          Log.e(TAG, "player error: " + error.getErrorCodeName() + " / " + error.getMessage(), error);
+          TvLog.e("player error", error);
+          // fonte nova já na fila/no probe: o erro é da que sai; re-preparar aqui daria prepare duplo
+          if (awaitingPrepare || commands.hasPending(PlayerCommands.CMD_SOURCE)) return;
           if (error.errorCode == PlaybackException.ERROR_CODE_DECODING_FORMAT_EXCEEDS_CAPABILITIES) {
             long now = System.currentTimeMillis();
             if (now - lastRecoverAtMs > 1500) {
               lastRecoverAtMs = now;
               boolean tightened = tightenConstraintsForRecovery();
-              Log.w(TAG, "codec exceeds capabilities; forcing constraints and retry (tightened=" + tightened + ")");
+              recoveryFloorIndex = recoveryProfileIndex;
+              TvLog.w("codec exceeds capabilities; retry tightened", tightened ? 1 : 0);
               preferSdrApplied = false;
               if (trackSelector != null) {
                 try {
@@ -154,27 +553,30 @@ public class ExoPlayerPlugin extends Plugin {
                   trackSelector.setParameters(builder);
                 } catch (Exception ignored) {}
               }
-              if (tightened && player != null) {
+              if (tightened && player != null && commands.moveTo(PlayerCommands.RECOVERING)) {
+                TvLog.beginSpan(TvLog.SPAN_RECOVERY);
                 long pos = Math.max(0, player.getCurrentPosition());
                 player.prepare();
                 player.seekTo(pos);
                 player.play();
-              }
-              if (!tightened) {
+              } else if (player != null) {
+                commands.moveTo(PlayerCommands.IDLE);
                 emitError(error);
               }
             }
             return; // evita mostrar erro na UI quando conseguimos recuperar
           }
         } else {
-          Log.e(TAG, "player error: null");
+          TvLog.e("player error", "null");
         }
+        commands.moveTo(PlayerCommands.IDLE);
         emitError(error);
       }
 
       @Override
       public void onRenderedFirstFrame() {
         waitingFirstFrame = false;
+        hideIdlePlaceholder();
         runOnUiThread(ExoPlayerPlugin.this::applyVisibility);
       }
 
@@ -193,9 +595,7 @@ public class ExoPlayerPlugin extends Plugin {
         updateTextureBufferSize();
         applyTextureTransform();
       }
-    });
-
-    startTimeLoop();
+    };
   }
 
   private void ensureView() {
@@ -206,11 +606,13 @@ public class ExoPlayerPlugin extends Plugin {
 
     try {
       textureView = new TextureView(getContext());
+      TvLog.beginSpan(TvLog.SPAN_SURFACE);
       // Em algumas TVs, TextureView não-opaco gera "película escura"/ghosting.
       textureView.setOpaque(true);
       textureView.setSurfaceTextureListener(new TextureView.SurfaceTextureListener() {
         @Override
         public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
+          TvLog.endSpan(TvLog.SPAN_SURFACE);
           viewW = width;
           viewH = height;
           updateTextureBufferSize();
@@ -234,9 +636,9 @@ public class ExoPlayerPlugin extends Plugin {
         public void onSurfaceTextureUpdated(SurfaceTexture surface) {}
       });
       boolean textureOk = attachTextureView(textureView);
-      Log.i(TAG, "ensureView ok (texture=" + textureOk + ")");
+      TvLog.i(textureOk ? "ensureView ok" : "ensureView ok (texture failed)");
     } catch (Exception e) {
-      Log.e(TAG, "ensureView failed", e);
+      TvLog.e("ensureView failed", e);
       return;
     }
 
@@ -316,23 +718,29 @@ public class ExoPlayerPlugin extends Plugin {
   }
 
   private boolean attachTextureView(TextureView tv) {
+    TvLog.beginSection("cs.attachTexture");
     try {
       if (player != null) {
         player.setVideoTextureView(tv);
-        Log.i(TAG, "player.setVideoTextureView ok");
+        TvLog.d("player.setVideoTextureView ok");
         applyTextureTransform();
         return true;
       }
-      Log.w(TAG, "player is null, cannot set texture view");
+      TvLog.w("player is null, cannot set texture view");
       return true;
     } catch (Exception e) {
-      Log.w(TAG, "player.setVideoTextureView failed", e);
+      TvLog.e("player.setVideoTextureView failed", e);
       return false;
+    } finally {
+      TvLog.endSection();
     }
   }
 
   private void applyVisibility() {
     if (textureView == null) return;
+    if (idlePlaceholder != null && idlePlaceholder.getDrawable() != null) {
+      idlePlaceholder.setVisibility(visibleWanted ? View.VISIBLE : View.GONE);
+    }
     if (!visibleWanted) {
       textureView.setVisibility(View.GONE);
       textureView.setAlpha(1f);
@@ -394,11 +802,10 @@ public class ExoPlayerPlugin extends Plugin {
     textureView.setTranslationX(dx);
     textureView.setTranslationY(dy);
 
-    Log.i(TAG, "applyTransform view=" + vw + "x" + vh + " video=" + videoW + "x" + videoH +
-      " pr=" + pixelRatio + " rot=" + videoRotation +
-      " sx=" + sx + " sy=" + sy + " dx=" + dx + " dy=" + dy +
-      " scaled=" + scaledW + "x" + scaledH +
-      " inTop=" + insetTop + " inBottom=" + insetBottom + " offY=" + manualOffsetY);
+    // roda a cada layout do WebView: só D, sem montar String
+    TvLog.d("applyTransform view", vw, vh);
+    TvLog.d("applyTransform scaled", Math.round(scaledW), Math.round(scaledH));
+    TvLog.d("applyTransform offset", Math.round(dx), Math.round(dy));
   }
 
   private void updateTextureBufferSize() {
@@ -415,9 +822,9 @@ public class ExoPlayerPlugin extends Plugin {
         bh = tmp;
       }
       st.setDefaultBufferSize(bw, bh);
-      Log.i(TAG, "setDefaultBufferSize w=" + bw + " h=" + bh);
+      TvLog.d("setDefaultBufferSize", bw, bh);
     } catch (Exception e) {
-      Log.w(TAG, "setDefaultBufferSize failed", e);
+      TvLog.w("setDefaultBufferSize failed", e.toString());
     }
   }
 
@@ -435,11 +842,32 @@ public class ExoPlayerPlugin extends Plugin {
   }
 
   private void applyPreferSdr(@Nullable Tracks tracks) {
-    if (!preferSdr || preferSdrApplied || trackSelector == null || tracks == null) return;
+    // fallback: só quando não deu para decidir pelo master antes do prepare
+    if (!"sdr".equals(effectiveColorMode) || colorDecidedBeforePrepare) return;
+    if (preferSdrApplied || trackSelector == null || tracks == null) return;
+    if (sdrFilterArmed) {
+      int r = abrPolicy.filterResult();
+      // vídeo ainda não passou pelo ABR: espera o próximo onTracksChanged
+      if (r == AbrPolicy.FILTER_UNKNOWN) return;
+      if (r == AbrPolicy.FILTER_HELD) {
+        colorDecidedBeforePrepare = true;
+        colorReselectAvoided = true;
+        return;
+      }
+      Log.i(TAG, "preferSDR: ABR filter could not drop HDR; forcing override");
+    }
 
     TrackSelectionOverride bestOverride = null;
     Format bestFmt = null;
     long bestScore = -1;
+    // nenhum SDR dentro das constraints: o menor SDR, que é o que mais se aproxima
+    TrackSelectionOverride smallestOverride = null;
+    Format smallestFmt = null;
+    long smallestScore = Long.MAX_VALUE;
+    int step = thermalScaling ? thermal.step() : 0;
+    int maxW = effectiveMax(maxVideoWidth, step, 0);
+    int maxH = effectiveMax(maxVideoHeight, step, 1);
+    int maxFps = effectiveMax(maxVideoFrameRate, step, 2);
 
     for (int gi = 0; gi < tracks.getGroups().size(); gi++) {
       Tracks.Group group = tracks.getGroups().get(gi);
@@ -448,9 +876,15 @@ public class ExoPlayerPlugin extends Plugin {
       for (int ti = 0; ti < group.length; ti++) {
         Format fmt = group.getTrackFormat(ti);
         if (isHdrFormat(fmt)) continue;
-        if (maxVideoHeight > 0 && fmt.height > maxVideoHeight) continue;
-        if (maxVideoWidth > 0 && fmt.width > maxVideoWidth) continue;
-        if (maxVideoFrameRate > 0 && fmt.frameRate > 0 && fmt.frameRate > maxVideoFrameRate) continue;
+        long size = (long) Math.max(0, fmt.height) * 1_000_000L + Math.max(0, fmt.bitrate);
+        if (size < smallestScore) {
+          smallestScore = size;
+          smallestFmt = fmt;
+          smallestOverride = new TrackSelectionOverride(group.getMediaTrackGroup(), ImmutableList.of(ti));
+        }
+        if (maxH > 0 && fmt.height > maxH) continue;
+        if (maxW > 0 && fmt.width > maxW) continue;
+        if (maxFps > 0 && fmt.frameRate > 0 && fmt.frameRate > maxFps) continue;
 
         int h = Math.max(0, fmt.height);
         int br = Math.max(0, fmt.bitrate);
@@ -464,6 +898,10 @@ public class ExoPlayerPlugin extends Plugin {
     }
 
     preferSdrApplied = true;
+    if (bestOverride == null) {
+      bestOverride = smallestOverride;
+      bestFmt = smallestFmt;
+    }
 
     if (bestOverride != null) {
       DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
@@ -481,16 +919,227 @@ public class ExoPlayerPlugin extends Plugin {
     }
   }
 
+  private static String normalizeColorMode(@Nullable String raw, String fallback) {
+    if (raw == null) return fallback;
+    String m = raw.trim().toLowerCase();
+    if (m.equals("auto") || m.equals("sdr") || m.equals("hdr")) return m;
+    return fallback;
+  }
+
+  private boolean isDisplayHdrCapable() {
+    if (cachedDisplayHdr != null) return cachedDisplayHdr;
+    boolean ok = false;
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N && getActivity() != null) {
+        Display d = getActivity().getWindowManager().getDefaultDisplay();
+        Display.HdrCapabilities caps = d != null ? d.getHdrCapabilities() : null;
+        ok = caps != null && caps.getSupportedHdrTypes().length > 0;
+      }
+    } catch (Exception ignored) {}
+    cachedDisplayHdr = ok;
+    return ok;
+  }
+
+  private static boolean isDecoderHdrCapable() {
+    if (cachedDecoderHdr != null) return cachedDecoderHdr;
+    boolean ok = false;
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+        MediaCodecInfo[] infos = new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos();
+        for (MediaCodecInfo info : infos) {
+          if (info.isEncoder() || ok) continue;
+          for (String type : info.getSupportedTypes()) {
+            if (!MimeTypes.VIDEO_H265.equalsIgnoreCase(type)) continue;
+            MediaCodecInfo.CodecProfileLevel[] levels = info.getCapabilitiesForType(type).profileLevels;
+            for (MediaCodecInfo.CodecProfileLevel pl : levels) {
+              if (pl.profile == MediaCodecInfo.CodecProfileLevel.HEVCProfileMain10HDR10) {
+                ok = true;
+                break;
+              }
+            }
+          }
+        }
+      }
+    } catch (Exception ignored) {}
+    cachedDecoderHdr = ok;
+    return ok;
+  }
+
+  /**
+   * Decide HDR/SDR pelo master e pelas capacidades do device, antes da
+   * primeira seleção, e aplica como filtro no ABR (sem override depois).
+   */
+  private void resolveColorDecision(@Nullable HlsMasterInfo info, String mode) {
+    effectiveColorMode = mode;
+    colorDecision = "none";
+    colorDecidedBeforePrepare = false;
+    sdrFilterArmed = false;
+    colorReselectAvoided = false;
+    abrPolicy.setVideoFilter(null);
+    if (info == null || info.variants.isEmpty()) return;
+
+    colorDecidedBeforePrepare = true;
+    if (!info.hasHdr() || !info.hasSdr()) return;
+
+    boolean wantHdr;
+    if ("hdr".equals(mode)) wantHdr = isDecoderHdrCapable();
+    else if ("sdr".equals(mode)) wantHdr = false;
+    else wantHdr = isDisplayHdrCapable() && isDecoderHdrCapable();
+
+    colorDecision = wantHdr ? "hdr" : "sdr";
+    if ("sdr".equals(mode)) {
+      // seleção fixa ou SDR todo cortado pelas constraints escapam do filtro:
+      // o applyPreferSdr confere o resultado e, se precisar, força o override
+      colorDecidedBeforePrepare = false;
+      sdrFilterArmed = true;
+    }
+    final boolean keepHdr = wantHdr;
+    abrPolicy.setVideoFilter(fmt -> {
+      HlsMasterInfo.Variant v = info.match(fmt);
+      boolean hdr = v != null ? v.isHdr() : isHdrFormat(fmt);
+      return keepHdr ? !hdr : hdr;
+    });
+  }
+
+  private void beginWatchContext(@Nullable JSObject watch) {
+    String vid = watch != null ? watch.getString("videoId", "") : "";
+    String pid = watch != null ? watch.getString("profileId", "") : "";
+    if (vid == null || vid.trim().isEmpty() || pid == null || pid.trim().isEmpty()) return;
+    watchVideoId = vid.trim();
+    watchProfileId = pid.trim();
+    String tpid = watch.getString("titlePublicId", "");
+    watchTitlePublicId = tpid != null ? tpid.trim() : "";
+    watchLastSavedAtMs = SystemClock.elapsedRealtime();
+    watchLastSavedPos = -1L;
+    watchLastHeartbeatMs = 0L;
+    watchWasPlaying = false;
+  }
+
+  private void endWatchContext() {
+    if (watchVideoId == null) return;
+    trackWatchProgress(true);
+    if (watchSync != null) {
+      watchSync.recordSession(watchVideoId, watchProfileId, watchTitlePublicId, false, true);
+    }
+    watchVideoId = null;
+    watchProfileId = null;
+    watchTitlePublicId = "";
+  }
+
+  /**
+   * Mesmas regras do useWatchProgress: a cada 10s com delta >= 2s, forçado
+   * em pausa/fim; nos últimos 20s (ou no fim) grava 0. Heartbeat de sessão a
+   * cada 25s e na troca tocando/pausado.
+   */
+  private void trackWatchProgress(boolean force) {
+    if (watchSync == null || watchVideoId == null || player == null) return;
+    long now = SystemClock.elapsedRealtime();
+    int state = player.getPlaybackState();
+    boolean playing = player.isPlaying();
+
+    boolean playingChanged = playing != watchWasPlaying;
+    watchWasPlaying = playing;
+    if (playingChanged || now - watchLastHeartbeatMs >= WATCH_HEARTBEAT_MS) {
+      watchLastHeartbeatMs = now;
+      watchSync.recordSession(watchVideoId, watchProfileId, watchTitlePublicId, playing, playingChanged);
+    }
+
+    long durMs = player.getDuration();
+    // antes do READY a posição ainda não é a do resume; não sobrescreve
+    if (state == Player.STATE_IDLE || durMs == C.TIME_UNSET || durMs <= 0) return;
+    long posSec = Math.max(0L, player.getCurrentPosition() / 1000L);
+    long durSec = durMs / 1000L;
+    boolean ended = state == Player.STATE_ENDED;
+    long savePos = ended || durSec - posSec < WATCH_END_TAIL_SEC ? 0L : posSec;
+
+    boolean mustSave = force || ended || (playingChanged && !playing);
+    if (!mustSave) {
+      if (now - watchLastSavedAtMs < WATCH_SAVE_EVERY_MS) return;
+      if (watchLastSavedPos >= 0 && Math.abs(savePos - watchLastSavedPos) < WATCH_MIN_DELTA_SEC) return;
+    } else if (savePos == watchLastSavedPos) {
+      return;
+    }
+    watchLastSavedAtMs = now;
+    watchLastSavedPos = savePos;
+    watchSync.recordPosition(watchVideoId, watchProfileId, savePos, durSec, mustSave);
+  }
+
+  // thread do loader; o JS responde com updateToken e o loader segue
+  private void emitTokenExpired(int http, long version) {
+    JSObject payload = new JSObject();
+    payload.put("http", http);
+    payload.put("version", version);
+    Log.i(TAG, "tokenExpired http=" + http + " v" + version);
+    try {
+      notifyListeners("tokenExpired", payload);
+    } catch (Exception e) {
+      Log.e(TAG, "emitTokenExpired notify failed", e);
+    }
+  }
+
+  private void emitWatchSync(boolean ok, int status, int sent, int pending, long nextRetryMs) {
+    JSObject payload = new JSObject();
+    payload.put("ok", ok);
+    payload.put("status", status);
+    payload.put("sent", sent);
+    payload.put("pending", pending);
+    payload.put("nextRetryMs", nextRetryMs);
+    if (!ok) Log.i(TAG, "watchSync " + payload);
+    try {
+      notifyListeners("watchSync", payload, true);
+    } catch (Exception e) {
+      Log.e(TAG, "emitWatchSync notify failed", e);
+    }
+  }
+
+  private void emitStartup() {
+    if (startupReported || setSourceAtMs <= 0) return;
+    startupReported = true;
+    JSObject payload = new JSObject();
+    payload.put("startupMs", SystemClock.elapsedRealtime() - setSourceAtMs);
+    payload.put("colorMode", effectiveColorMode);
+    payload.put("colorDecision", colorDecision);
+    payload.put("colorProbeMs", colorProbeMs);
+    payload.put("mediaProbeMs", mediaProbeMs);
+    payload.put("reselectAvoided", colorReselectAvoided);
+    payload.put("fastStart", sourceFastStart);
+    payload.put("chunkless", sourceChunkless);
+    payload.put("startRequestedMs", startRequestedMs);
+    payload.put("startAlignedMs", startAlignedMs);
+    Log.i(TAG, "startup " + payload);
+    try {
+      notifyListeners("startup", payload, true);
+    } catch (Exception e) {
+      Log.e(TAG, "emitStartup notify failed", e);
+    }
+  }
+
   private int clampToConfiguredMax(int configured, int fallback) {
     if (configured > 0) return Math.min(configured, fallback);
     return fallback;
   }
 
+  private static int minPositive(int a, int b) {
+    if (a <= 0) return b;
+    if (b <= 0) return a;
+    return Math.min(a, b);
+  }
+
+  /**
+   * Próximo degrau do ladder que fica abaixo do teto atual e do formato que
+   * está tocando: 3840x2160@30 num stream 4K@24 (ou 1080p) não muda nada e é pulado.
+   */
   private boolean tightenConstraintsForRecovery() {
     int prevW = maxVideoWidth;
     int prevH = maxVideoHeight;
     int prevFps = maxVideoFrameRate;
 
+    Format playing = player != null ? player.getVideoFormat() : null;
+    int curW = minPositive(maxVideoWidth, playing != null ? playing.width : 0);
+    int curH = minPositive(maxVideoHeight, playing != null ? playing.height : 0);
+    int curFps = minPositive(maxVideoFrameRate,
+      playing != null && playing.frameRate > 0 ? Math.round(playing.frameRate) : 0);
+
     for (int i = Math.max(0, recoveryProfileIndex); i < RECOVERY_CONSTRAINTS.length; i++) {
       int[] profile = RECOVERY_CONSTRAINTS[i];
       int targetW = clampToConfiguredMax(configuredMaxVideoWidth, profile[0]);
@@ -498,9 +1147,9 @@ public class ExoPlayerPlugin extends Plugin {
       int targetFps = clampToConfiguredMax(configuredMaxVideoFrameRate, profile[2]);
 
       boolean canTighten =
-        (targetW > 0 && (maxVideoWidth <= 0 || targetW < maxVideoWidth)) ||
-        (targetH > 0 && (maxVideoHeight <= 0 || targetH < maxVideoHeight)) ||
-        (targetFps > 0 && (maxVideoFrameRate <= 0 || targetFps < maxVideoFrameRate));
+        (targetW > 0 && (curW <= 0 || targetW < curW)) ||
+        (targetH > 0 && (curH <= 0 || targetH < curH)) ||
+        (targetFps > 0 && (curFps <= 0 || targetFps < curFps));
 
       recoveryProfileIndex = i + 1;
       if (!canTighten) continue;
@@ -519,19 +1168,309 @@ public class ExoPlayerPlugin extends Plugin {
     return maxVideoWidth != prevW || maxVideoHeight != prevH || maxVideoFrameRate != prevFps;
   }
 
+  /**
+   * Volta um degrau do ladder (inverso de tightenConstraintsForRecovery),
+   * nunca acima do piso: o perfil que o codec já recusou não volta.
+   */
+  private boolean relaxConstraints() {
+    while (recoveryProfileIndex > recoveryFloorIndex) {
+      recoveryProfileIndex--;
+      int prevW = maxVideoWidth;
+      int prevH = maxVideoHeight;
+      int prevFps = maxVideoFrameRate;
+      if (recoveryProfileIndex == 0) {
+        maxVideoWidth = configuredMaxVideoWidth;
+        maxVideoHeight = configuredMaxVideoHeight;
+        maxVideoFrameRate = configuredMaxVideoFrameRate;
+      } else {
+        int[] profile = RECOVERY_CONSTRAINTS[recoveryProfileIndex - 1];
+        maxVideoWidth = clampToConfiguredMax(configuredMaxVideoWidth, profile[0]);
+        maxVideoHeight = clampToConfiguredMax(configuredMaxVideoHeight, profile[1]);
+        maxVideoFrameRate = clampToConfiguredMax(configuredMaxVideoFrameRate, profile[2]);
+      }
+      if (maxVideoWidth != prevW || maxVideoHeight != prevH || maxVideoFrameRate != prevFps) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Watchdog: desce/sobe o ladder só por track selection (sem re-prepare)
+   * quando o device não acompanha, antes do codec estourar.
+   */
+  private void checkDecoderHealth() {
+    if (!watchdogEnabled || player == null || trackSelector == null) return;
+    long now = SystemClock.elapsedRealtime();
+    int decision = decoderWatchdog.sample(
+      player.getVideoDecoderCounters(),
+      player.isPlaying(),
+      now,
+      recoveryProfileIndex > recoveryFloorIndex
+    );
+    if (decision == DecoderWatchdog.NONE) return;
+
+    boolean changed = decision == DecoderWatchdog.STEP_DOWN ? tightenConstraintsForRecovery() : relaxConstraints();
+    // sem degrau que mude o teto: nada a aplicar nem a avisar
+    if (!changed) return;
+    if (decision == DecoderWatchdog.STEP_DOWN) TvLog.beginSpan(TvLog.SPAN_RECOVERY);
+    try {
+      DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+      applyVideoConstraints(builder);
+      trackSelector.setParameters(builder);
+    } catch (Exception ignored) {}
+
+    String action = decision == DecoderWatchdog.STEP_DOWN ? "down" : "up";
+    TvLog.w(decision == DecoderWatchdog.STEP_DOWN ? "decoder watchdog down max" : "decoder watchdog up max",
+      maxVideoWidth, maxVideoHeight);
+
+    JSObject payload = new JSObject();
+    payload.put("action", action);
+    payload.put("applied", true);
+    payload.put("dropRatio", decoderWatchdog.getDropRatio());
+    payload.put("avgOffsetMs", decoderWatchdog.getAvgOffsetUs() / 1000d);
+    payload.put("profile", recoveryProfileIndex);
+    payload.put("maxWidth", maxVideoWidth);
+    payload.put("maxHeight", maxVideoHeight);
+    payload.put("maxFps", maxVideoFrameRate);
+    try {
+      notifyListeners("decoderHealth", payload, true);
+    } catch (Exception e) {
+      Log.e(TAG, "decoderHealth notify failed", e);
+    }
+  }
+
+  /** Tick: pausa longa apara buffers e depois solta decoder/surface (IdlePolicy). */
+  private void checkIdle() {
+    if (player == null) return;
+    boolean paused = idleSnapshot != null || (!player.getPlayWhenReady()
+      && player.getPlaybackState() == Player.STATE_READY && commands.is(PlayerCommands.READY));
+    long now = SystemClock.elapsedRealtime();
+    int action = idlePolicy.sample(paused, now);
+    if (action == IdlePolicy.NONE) return;
+    if (action == IdlePolicy.TRIM) {
+      applyLoadMemoryStep();
+      prefetcher.cancelAll();
+      TvLog.i("idle trim", idlePolicy.idleMs(now));
+      emitIdle("trimmed");
+    } else if (action == IdlePolicy.RESUME) {
+      applyLoadMemoryStep();
+    } else if (action == IdlePolicy.RELEASE) {
+      releaseForIdle();
+    }
+  }
+
+  private void releaseForIdle() {
+    IdlePolicy.Snapshot snap = new IdlePolicy.Snapshot(Math.max(0L, player.getCurrentPosition()));
+    snap.captureTracks(player.getCurrentTracks());
+    // sob pressão de memória não vale guardar bitmap
+    if (memoryStep < 2) snap.frame = captureFrame();
+    showIdlePlaceholder(snap.frame);
+    idleSnapshot = snap;
+    prefetcher.cancelAll();
+    // stop desabilita os renderers (codec liberado) e descarta o buffer; a fonte fica
+    player.stop();
+    try {
+      if (textureView != null) player.clearVideoTextureView(textureView);
+    } catch (Exception ignored) {}
+    commands.moveTo(PlayerCommands.IDLE);
+    TvLog.i("idle release", snap.positionMs, snap.frame != null ? 1 : 0);
+    emitIdle("released");
+    emitState();
+  }
+
+  /** Play depois do release: mesma fonte, posição e idiomas do snapshot. */
+  private void resumeFromIdle() {
+    IdlePolicy.Snapshot snap = idleSnapshot;
+    idleSnapshot = null;
+    idlePolicy.reset();
+    applyLoadMemoryStep();
+    TvLog.beginSpan(TvLog.SPAN_IDLE_RESUME);
+    if (trackSelector != null) {
+      try {
+        DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+        applyVideoConstraints(builder);
+        snap.applyTracks(builder);
+        trackSelector.setParameters(builder);
+      } catch (Exception ignored) {}
+    }
+    if (textureView != null) attachTextureView(textureView);
+    decoderWatchdog.reset(SystemClock.elapsedRealtime());
+    commands.moveTo(PlayerCommands.PREPARING);
+    player.seekTo(snap.positionMs);
+    player.prepare();
+    player.play();
+    TvLog.i("idle resume", snap.positionMs);
+    emitIdle("resumed");
+  }
+
+  /** Último frame como está na tela (as escalas do TextureView são copiadas no placeholder). */
+  @Nullable
+  private Bitmap captureFrame() {
+    if (textureView == null || !textureView.isAvailable() || textureView.getVisibility() != View.VISIBLE) return null;
+    int w = textureView.getWidth();
+    int h = textureView.getHeight();
+    if (w <= 0 || h <= 0) return null;
+    // meia resolução basta para um placeholder de poucos segundos
+    float k = Math.min(1f, 960f / w);
+    try {
+      return textureView.getBitmap(Math.max(1, Math.round(w * k)), Math.max(1, Math.round(h * k)));
+    } catch (Exception e) {
+      TvLog.w("idle frame capture failed", String.valueOf(e.getMessage()));
+      return null;
+    }
+  }
+
+  private void showIdlePlaceholder(@Nullable Bitmap frame) {
+    if (frame == null || textureView == null || parentRef == null) return;
+    try {
+      if (idlePlaceholder == null) {
+        idlePlaceholder = new ImageView(getContext());
+        idlePlaceholder.setScaleType(ImageView.ScaleType.FIT_XY);
+        // logo acima do TextureView, ainda atrás do WebView
+        int at = Math.max(0, parentRef.indexOfChild(textureView) + 1);
+        ViewGroup.LayoutParams tlp = textureView.getLayoutParams();
+        ViewGroup.LayoutParams lp = tlp instanceof ViewGroup.MarginLayoutParams
+          ? new ViewGroup.MarginLayoutParams((ViewGroup.MarginLayoutParams) tlp)
+          : new ViewGroup.LayoutParams(tlp);
+        parentRef.addView(idlePlaceholder, at, lp);
+      }
+      idlePlaceholder.setPivotX(textureView.getPivotX());
+      idlePlaceholder.setPivotY(textureView.getPivotY());
+      idlePlaceholder.setScaleX(textureView.getScaleX());
+      idlePlaceholder.setScaleY(textureView.getScaleY());
+      idlePlaceholder.setTranslationX(textureView.getTranslationX());
+      idlePlaceholder.setTranslationY(textureView.getTranslationY());
+      idlePlaceholder.setImageBitmap(frame);
+      idlePlaceholder.setVisibility(visibleWanted ? View.VISIBLE : View.GONE);
+    } catch (Exception e) {
+      TvLog.e("idle placeholder failed", e);
+    }
+  }
+
+  private void hideIdlePlaceholder() {
+    if (idlePlaceholder == null || idlePlaceholder.getDrawable() == null) return;
+    idlePlaceholder.setImageDrawable(null);
+    idlePlaceholder.setVisibility(View.GONE);
+  }
+
+  /** Fonte trocada/destruída enquanto solto: o snapshot não vale mais. */
+  private void discardIdleSnapshot() {
+    idleSnapshot = null;
+    idlePolicy.reset();
+    hideIdlePlaceholder();
+    applyLoadMemoryStep();
+  }
+
+  private void emitIdle(String step) {
+    JSObject payload = new JSObject();
+    payload.put("step", step);
+    IdlePolicy.Snapshot snap = idleSnapshot;
+    payload.put("positionSec", (snap != null ? snap.positionMs : player != null ? player.getCurrentPosition() : 0L) / 1000d);
+    payload.put("frame", snap != null && snap.frame != null);
+    try {
+      notifyListeners("idle", payload, true);
+    } catch (Exception e) {
+      Log.e(TAG, "idle notify failed", e);
+    }
+  }
+
+  /**
+   * Aquecimento: o degrau do ThermalMonitor aperta os limites atuais (config
+   * + ladder de recuperação) só por track selection, sem re-prepare; esfriou,
+   * o degrau cai e os limites voltam sozinhos. O evento "thermal" sai sempre
+   * que o status muda, para cruzar com os tickets de suporte.
+   */
+  private void onThermal(boolean stepChanged) {
+    boolean applied = false;
+    if (stepChanged && thermalScaling && trackSelector != null) {
+      try {
+        DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+        applyVideoConstraints(builder);
+        trackSelector.setParameters(builder);
+        applied = true;
+      } catch (Exception ignored) {}
+    }
+    int step = thermalScaling ? thermal.step() : 0;
+    JSObject payload = new JSObject();
+    payload.put("status", ThermalMonitor.statusName(thermal.status()));
+    payload.put("headroom", Float.isNaN(thermal.headroom()) ? null : (double) thermal.headroom());
+    payload.put("step", step);
+    payload.put("applied", applied);
+    payload.put("maxWidth", effectiveMax(maxVideoWidth, step, 0));
+    payload.put("maxHeight", effectiveMax(maxVideoHeight, step, 1));
+    payload.put("maxFps", effectiveMax(maxVideoFrameRate, step, 2));
+    if (player != null) payload.put("droppedFrames", frameRateMatcher.getDroppedTotal());
+    try {
+      notifyListeners("thermal", payload, true);
+    } catch (Exception e) {
+      Log.e(TAG, "thermal notify failed", e);
+    }
+  }
+
+  /** Limite atual (0 = sem limite) combinado com o teto térmico do degrau. */
+  private static int effectiveMax(int current, int thermalStep, int dim) {
+    if (thermalStep <= 0) return current;
+    int cap = THERMAL_CONSTRAINTS[Math.min(thermalStep, THERMAL_CONSTRAINTS.length) - 1][dim];
+    return current > 0 ? Math.min(current, cap) : cap;
+  }
+
   private void applyVideoConstraints(DefaultTrackSelector.Parameters.Builder builder) {
-    int w = maxVideoWidth > 0 ? maxVideoWidth : Integer.MAX_VALUE;
-    int h = maxVideoHeight > 0 ? maxVideoHeight : Integer.MAX_VALUE;
-    if (maxVideoWidth > 0 || maxVideoHeight > 0) {
+    int step = thermalScaling ? thermal.step() : 0;
+    int maxW = effectiveMax(maxVideoWidth, step, 0);
+    int maxH = effectiveMax(maxVideoHeight, step, 1);
+    int maxFps = effectiveMax(maxVideoFrameRate, step, 2);
+    int w = maxW > 0 ? maxW : Integer.MAX_VALUE;
+    int h = maxH > 0 ? maxH : Integer.MAX_VALUE;
+    if (maxW > 0 || maxH > 0) {
       builder.setMaxVideoSize(w, h);
+    } else {
+      builder.clearVideoSizeConstraints();
     }
-    if (maxVideoFrameRate > 0) {
-      builder.setMaxVideoFrameRate((int) Math.round(maxVideoFrameRate));
+    if (maxFps > 0) {
+      builder.setMaxVideoFrameRate(maxFps);
+    } else {
+      builder.setMaxVideoFrameRate(Integer.MAX_VALUE);
+    }
+    if (capToViewport && viewportW > 0 && viewportH > 0) {
+      builder.setViewportSize(viewportW, viewportH, false);
+    } else {
+      builder.clearViewportSizeConstraints();
     }
     builder.setExceedVideoConstraintsIfNecessary(false);
     builder.setExceedRendererCapabilitiesIfNecessary(false);
   }
 
+  /**
+   * Tamanho do TextureView em pixels do painel. Em TVs 4K a UI costuma rodar
+   * em 1080p, então escala pelo modo físico do display para não travar em 1080p
+   * quando o vídeo ocupa a tela toda.
+   */
+  private void updateViewportConstraints(int w, int h) {
+    if (w <= 0 || h <= 0) return;
+    int vw = w;
+    int vh = h;
+    try {
+      if (getActivity() != null && getActivity().getWindow() != null) {
+        View decor = getActivity().getWindow().getDecorView();
+        Point display = Util.getCurrentDisplayModeSize(getContext());
+        if (decor != null && decor.getWidth() > 0 && decor.getHeight() > 0 && display.x > 0 && display.y > 0) {
+          vw = Math.round(w * (display.x / (float) decor.getWidth()));
+          vh = Math.round(h * (display.y / (float) decor.getHeight()));
+        }
+      }
+    } catch (Exception ignored) {}
+
+    if (vw == viewportW && vh == viewportH) return;
+    viewportW = vw;
+    viewportH = vh;
+    if (!capToViewport || trackSelector == null) return;
+    try {
+      DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+      applyVideoConstraints(builder);
+      trackSelector.setParameters(builder);
+      Log.i(TAG, "viewport cap -> " + viewportW + "x" + viewportH);
+    } catch (Exception ignored) {}
+  }
+
   private int[] getVisibleInsets(int vh) {
     int top = 0;
     int bottom = 0;
@@ -597,11 +1536,12 @@ public class ExoPlayerPlugin extends Plugin {
       viewW = w;
       viewH = h;
       applyTextureTransform();
+      updateViewportConstraints(w, h);
 
-      Log.w("Capacitor/ExoPlayerPlugin", "syncTexture parent w=" + w + " h=" + h +
-        " left=" + left + " top=" + top);
+      // roda a cada layout do WebView: nada de concatenação aqui
+      TvLog.d("syncTexture", w, h);
     } catch (Exception e) {
-      Log.w(TAG, "syncTextureToParent failed", e);
+      TvLog.e("syncTextureToParent failed", e);
     }
   }
 
@@ -643,6 +1583,12 @@ public class ExoPlayerPlugin extends Plugin {
       @Override
       public void run() {
         emitState();
+        emitMetrics();
+        checkDecoderHealth();
+        checkIdle();
+        thermal.poll(SystemClock.elapsedRealtime());
+        trackWatchProgress(false);
+        if (cdnRouter != null) cdnRouter.maybeSave();
         if (timeHandler != null) timeHandler.postDelayed(this, 1000);
       }
     };
@@ -659,11 +1605,19 @@ public class ExoPlayerPlugin extends Plugin {
 
   private void emitState() {
     if (player == null) return;
-    long posMs = player.getCurrentPosition();
+    // solto pelo IdlePolicy: para a UI continua pausado e pronto na posição do snapshot
+    IdlePolicy.Snapshot idle = idleSnapshot;
+    long posMs = idle != null ? idle.positionMs : player.getCurrentPosition();
     long durMs = player.getDuration();
-    long bufMs = player.getBufferedPosition();
+    long bufMs = idle != null ? posMs : player.getBufferedPosition();
     boolean isPlaying = player.isPlaying();
-    int state = player.getPlaybackState();
+    int state = idle != null ? Player.STATE_READY : player.getPlaybackState();
+
+    // "s,posMs,durMs,bufMs,playing,state"
+    fastMsg.setLength(0);
+    fastMsg.append("s,").append(posMs).append(',').append(durMs > 0 ? durMs : 0).append(',')
+      .append(bufMs > 0 ? bufMs : 0).append(',').append(isPlaying ? 1 : 0).append(',').append(state);
+    if (FastChannel.get().send(fastMsg.toString())) return;
 
     JSObject payload = new JSObject();
     payload.put("positionSec", posMs / 1000d);
@@ -679,13 +1633,251 @@ public class ExoPlayerPlugin extends Plugin {
     }
   }
 
-  private void emitError(PlaybackException error) {
+  /** Métricas de 1 Hz: "m,bwEstimateBps,videoBitrate,droppedFrames,bufferAheadMs". */
+  private void emitMetrics() {
+    if (player == null) return;
+    boolean fast = FastChannel.get().isOpen();
+    if (!fast && !hasListeners("metrics")) return;
+    long bw = 0L;
+    try {
+      bw = DefaultBandwidthMeter.getSingletonInstance(getContext()).getBitrateEstimate();
+    } catch (Exception ignored) {}
+    Format vf = player.getVideoFormat();
+    int videoBitrate = vf != null && vf.bitrate != Format.NO_VALUE ? vf.bitrate : 0;
+    long dropped = frameRateMatcher.getDroppedTotal();
+    long ahead = Math.max(0L, player.getBufferedPosition() - player.getCurrentPosition());
+
+    if (fast) {
+      fastMsg.setLength(0);
+      fastMsg.append("m,").append(bw).append(',').append(videoBitrate).append(',').append(dropped).append(',')
+        .append(ahead);
+      if (FastChannel.get().send(fastMsg.toString())) return;
+    }
     JSObject payload = new JSObject();
-    String codeName = error != null ? error.getErrorCodeName() : "";
-    String msg = error != null && error.getMessage() != null ? error.getMessage() : codeName;
-    payload.put("message", msg != null && !msg.isEmpty() ? msg : "player_error");
-    payload.put("code", error != null ? error.errorCode : 0);
-    payload.put("codeName", codeName);
+    payload.put("bandwidthBps", bw);
+    payload.put("videoBitrate", videoBitrate);
+    payload.put("droppedFrames", dropped);
+    payload.put("bufferAheadMs", ahead);
+    try {
+      notifyListeners("metrics", payload);
+    } catch (Exception ignored) {}
+  }
+
+  /** Painel de stats para o suporte; sem "visible" alterna. */
+  @PluginMethod
+  public void setStatsOverlay(PluginCall call) {
+    final Boolean visible = call.getBoolean("visible");
+    runOnUiThread(() -> {
+      boolean shown = showStatsOverlay(visible != null ? visible : !isStatsOverlayShowing());
+      JSObject res = new JSObject();
+      res.put("visible", shown);
+      call.resolve(res);
+    });
+  }
+
+  /** Combinação no controle remoto (MainActivity). Main thread. */
+  void toggleStatsOverlay() {
+    boolean shown = showStatsOverlay(!isStatsOverlayShowing());
+    JSObject payload = new JSObject();
+    payload.put("visible", shown);
+    notifyListeners("statsOverlay", payload);
+  }
+
+  private boolean isStatsOverlayShowing() {
+    return statsOverlay != null && statsOverlay.isShowing();
+  }
+
+  private boolean showStatsOverlay(boolean visible) {
+    if (visible && statsOverlay == null) {
+      ViewGroup parent = parentRef;
+      if (parent == null && getActivity() != null) {
+        View decor = getActivity().getWindow().getDecorView();
+        if (decor instanceof ViewGroup) parent = (ViewGroup) decor;
+      }
+      if (parent == null) return false;
+      statsOverlay = new StatsOverlayView(getContext());
+      statsOverlay.setSource(statsSource);
+      parent.addView(statsOverlay, new ViewGroup.LayoutParams(
+        ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+    }
+    if (statsOverlay == null) return false;
+    statsOverlay.bringToFront();
+    statsOverlay.show(visible);
+    return visible;
+  }
+
+  private void removeStatsOverlay() {
+    if (statsOverlay == null) return;
+    statsOverlay.show(false);
+    ViewGroup parent = (ViewGroup) statsOverlay.getParent();
+    if (parent != null) parent.removeView(statsOverlay);
+    statsOverlay = null;
+  }
+
+  // só append de primitivos/Strings já existentes: o painel não aloca por atualização
+  private void fillStats(StringBuilder sb) {
+    if (player == null) {
+      sb.append("player: -");
+      return;
+    }
+    Format vf = player.getVideoFormat();
+    sb.append("video   ");
+    if (vf != null) {
+      sb.append(vf.width).append('x').append(vf.height);
+      if (vf.frameRate > 0) {
+        sb.append(" @");
+        appendFixed(sb, vf.frameRate, 3);
+      }
+      sb.append(' ').append(vf.codecs != null ? vf.codecs : vf.sampleMimeType);
+      if (isHdrFormat(vf)) sb.append(" HDR");
+    } else {
+      sb.append('-');
+    }
+    Format af = player.getAudioFormat();
+    sb.append("\naudio   ");
+    if (af != null) {
+      sb.append(af.codecs != null ? af.codecs : af.sampleMimeType).append(' ').append(af.channelCount).append("ch");
+    } else {
+      sb.append('-');
+    }
+    long bw = 0L;
+    try {
+      bw = DefaultBandwidthMeter.getSingletonInstance(getContext()).getBitrateEstimate();
+    } catch (Exception ignored) {}
+    sb.append("\nbitrate ").append(vf != null && vf.bitrate != Format.NO_VALUE ? vf.bitrate / 1000 : 0)
+      .append(" kbps   bw ").append(bw / 1000).append(" kbps");
+    long ahead = Math.max(0L, player.getBufferedPosition() - player.getCurrentPosition());
+    sb.append("\nbuffer  ").append(ahead).append(" ms   state ").append(player.getPlaybackState())
+      .append(player.isPlaying() ? " playing" : " paused");
+    sb.append("\ndropped ").append(frameRateMatcher.getDroppedTotal());
+    sb.append("\ndecoder ").append(videoDecoderName).append(" / ").append(audioDecoderName);
+    Display display = statsOverlay != null ? statsOverlay.getDisplay() : null;
+    sb.append("\ndisplay ");
+    if (display != null) appendFixed(sb, display.getRefreshRate(), 2);
+    sb.append(" Hz   match ").append(frameRateMatcher.getMode()).append("   color ").append(colorDecision);
+  }
+
+  private static void appendFixed(StringBuilder sb, float v, int decimals) {
+    int scale = 1;
+    for (int i = 0; i < decimals; i++) scale *= 10;
+    long fixed = Math.round((double) v * scale);
+    sb.append(fixed / scale).append('.');
+    long frac = Math.abs(fixed % scale);
+    for (int div = scale / 10; div > 1 && frac < div; div /= 10) sb.append('0');
+    sb.append(frac);
+  }
+
+  /**
+   * Range GET pequeno contra o gateway (tela de detalhes, antes do play).
+   * O resultado vira a estimativa de banda da primeira seleção do ABR e
+   * alimenta o ranking do CdnRouter para o host medido.
+   */
+  @PluginMethod
+  public void probeNetwork(PluginCall call) {
+    String url = call.getString("url", "");
+    int bytes = call.getInt("bytes", 0);
+    int timeoutMs = call.getInt("timeoutMs", 0);
+    if (url == null || !url.startsWith("http")) {
+      call.reject("invalid_args");
+      return;
+    }
+    probeIo.execute(() -> {
+      Uri origin = Uri.parse(url);
+      try {
+        NetworkProbe probe = NetworkProbe.run(url, bytes, timeoutMs);
+        long meterBps = DefaultBandwidthMeter.getSingletonInstance(getContext()).getBitrateEstimate();
+        // amostra curta demais (arquivo pequeno / cache local) não decide a qualidade
+        boolean usable = probe.bytes >= NetworkProbe.MIN_BYTES / 2 && probe.transferMs >= 20;
+        if (usable) abrPolicy.setProbeEstimate(probe.throughputBps, meterBps);
+        if (cdnRouter != null) {
+          cdnRouter.onOpen(origin, probe.ttfbMs);
+          cdnRouter.onTransfer(origin, probe.bytes, probe.transferMs);
+        }
+        TvLog.i("probeNetwork ttfb/kbps", probe.ttfbMs, probe.throughputBps / 1000L);
+        JSObject res = new JSObject();
+        res.put("ok", true);
+        res.put("ttfbMs", probe.ttfbMs);
+        res.put("throughputBps", probe.throughputBps);
+        res.put("bytes", probe.bytes);
+        res.put("durationMs", probe.transferMs);
+        res.put("http", probe.httpCode);
+        res.put("applied", usable);
+        res.put("previousEstimateBps", meterBps);
+        call.resolve(res);
+      } catch (Exception e) {
+        // só falha de transporte pesa no ranking: status HTTP (probe não
+        // provisionado, 401) diz respeito ao objeto, não ao host
+        if (cdnRouter != null && isTransportFailure(e)) cdnRouter.onError(origin);
+        TvLog.w("probeNetwork failed", String.valueOf(e.getMessage()));
+        call.reject("probe_failed", e);
+      }
+    });
+  }
+
+  private static boolean isTransportFailure(Exception e) {
+    return e instanceof SocketTimeoutException
+      || e instanceof SocketException
+      || e instanceof UnknownHostException;
+  }
+
+  /** Snapshot sob demanda: as métricas do tick + stats por origem (CDN). */
+  @PluginMethod
+  public void getMetrics(PluginCall call) {
+    runOnUiThread(() -> {
+      JSObject res = new JSObject();
+      long bw = 0L;
+      try {
+        bw = DefaultBandwidthMeter.getSingletonInstance(getContext()).getBitrateEstimate();
+      } catch (Exception ignored) {}
+      res.put("bandwidthBps", bw);
+      res.put("probeBps", abrPolicy.probeEstimate(bw));
+      if (player != null) {
+        Format vf = player.getVideoFormat();
+        res.put("videoBitrate", vf != null && vf.bitrate != Format.NO_VALUE ? vf.bitrate : 0);
+        res.put("bufferAheadMs", Math.max(0L, player.getBufferedPosition() - player.getCurrentPosition()));
+      }
+      res.put("droppedFrames", frameRateMatcher.getDroppedTotal());
+      res.put("playerState", commands.stateName());
+      res.put("coalescedCommands", commands.coalescedCount());
+      res.put("prefetch", prefetcher.describe());
+      res.put("thermalStatus", ThermalMonitor.statusName(thermal.status()));
+      res.put("thermalStep", thermalScaling ? thermal.step() : 0);
+      res.put("idleStep", idlePolicy.step());
+      res.put("hosts", cdnRouter != null ? cdnRouter.describe() : new JSArray());
+      call.resolve(res);
+    });
+  }
+
+  /** Últimas linhas do ring buffer nativo (TvLog). */
+  @PluginMethod
+  public void getLogs(PluginCall call) {
+    JSObject res = new JSObject();
+    res.put("lines", TvLog.dump(call.getInt("max", 200)));
+    call.resolve(res);
+  }
+
+  /** Grava o buffer inteiro em cache/logs para anexar no bug report. */
+  @PluginMethod
+  public void exportLogs(PluginCall call) {
+    io.execute(() -> {
+      try {
+        File out = TvLog.export(new File(getContext().getCacheDir(), "logs"));
+        JSObject res = new JSObject();
+        res.put("path", out.getAbsolutePath());
+        call.resolve(res);
+      } catch (Exception e) {
+        call.reject("export_failed", e);
+      }
+    });
+  }
+
+  private void emitError(PlaybackException error) {
+    JSObject payload = new JSObject();
+    String codeName = error != null ? error.getErrorCodeName() : "";
+    String msg = error != null && error.getMessage() != null ? error.getMessage() : codeName;
+    payload.put("message", msg != null && !msg.isEmpty() ? msg : "player_error");
+    payload.put("code", error != null ? error.errorCode : 0);
+    payload.put("codeName", codeName);
 
     int http = 0;
     Throwable cause = error != null ? error.getCause() : null;
@@ -702,72 +1894,14 @@ public class ExoPlayerPlugin extends Plugin {
   }
 
   private void emitTracks(@Nullable Tracks tracks) {
-    audioRefs.clear();
-    textRefs.clear();
-
-    int selectedAudio = -1;
-    int selectedText = -1;
-
-    JSArray audioArr = new JSArray();
-    JSArray textArr = new JSArray();
-
-    if (tracks != null) {
-      for (int gi = 0; gi < tracks.getGroups().size(); gi++) {
-        Tracks.Group group = tracks.getGroups().get(gi);
-        int type = group.getType();
-
-        for (int ti = 0; ti < group.length; ti++) {
-          Format fmt = group.getTrackFormat(ti);
-          String lang = fmt.language == null ? "" : fmt.language;
-          String label = fmt.label != null ? fmt.label : (lang.isEmpty() ? "" : lang.toUpperCase());
-
-          if (type == C.TRACK_TYPE_AUDIO) {
-            TrackRef ref = new TrackRef();
-            ref.group = group;
-            ref.trackIndex = ti;
-            ref.label = label;
-            ref.lang = lang;
-            int idx = audioRefs.size();
-            audioRefs.add(ref);
-
-            JSObject o = new JSObject();
-            o.put("name", label.isEmpty() ? ("Faixa " + (idx + 1)) : label);
-            o.put("lang", lang);
-            audioArr.put(o);
-
-            if (group.isTrackSelected(ti)) selectedAudio = idx;
-          }
-
-          if (type == C.TRACK_TYPE_TEXT) {
-            TrackRef ref = new TrackRef();
-            ref.group = group;
-            ref.trackIndex = ti;
-            ref.label = label;
-            ref.lang = lang;
-            int idx = textRefs.size();
-            textRefs.add(ref);
-
-            JSObject o = new JSObject();
-            o.put("idx", idx);
-            o.put("label", label.isEmpty() ? ("Legenda " + (idx + 1)) : label);
-            o.put("language", lang);
-            o.put("kind", "subtitles");
-            o.put("mode", group.isTrackSelected(ti) ? "showing" : "disabled");
-            textArr.put(o);
-
-            if (group.isTrackSelected(ti)) selectedText = idx;
-          }
-        }
-      }
-    }
-
-    JSObject payload = new JSObject();
-    payload.put("audio", audioArr);
-    payload.put("text", textArr);
-    payload.put("selectedAudio", selectedAudio);
-    payload.put("selectedText", selectedText);
+    int changed = trackRegistry.sync(tracks);
+    if (changed == TrackRegistry.CHANGED_NONE) return;
     try {
-      notifyListeners("tracks", payload, true);
+      if (changed == TrackRegistry.CHANGED_STRUCTURE) {
+        notifyListeners("tracks", trackRegistry.buildFull(), true);
+      } else {
+        notifyListeners("trackSelection", trackRegistry.buildSelection(), true);
+      }
     } catch (Exception e) {
       Log.e(TAG, "emitTracks notify failed", e);
     }
@@ -775,64 +1909,121 @@ public class ExoPlayerPlugin extends Plugin {
 
   @PluginMethod
   public void init(PluginCall call) {
-    boolean transparent = call.getBoolean("transparent", true);
-    preferSdr = call.getBoolean("preferSdr", true);
-    preferSdrApplied = false;
-    configuredMaxVideoWidth = call.getInt("maxVideoWidth", 0);
-    configuredMaxVideoHeight = call.getInt("maxVideoHeight", 0);
-    double fps = call.getDouble("maxVideoFps", 0d);
-    configuredMaxVideoFrameRate = (int) Math.round(fps > 0 ? fps : 0);
-    maxVideoWidth = configuredMaxVideoWidth;
-    maxVideoHeight = configuredMaxVideoHeight;
-    maxVideoFrameRate = configuredMaxVideoFrameRate;
-    recoveryProfileIndex = 0;
-    waitingFirstFrame = false;
-    runOnUiThread(() -> {
-      Log.w("Capacitor/ExoPlayerPlugin", "CineSuperExo build=2026-02-08T02:40Z");
-      Log.e(TAG, "init (BUILD=2026-02-08T02:40Z)");
-      Log.i(TAG, "constraints max=" + maxVideoWidth + "x" + maxVideoHeight + " fps=" + maxVideoFrameRate);
+    commands.submit(PlayerCommands.CMD_OTHER, initCommand(call.getData()));
+    call.resolve();
+  }
+
+  // configuração e player na mesma thread dos callbacks: nada de campo escrito pelo bridge
+  private Runnable initCommand(JSObject args) {
+    return () -> {
+      boolean transparent = args.getBoolean("transparent", true);
+      preferSdr = args.getBoolean("preferSdr", true);
+      preferSdrApplied = false;
+      colorMode = normalizeColorMode(args.getString("colorMode"), preferSdr ? "sdr" : "auto");
+      effectiveColorMode = colorMode;
+      configuredMaxVideoWidth = args.getInteger("maxVideoWidth", 0);
+      configuredMaxVideoHeight = args.getInteger("maxVideoHeight", 0);
+      double fps = args.optDouble("maxVideoFps", 0d);
+      configuredMaxVideoFrameRate = (int) Math.round(fps > 0 ? fps : 0);
+      maxVideoWidth = configuredMaxVideoWidth;
+      maxVideoHeight = configuredMaxVideoHeight;
+      maxVideoFrameRate = configuredMaxVideoFrameRate;
+      recoveryProfileIndex = 0;
+      recoveryFloorIndex = 0;
+      waitingFirstFrame = false;
+      capToViewport = args.getBoolean("capToViewport", true);
+      boolean passthrough = args.getBoolean("audioPassthrough", false);
+      if (player != null && passthrough != audioPassthrough) {
+        Log.w(TAG, "audioPassthrough changed; applies to the next player instance");
+      }
+      audioPassthrough = passthrough;
+      audioOffload = args.getBoolean("audioOffload", false);
+      frameRateMatcher.setMode(args.getString("frameRateMatching", "off"));
+      watchdogEnabled = args.getBoolean("decoderWatchdog", true);
+      thermalScaling = args.getBoolean("thermalScaling", true);
+      if (args.has("idleReleaseMs")) idlePolicy.configure(args.getInteger("idleReleaseMs", 0));
+      TvLog.setLogcatLevel(args.getString("logLevel"));
+      fastStart = args.getBoolean("fastStart", false);
+      loadErrorPolicy.configure(
+        args.getInteger("loadRetryBaseMs", 0),
+        args.getInteger("loadRetryMaxMs", 0),
+        args.getInteger("loadRetryCount", 0)
+      );
+      tokenWaitMs = args.getInteger("tokenWaitMs", 0);
+      playbackToken.setWaitMs(tokenWaitMs);
+      if (cdnRouter != null) cdnRouter.setFirstByteTimeoutMs(args.getInteger("cdnFirstByteTimeoutMs", 0));
+      prefetcher.configure(
+        args.getInteger("prefetchSegments", SegmentPrefetcher.DEFAULT_AHEAD),
+        args.getInteger("prefetchConcurrency", SegmentPrefetcher.DEFAULT_CONCURRENCY)
+      );
+      abrPolicy.configure(
+        (float) (double) args.optDouble("abrBandwidthFraction", 0d),
+        args.getInteger("abrMinBufferForUpSwitchMs", 0),
+        args.getInteger("abrMaxBufferForDownSwitchMs", 0)
+      );
+      TvLog.i("init", "build=2026-02-08T02:40Z");
+      TvLog.d("constraints max", maxVideoWidth, maxVideoHeight);
+      TvLog.d("constraints fps viewportCap", maxVideoFrameRate, capToViewport ? 1 : 0);
+      TvLog.d("colorMode", colorMode);
+      TvLog.d("frameRateMatching", frameRateMatcher.getMode());
+      TvLog.d("fastStart", fastStart ? 1 : 0);
+      TvLog.d("abr", abrPolicy.describe());
+      TvLog.d("loadRetry", loadErrorPolicy.describe());
       ensurePlayer();
       ensureView();
       setWebViewTransparent(transparent);
-    });
-    call.resolve();
+    };
   }
 
   @PluginMethod
   public void setVisible(PluginCall call) {
-    boolean visible = call.getBoolean("visible", true);
-    runOnUiThread(() -> {
+    commands.submit(PlayerCommands.CMD_OTHER, visibleCommand(call.getData()));
+    call.resolve();
+  }
+
+  private Runnable visibleCommand(JSObject args) {
+    boolean visible = args.getBoolean("visible", true);
+    return () -> {
       Log.i(TAG, "setVisible: " + visible);
       visibleWanted = visible;
       applyVisibility();
-    });
-    call.resolve();
+    };
   }
 
   @PluginMethod
   public void setSource(PluginCall call) {
-    if (player == null) ensurePlayer();
-    if (player == null) {
-      call.reject("player_not_ready");
+    Runnable command;
+    try {
+      command = sourceCommand(call.getData());
+    } catch (IllegalArgumentException e) {
+      call.reject(e.getMessage());
       return;
     }
+    commands.submit(PlayerCommands.CMD_SOURCE, command);
+    call.resolve();
+  }
 
-    preferSdrApplied = false;
-    maxVideoWidth = configuredMaxVideoWidth;
-    maxVideoHeight = configuredMaxVideoHeight;
-    maxVideoFrameRate = configuredMaxVideoFrameRate;
-    recoveryProfileIndex = 0;
-    waitingFirstFrame = true;
-    runOnUiThread(this::applyVisibility);
+  /** Valida/monta o MediaItem na thread do bridge; IllegalArgumentException = args inválidos. */
+  private Runnable sourceCommand(JSObject args) {
+    // o contexto de progresso acompanha a fonte; intro/trailer vêm sem "watch"
+    final JSObject watch = args.getJSObject("watch");
 
-    String rawUrl = call.getString("url", "");
+    String rawUrl = args.getString("url", "");
     String url = normalizeUrl(rawUrl);
-    double startPos = call.getDouble("startPositionSec", 0d);
-    JSArray subs = call.getArray("subtitles");
+    double startPos = args.optDouble("startPositionSec", 0d);
+    JSONArray subs = args.optJSONArray("subtitles");
+    // origens alternativas do mesmo gateway, em ordem de preferência
+    final List<String> cdnBases = new ArrayList<>();
+    JSONArray cdnRaw = args.optJSONArray("cdnBaseUrls");
+    if (cdnRaw != null) {
+      for (int i = 0; i < cdnRaw.length(); i++) {
+        String b = cdnRaw.optString(i, "");
+        if (b != null && !b.trim().isEmpty()) cdnBases.add(b.trim());
+      }
+    }
 
     if (url == null || url.trim().isEmpty()) {
-      call.reject("missing_url");
-      return;
+      throw new IllegalArgumentException("missing_url");
     }
 
     String lowerUrl = url != null ? url.toLowerCase() : "";
@@ -879,18 +2070,72 @@ public class ExoPlayerPlugin extends Plugin {
       itemBuilder.setSubtitleConfigurations(subtitleConfigs);
     }
 
-    MediaItem item = itemBuilder.build();
+    final MediaItem item = itemBuilder.build();
+    final String sourceUrl = url;
+    final String sourceMime = mime;
+    final long posMs = (long) (startPos * 1000d);
+    final String requestedColorMode = args.getString("colorMode");
+    final Boolean requestedFastStart = args.has("fastStart") ? args.getBoolean("fastStart", false) : null;
+    final InitialTracks initialTracks = InitialTracks.from(args);
+
+    // só o último setSource da fila chega aqui; os anteriores (e seus seeks) foram descartados
+    return () -> {
+      if (player == null) ensurePlayer();
+      if (player == null) {
+        emitError(new PlaybackException("player_not_ready", null, PlaybackException.ERROR_CODE_UNSPECIFIED));
+        return;
+      }
+      commands.moveTo(PlayerCommands.PREPARING);
+      preferSdrApplied = false;
+      maxVideoWidth = configuredMaxVideoWidth;
+      maxVideoHeight = configuredMaxVideoHeight;
+      maxVideoFrameRate = configuredMaxVideoFrameRate;
+      recoveryProfileIndex = 0;
+      recoveryFloorIndex = 0;
+      waitingFirstFrame = true;
+      applyVisibility();
+      endWatchContext();
+      beginWatchContext(watch);
+      startSource(item, sourceUrl, sourceMime, posMs, cdnBases,
+        normalizeColorMode(requestedColorMode, colorMode),
+        requestedFastStart != null ? requestedFastStart : fastStart,
+        initialTracks);
+    };
+  }
 
-    long posMs = (long) (startPos * 1000d);
-    final String logUrl = url;
-    final String logMime = mime;
-    final long logPosMs = posMs;
-    runOnUiThread(() -> {
+  /** Main thread, dentro do comando de source. */
+  private void startSource(MediaItem item, String logUrl, String mime, long logPosMs, List<String> cdnBases,
+                           String sourceColorMode, boolean useFastStart, InitialTracks initialTracks) {
+    final int generation = ++sourceGeneration;
+    awaitingPrepare = true;
+    pendingSeekMs = -1L;
+    // início alinhado ao segmento; o probe pode ajustar antes do prepare
+    final long[] startMs = { Math.max(logPosMs, 0) };
+    setSourceAtMs = SystemClock.elapsedRealtime();
+    TvLog.beginSpan(TvLog.SPAN_SOURCE);
+    startupReported = false;
+    colorProbeMs = 0L;
+    mediaProbeMs = 0L;
+    sourceFastStart = useFastStart && MimeTypes.APPLICATION_M3U8.equals(mime);
+    sourceChunkless = false;
+    startRequestedMs = startMs[0];
+    startAlignedMs = startMs[0];
+    Runnable prepareTask = () -> {
+      if (generation != sourceGeneration || player == null) return;
+      awaitingPrepare = false;
+      if (pendingSeekMs >= 0) {
+        startMs[0] = pendingSeekMs;
+        pendingSeekMs = -1L;
+      }
+      discardIdleSnapshot();
       try {
-        Log.i(TAG, "setSource: " + logUrl + " mime=" + (logMime != null ? logMime : "auto") + " start=" + logPosMs);
+        TvLog.i("setSource", logUrl);
+        TvLog.i("setSource start/aligned", logPosMs, startMs[0]);
         if (trackSelector != null) {
           DefaultTrackSelector.Parameters.Builder builder2 = trackSelector.buildUponParameters();
           applyVideoConstraints(builder2);
+          applyAudioPreferences(builder2);
+          initialTracks.apply(builder2);
           trackSelector.setParameters(builder2);
         }
         if (textureView != null) {
@@ -901,122 +2146,412 @@ public class ExoPlayerPlugin extends Plugin {
         }
         player.stop();
         player.clearMediaItems();
-        player.setMediaItem(item, Math.max(posMs, 0));
+        trackRegistry.reset();
+        frameRateMatcher.onSourceChanged();
+        decoderWatchdog.reset(SystemClock.elapsedRealtime());
+        playbackToken.reset(logUrl);
+        if (cdnRouter != null) cdnRouter.setOrigins(logUrl, cdnBases);
+        // playlists desta fonte ficam no cache enquanto ela toca (volta do release por pausa longa)
+        HlsPlaylistCache.get().pin(MimeTypes.APPLICATION_M3U8.equals(mime)
+          ? HlsPlaylistCache.pinPrefixFor(Uri.parse(logUrl)) : null);
+        player.setMediaSource(
+          TvMediaSources.create(getContext(), item, sourceFastStart, playbackToken, loadErrorPolicy, cdnRouter,
+            prefetcher),
+          startMs[0]
+        );
         player.prepare();
       } catch (Exception e) {
-        Log.e(TAG, "setSource failed", e);
+        TvLog.e("setSource failed", e);
+        commands.moveTo(PlayerCommands.IDLE);
         emitError(new PlaybackException("setSource failed", e, PlaybackException.ERROR_CODE_UNSPECIFIED));
       }
+    };
+
+    if (!MimeTypes.APPLICATION_M3U8.equals(mime)) {
+      resolveColorDecision(null, sourceColorMode);
+      prepareTask.run();
+      return;
+    }
+
+    // lê o master antes do prepare para a primeira seleção já sair no range certo
+    io.execute(() -> {
+      HlsMasterInfo info = null;
+      long t0 = SystemClock.elapsedRealtime();
+      try {
+        info = HlsMasterInfo.parse(HlsMasterInfo.fetchCached(logUrl, 3000));
+      } catch (Exception e) {
+        Log.w(TAG, "master probe failed: " + e.getMessage());
+      }
+      long aligned = -1;
+      long t1 = SystemClock.elapsedRealtime();
+      if (useFastStart && info != null && logPosMs > 0) {
+        // o media playlist fica no cache: se o ABR começar por essa variante, não há 2ª ida.
+        // Mas é uma ida serial antes do prepare: o custo sai em startup.mediaProbeMs
+        String mediaUrl = info.firstVariantUrl(logUrl);
+        if (mediaUrl != null) {
+          try {
+            aligned = HlsMasterInfo.segmentStartMs(HlsMasterInfo.fetchCached(mediaUrl, 3000), logPosMs);
+          } catch (Exception e) {
+            Log.w(TAG, "media playlist probe failed: " + e.getMessage());
+          }
+        }
+      }
+      final HlsMasterInfo probed = info;
+      final long alignedMs = aligned;
+      final long now = SystemClock.elapsedRealtime();
+      final long probeMs = now - t0;
+      final long mediaMs = now - t1;
+      // volta pela fila: um setSource que chegou durante o probe roda antes e invalida este
+      commands.submit(PlayerCommands.CMD_OTHER, () -> {
+        if (generation != sourceGeneration) return;
+        colorProbeMs = probeMs;
+        mediaProbeMs = mediaMs;
+        if (sourceFastStart) {
+          sourceChunkless = probed != null && probed.allHaveCodecs();
+          if (!sourceChunkless) Log.w(TAG, "fastStart: master without CODECS on every variant; media3 will load chunks");
+          if (alignedMs >= 0) {
+            startMs[0] = alignedMs;
+            startAlignedMs = alignedMs;
+          }
+        }
+        resolveColorDecision(probed, sourceColorMode);
+        Log.i(TAG, "color decision=" + colorDecision + " mode=" + sourceColorMode + " probeMs=" + probeMs);
+        prepareTask.run();
+      });
     });
+  }
 
-    call.resolve();
+  /**
+   * Lote ordenado numa ida só ao bridge: {commands: [{op: "setSource", ...}, {op: "seek", ...}]}.
+   * Tudo é validado antes; se algum item for inválido nada roda. Os itens
+   * executam em sequência num único comando da fila (sem outro comando no
+   * meio) e o resultado volta quando o lote inteiro rodou.
+   */
+  @PluginMethod
+  public void apply(PluginCall call) {
+    JSArray list = call.getArray("commands");
+    if (list == null || list.length() == 0) {
+      call.reject("invalid_args");
+      return;
+    }
+    // cada passo entra na fila com o tipo real (setSource/seek/play coalescem e
+    // contam no hasPending como as chamadas avulsas); o último só responde
+    final int n = list.length();
+    final int[] kinds = new int[n + 1];
+    final Runnable[] steps = new Runnable[n + 1];
+    // 0 = descartado pela coalescência, 1 = ok, -1 = falhou (só main thread)
+    final int[] outcome = new int[n];
+    for (int i = 0; i < n; i++) {
+      final int index = i;
+      final Runnable step;
+      try {
+        JSObject args = JSObject.fromJSONObject(list.getJSONObject(i));
+        String op = args.getString("op", "");
+        step = commandFor(op, args);
+        kinds[i] = kindFor(op);
+      } catch (JSONException | IllegalArgumentException e) {
+        call.reject("invalid_command " + i + ": " + e.getMessage());
+        return;
+      }
+      steps[i] = () -> {
+        outcome[index] = -1;
+        step.run();
+        outcome[index] = 1;
+      };
+    }
+    kinds[n] = PlayerCommands.CMD_OTHER;
+    steps[n] = () -> {
+      JSArray failed = new JSArray();
+      JSArray skipped = new JSArray();
+      int applied = 0;
+      for (int i = 0; i < n; i++) {
+        if (outcome[i] == 1) applied++;
+        else if (outcome[i] < 0) failed.put(i);
+        else skipped.put(i);
+      }
+      JSObject res = new JSObject();
+      res.put("applied", applied);
+      res.put("failed", failed);
+      res.put("skipped", skipped);
+      res.put("state", commands.stateName());
+      call.resolve(res);
+    };
+    commands.submitAll(kinds, steps);
+  }
+
+  private static int kindFor(String op) {
+    switch (op) {
+      case "setSource": return PlayerCommands.CMD_SOURCE;
+      case "seek": return PlayerCommands.CMD_SEEK;
+      case "play":
+      case "pause": return PlayerCommands.CMD_PLAY_PAUSE;
+      default: return PlayerCommands.CMD_OTHER;
+    }
+  }
+
+  private Runnable commandFor(String op, JSObject args) {
+    switch (op) {
+      case "init": return initCommand(args);
+      case "setSource": return sourceCommand(args);
+      case "setAudioTrack": return audioTrackCommand(args);
+      case "setTextTrack": return textTrackCommand(args);
+      case "seek": return seekCommand(args);
+      case "play": return playCommand(true);
+      case "pause": return playCommand(false);
+      case "setVisible": return visibleCommand(args);
+      case "setVolume": return volumeCommand(args);
+      case "setPlaybackRate": return rateCommand(args);
+      default: throw new IllegalArgumentException("unknown op " + op);
+    }
   }
 
   @PluginMethod
   public void play(PluginCall call) {
-    runOnUiThread(() -> {
-      Log.i(TAG, "play");
-      if (player != null) player.play();
-    });
+    commands.submit(PlayerCommands.CMD_PLAY_PAUSE, playCommand(true));
     call.resolve();
   }
 
   @PluginMethod
   public void pause(PluginCall call) {
-    runOnUiThread(() -> {
-      Log.i(TAG, "pause");
-      if (player != null) player.pause();
-    });
+    commands.submit(PlayerCommands.CMD_PLAY_PAUSE, playCommand(false));
     call.resolve();
   }
 
+  private Runnable playCommand(boolean play) {
+    return () -> {
+      TvLog.i(play ? "play" : "pause");
+      if (player == null) return;
+      if (play && idleSnapshot != null) resumeFromIdle();
+      else if (play) player.play();
+      else player.pause();
+    };
+  }
+
   @PluginMethod
   public void seek(PluginCall call) {
-    double pos = call.getDouble("position", 0d);
-    long ms = (long) (pos * 1000d);
-    runOnUiThread(() -> {
-      Log.i(TAG, "seek: " + ms);
-      if (player != null) player.seekTo(Math.max(ms, 0));
-    });
+    commands.submit(PlayerCommands.CMD_SEEK, seekCommand(call.getData()));
     call.resolve();
   }
 
+  private Runnable seekCommand(JSObject args) {
+    double pos = args.optDouble("position", 0d);
+    long ms = (long) (pos * 1000d);
+    return () -> {
+      TvLog.i("seek", ms);
+      if (idleSnapshot != null) {
+        // ainda solto: o play retoma já nessa posição
+        idleSnapshot.positionMs = Math.max(ms, 0);
+        emitState();
+        return;
+      }
+      if (awaitingPrepare) {
+        pendingSeekMs = Math.max(ms, 0);
+        return;
+      }
+      if (player != null) {
+        TvLog.beginSpan(TvLog.SPAN_SEEK);
+        // a janela antiga de pré-busca não serve mais; libera a banda já
+        prefetcher.cancelAll();
+        player.seekTo(Math.max(ms, 0));
+      }
+    };
+  }
+
   @PluginMethod
   public void setVolume(PluginCall call) {
-    double v = call.getDouble("volume", 1d);
+    commands.submit(PlayerCommands.CMD_OTHER, volumeCommand(call.getData()));
+    call.resolve();
+  }
+
+  private Runnable volumeCommand(JSObject args) {
+    double v = args.optDouble("volume", 1d);
     float vol = (float) Math.max(0, Math.min(1, v));
-    runOnUiThread(() -> {
+    return () -> {
       if (player != null) player.setVolume(vol);
-    });
-    call.resolve();
+    };
   }
 
   @PluginMethod
   public void setPlaybackRate(PluginCall call) {
-    double rate = call.getDouble("rate", 1d);
-    runOnUiThread(() -> {
-      if (player != null) player.setPlaybackSpeed((float) rate);
-    });
+    commands.submit(PlayerCommands.CMD_OTHER, rateCommand(call.getData()));
     call.resolve();
   }
 
+  private Runnable rateCommand(JSObject args) {
+    double rate = args.optDouble("rate", 1d);
+    return () -> {
+      if (player != null) player.setPlaybackSpeed((float) rate);
+    };
+  }
+
   @PluginMethod
   public void setAudioTrack(PluginCall call) {
-    int idx = call.getInt("index", -1);
-    if (idx < 0 || idx >= audioRefs.size() || trackSelector == null) {
-      call.resolve();
-      return;
-    }
-
-    TrackRef ref = audioRefs.get(idx);
-    TrackSelectionOverride override = new TrackSelectionOverride(ref.group.getMediaTrackGroup(), ImmutableList.of(ref.trackIndex));
+    commands.submit(PlayerCommands.CMD_OTHER, audioTrackCommand(call.getData()));
+    call.resolve();
+  }
 
-    DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
-    builder.clearOverridesOfType(C.TRACK_TYPE_AUDIO);
-    builder.addOverride(override);
-    trackSelector.setParameters(builder);
+  private Runnable audioTrackCommand(JSObject args) {
+    String id = args.getString("id");
+    int idx = args.getInteger("index", -1);
+    return () -> {
+      if (trackSelector == null) return;
+      TrackRegistry.Entry entry = trackRegistry.find(C.TRACK_TYPE_AUDIO, id, idx);
+      if (entry == null) {
+        Log.w(TAG, "setAudioTrack: unknown track id=" + id + " index=" + idx);
+        return;
+      }
 
-    call.resolve();
+      DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+      builder.clearOverridesOfType(C.TRACK_TYPE_AUDIO);
+      builder.addOverride(entry.toOverride());
+      trackSelector.setParameters(builder);
+    };
   }
 
   @PluginMethod
   public void setTextTrack(PluginCall call) {
-    String raw = call.getString("index");
-    if (trackSelector == null) {
-      call.resolve();
-      return;
+    commands.submit(PlayerCommands.CMD_OTHER, textTrackCommand(call.getData()));
+    call.resolve();
+  }
+
+  private Runnable textTrackCommand(JSObject args) {
+    String raw = args.getString("index");
+    String id = args.getString("id");
+    int parsed = args.getInteger("index", -1);
+    if (parsed < 0 && raw != null) {
+      try { parsed = Integer.parseInt(raw.trim()); } catch (NumberFormatException ignored) {}
     }
+    final int idx = parsed;
+    final boolean off = (id == null || id.isEmpty()) && idx < 0;
+    return () -> {
+      if (trackSelector == null) return;
+
+      if (off) {
+        DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+        builder.setTrackTypeDisabled(C.TRACK_TYPE_TEXT, true);
+        trackSelector.setParameters(builder);
+        return;
+      }
+
+      TrackRegistry.Entry entry = trackRegistry.find(C.TRACK_TYPE_TEXT, id, idx);
+      if (entry == null) {
+        Log.w(TAG, "setTextTrack: unknown track id=" + id + " index=" + idx);
+        return;
+      }
 
-    if (raw == null || "off".equals(raw)) {
       DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
-      builder.setTrackTypeDisabled(C.TRACK_TYPE_TEXT, true);
+      builder.setTrackTypeDisabled(C.TRACK_TYPE_TEXT, false);
+      builder.clearOverridesOfType(C.TRACK_TYPE_TEXT);
+      builder.addOverride(entry.toOverride());
       trackSelector.setParameters(builder);
-      call.resolve();
+    };
+  }
+
+  /**
+   * A página registra o listener de "message" e chama isto; o port chega
+   * como MessageEvent com data "cs-fast". Vale também para o UpdatePlugin.
+   */
+  @PluginMethod
+  public void openFastChannel(PluginCall call) {
+    Bridge bridge = getBridge();
+    if (bridge == null || bridge.getWebView() == null) {
+      call.reject("webview_unavailable");
       return;
     }
+    runOnUiThread(() -> {
+      boolean ok = FastChannel.get().open(bridge.getWebView(), Uri.parse(bridge.getLocalUrl()));
+      JSObject res = new JSObject();
+      res.put("open", ok);
+      call.resolve(res);
+    });
+  }
 
-    int idx = call.getInt("index", -1);
-    if (idx < 0 || idx >= textRefs.size()) {
-      call.resolve();
+  /** Token novo do gateway ({token} ou {url} com ?t=) sem re-prepare. */
+  @PluginMethod
+  public void updateToken(PluginCall call) {
+    String token = call.getString("token", "");
+    String url = call.getString("url", "");
+    if ((token == null || token.isEmpty()) && url != null && !url.isEmpty()) {
+      try {
+        token = Uri.parse(url).getQueryParameter(PlaybackToken.PARAM);
+      } catch (Exception ignored) {}
+    }
+    if (token == null || token.isEmpty()) {
+      call.reject("missing_token");
       return;
     }
+    playbackToken.update(token);
+    call.resolve();
+  }
 
-    TrackRef ref = textRefs.get(idx);
-    TrackSelectionOverride override = new TrackSelectionOverride(ref.group.getMediaTrackGroup(), ImmutableList.of(ref.trackIndex));
+  @PluginMethod
+  public void configureWatchSync(PluginCall call) {
+    if (watchSync == null) {
+      call.reject("watch_sync_unavailable");
+      return;
+    }
+    watchSync.configure(
+      call.getString("endpoint"),
+      call.getString("accessToken"),
+      call.getString("apiKey"),
+      call.getString("deviceKey"),
+      call.getInt("flushIntervalMs", 0)
+    );
+    call.resolve();
+  }
 
-    DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
-    builder.setTrackTypeDisabled(C.TRACK_TYPE_TEXT, false);
-    builder.clearOverridesOfType(C.TRACK_TYPE_TEXT);
-    builder.addOverride(override);
-    trackSelector.setParameters(builder);
+  /** Troca perfil/título sem trocar a fonte, ou limpa ({}), p.ex. no bloqueio. */
+  @PluginMethod
+  public void setWatchContext(PluginCall call) {
+    final JSObject watch = call.getData();
+    commands.submit(PlayerCommands.CMD_OTHER, () -> {
+      endWatchContext();
+      beginWatchContext(watch);
+    });
+    call.resolve();
+  }
 
+  @PluginMethod
+  public void getLastPosition(PluginCall call) {
+    String vid = call.getString("videoId", "");
+    String pid = call.getString("profileId", "");
+    if (watchSync == null || vid == null || vid.isEmpty() || pid == null || pid.isEmpty()) {
+      JSObject res = new JSObject();
+      res.put("found", false);
+      call.resolve(res);
+      return;
+    }
+    watchSync.getLastPosition(pid, vid, p -> {
+      JSObject res = new JSObject();
+      res.put("found", p != null);
+      if (p != null) {
+        res.put("positionSec", p.positionSec);
+        res.put("durationSec", p.durationSec);
+        res.put("updatedAt", p.updatedAtMs);
+      }
+      call.resolve(res);
+    });
+  }
+
+  @PluginMethod
+  public void flushWatchSync(PluginCall call) {
+    // o flush entra na fila do WatchSync depois do registro forçado
+    runOnUiThread(() -> {
+      trackWatchProgress(true);
+      if (watchSync != null) watchSync.flushNow();
+    });
     call.resolve();
   }
 
   @PluginMethod
   public void destroy(PluginCall call) {
-    runOnUiThread(() -> {
+    commands.clear();
+    commands.submit(PlayerCommands.CMD_OTHER, () -> {
       stopTimeLoop();
+      endWatchContext();
+      releasePreview();
+      removeStatsOverlay();
+      frameRateMatcher.restore(getActivity());
       try {
         if (parentRef != null && webLayoutListener != null) {
           parentRef.removeOnLayoutChangeListener(webLayoutListener);
@@ -1030,6 +2565,12 @@ public class ExoPlayerPlugin extends Plugin {
         if (parent != null) parent.removeView(textureView);
         textureView = null;
       }
+      discardIdleSnapshot();
+      if (idlePlaceholder != null) {
+        ViewGroup parent = (ViewGroup) idlePlaceholder.getParent();
+        if (parent != null) parent.removeView(idlePlaceholder);
+        idlePlaceholder = null;
+      }
       if (player != null) {
         try {
           if (textureView != null) {
@@ -1038,7 +2579,14 @@ public class ExoPlayerPlugin extends Plugin {
         } catch (Exception ignored) {}
         player.release();
         player = null;
+        loadControl = null;
       }
+      // um probe de master em voo não pode preparar depois do destroy
+      sourceGeneration++;
+      awaitingPrepare = false;
+      prefetcher.reset(null);
+      HlsPlaylistCache.get().pin(null);
+      commands.moveTo(PlayerCommands.RELEASED);
       Log.i(TAG, "destroy");
     });
     call.resolve();
@@ -1051,4 +2599,234 @@ public class ExoPlayerPlugin extends Plugin {
     runOnUiThread(this::applyTextureTransform);
     call.resolve();
   }
+
+  private int cssToPx(double v) {
+    float density = 1f;
+    try {
+      density = getContext().getResources().getDisplayMetrics().density;
+    } catch (Exception ignored) {}
+    return (int) Math.round(v * density);
+  }
+
+  private void releasePreview() {
+    if (preview == null) return;
+    try {
+      preview.release();
+    } catch (Exception e) {
+      Log.w(TAG, "preview release failed", e);
+    }
+    preview = null;
+  }
+
+  private void emitPreviewState(int handle, String state) {
+    JSObject payload = new JSObject();
+    payload.put("handle", handle);
+    payload.put("state", state);
+    try {
+      notifyListeners("previewState", payload, true);
+    } catch (Exception e) {
+      Log.e(TAG, "emitPreviewState notify failed", e);
+    }
+  }
+
+  @PluginMethod
+  public void createPreview(PluginCall call) {
+    String url = normalizeUrl(call.getString("url", ""));
+    if (url.isEmpty()) {
+      call.reject("missing_url");
+      return;
+    }
+    int x = cssToPx(call.getDouble("x", 0d));
+    int y = cssToPx(call.getDouble("y", 0d));
+    int w = cssToPx(call.getDouble("width", 0d));
+    int h = cssToPx(call.getDouble("height", 0d));
+    int maxW = call.getInt("maxVideoWidth", PREVIEW_MAX_WIDTH);
+    int maxH = call.getInt("maxVideoHeight", PREVIEW_MAX_HEIGHT);
+    boolean muted = call.getBoolean("muted", true);
+    boolean loop = call.getBoolean("loop", true);
+    long startMs = (long) (call.getDouble("startPositionSec", 0d) * 1000d);
+    final int handle = nextPreviewHandle++;
+
+    runOnUiThread(() -> {
+      Bridge bridge = getBridge();
+      ViewGroup parent = null;
+      try {
+        parent = (ViewGroup) bridge.getWebView().getParent();
+      } catch (Exception ignored) {}
+      if (parent == null || getContext() == null) {
+        emitPreviewState(handle, "error");
+        return;
+      }
+
+      // só uma instância secundária por vez
+      releasePreview();
+      try {
+        // token próprio (o do principal reescreveria o ?t= do trailer no mesmo host);
+        // sem listener até o hand-off: um 401 no trailer só vira erro do preview
+        PlaybackToken previewToken = new PlaybackToken();
+        previewToken.setWaitMs(1);
+        PreviewPlayer p = new PreviewPlayer(getContext(), handle, abrPolicy.copyConfig(), buildRenderersFactory(),
+          previewToken, loadErrorPolicy, cdnRouter, maxW, maxH);
+        p.attach(parent, x, y, w, h);
+        p.setListener(new Player.Listener() {
+          @Override
+          public void onPlaybackStateChanged(int state) {
+            if (state == Player.STATE_READY) emitPreviewState(handle, "ready");
+            if (state == Player.STATE_ENDED) emitPreviewState(handle, "ended");
+          }
+
+          @Override
+          public void onRenderedFirstFrame() {
+            emitPreviewState(handle, "firstFrame");
+          }
+
+          @Override
+          public void onPlayerError(PlaybackException error) {
+            Log.w(TAG, "preview " + handle + " error: " + (error != null ? error.getErrorCodeName() : "null"));
+            emitPreviewState(handle, "error");
+          }
+        });
+        p.setSource(url, startMs, muted, loop);
+        p.player.play();
+        preview = p;
+        setWebViewTransparent(true);
+        Log.i(TAG, "preview " + handle + " created " + w + "x" + h + " @" + x + "," + y);
+      } catch (Exception e) {
+        Log.e(TAG, "createPreview failed", e);
+        emitPreviewState(handle, "error");
+      }
+    });
+
+    JSObject ret = new JSObject();
+    ret.put("handle", handle);
+    call.resolve(ret);
+  }
+
+  @PluginMethod
+  public void setPreviewRect(PluginCall call) {
+    int handle = call.getInt("handle", -1);
+    int x = cssToPx(call.getDouble("x", 0d));
+    int y = cssToPx(call.getDouble("y", 0d));
+    int w = cssToPx(call.getDouble("width", 0d));
+    int h = cssToPx(call.getDouble("height", 0d));
+    runOnUiThread(() -> {
+      if (preview != null && preview.handle == handle) preview.setRect(x, y, w, h);
+    });
+    call.resolve();
+  }
+
+  @PluginMethod
+  public void setPreviewPaused(PluginCall call) {
+    int handle = call.getInt("handle", -1);
+    boolean paused = call.getBoolean("paused", true);
+    runOnUiThread(() -> {
+      if (preview == null || preview.handle != handle) return;
+      if (paused) preview.player.pause();
+      else preview.player.play();
+    });
+    call.resolve();
+  }
+
+  @PluginMethod
+  public void destroyPreview(PluginCall call) {
+    int handle = call.getInt("handle", -1);
+    runOnUiThread(() -> {
+      if (preview != null && (handle < 0 || preview.handle == handle)) releasePreview();
+    });
+    call.resolve();
+  }
+
+  /**
+   * Hand-off: o player do preview vira o player principal, com o buffer que
+   * já tem. Perfil de buffer e limites de vídeo voltam aos do player cheio.
+   * O progresso do título anterior fecha aqui; "watch" (mesmo formato do
+   * setSource) abre o do trailer promovido.
+   */
+  @PluginMethod
+  public void promotePreview(PluginCall call) {
+    int handle = call.getInt("handle", -1);
+    boolean unmute = call.getBoolean("unmute", true);
+    final JSObject watch = call.getObject("watch");
+    commands.submit(PlayerCommands.CMD_SOURCE, () -> {
+      PreviewPlayer p = preview;
+      if (p == null || p.handle != handle) {
+        Log.w(TAG, "promotePreview: unknown handle " + handle);
+        return;
+      }
+      preview = null;
+      ensureView();
+      discardIdleSnapshot();
+      // grava a posição do player que sai antes de trocar (depois, getCurrentPosition é o do trailer)
+      endWatchContext();
+
+      if (player != null) {
+        try {
+          if (textureView != null) player.clearVideoTextureView(textureView);
+        } catch (Exception ignored) {}
+        player.release();
+        commands.moveTo(PlayerCommands.RELEASED);
+      }
+
+      player = p.player;
+      sourceGeneration++;
+      awaitingPrepare = false;
+      commands.moveTo(PlayerCommands.IDLE);
+      commands.moveTo(player.getPlaybackState() == Player.STATE_READY ? PlayerCommands.READY : PlayerCommands.PREPARING);
+      trackSelector = p.trackSelector;
+      abrPolicy = p.abrPolicy;
+      loadControl = p.loadControl;
+      // token e origens passam a ser os da fonte do trailer
+      playbackToken.setListener(null);
+      playbackToken = p.token;
+      playbackToken.setWaitMs(tokenWaitMs > 0 ? tokenWaitMs : PlaybackToken.DEFAULT_WAIT_MS);
+      playbackToken.setListener(this::emitTokenExpired);
+      if (cdnRouter != null) cdnRouter.setOrigins(p.url, null);
+      HlsPlaylistCache.get().pin(p.url != null && HlsPlaylistCache.isPlaylistUri(Uri.parse(p.url))
+        ? HlsPlaylistCache.pinPrefixFor(Uri.parse(p.url)) : null);
+      trackRegistry.setAudioCapabilities(audioPassthrough ? getAudioCapabilities() : null);
+      // troca de surface antes de soltar a do preview, sem reiniciar o codec
+      if (textureView != null) player.setVideoTextureView(textureView);
+      p.detachForHandOff();
+      loadControl.setProfile(TvLoadControl.FULL);
+      player.addListener(createMainListener());
+      player.addAnalyticsListener(createMainAnalyticsListener());
+      frameRateMatcher.onSourceChanged();
+      player.setRepeatMode(Player.REPEAT_MODE_OFF);
+      if (unmute) player.setVolume(1f);
+
+      androidx.media3.common.VideoSize vs = player.getVideoSize();
+      videoW = Math.max(0, vs.width);
+      videoH = Math.max(0, vs.height);
+      videoPixelRatio = vs.pixelWidthHeightRatio > 0 ? vs.pixelWidthHeightRatio : 1f;
+      videoRotation = vs.unappliedRotationDegrees;
+      updateTextureBufferSize();
+      applyTextureTransform();
+
+      maxVideoWidth = configuredMaxVideoWidth;
+      maxVideoHeight = configuredMaxVideoHeight;
+      maxVideoFrameRate = configuredMaxVideoFrameRate;
+      recoveryProfileIndex = 0;
+      recoveryFloorIndex = 0;
+      // o trailer não passou por setSource: vale o modo do init
+      effectiveColorMode = colorMode;
+      try {
+        DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+        applyVideoConstraints(builder);
+        applyAudioPreferences(builder);
+        builder.setExceedVideoConstraintsIfNecessary(false);
+        trackSelector.setParameters(builder);
+      } catch (Exception ignored) {}
+
+      trackRegistry.reset();
+      emitTracks(player.getCurrentTracks());
+      beginWatchContext(watch);
+      visibleWanted = true;
+      waitingFirstFrame = false;
+      applyVisibility();
+      startTimeLoop();
+      player.play();
+      Log.i(TAG, "preview " + handle + " promoted to main player");
+    });
+    call.resolve();
+  }
 }
@@ -0,0 +1,94 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+import android.webkit.WebMessage;
+import android.webkit.WebMessagePort;
+import android.webkit.WebView;
+
+/**
+ * Canal MessagePort nativo -> página para os streams de alta frequência
+ * (tick de posição/buffer, progresso do update, métricas). Mensagens são
+ * strings curtas "tipo,campo,campo..." e não passam pelo JSON do bridge do
+ * Capacitor nem por evaluateJavascript. A página pede o canal com
+ * ExoPlayerPlugin.openFastChannel (de novo a cada reload); enquanto ele não
+ * estiver aberto os plugins caem no caminho antigo. Aberto = a página
+ * respondeu ACK pelo port; o TvWebViewClient fecha o canal quando uma
+ * navegação começa, porque o port da página antiga morre calado.
+ */
+final class FastChannel {
+  private static final String TAG = "CineSuperExo";
+  static final String HANDSHAKE = "cs-fast";
+  static final String ACK = "cs-fast-ack";
+
+  private static final FastChannel INSTANCE = new FastChannel();
+
+  static FastChannel get() {
+    return INSTANCE;
+  }
+
+  private WebMessagePort port;
+  private boolean acked;
+
+  /**
+   * Chamar na thread do WebView. targetOrigin = origem local do bridge; o port
+   * só é entregue se a página carregada for dela (nunca a um iframe ou
+   * navegação externa).
+   */
+  synchronized boolean open(WebView webView, Uri targetOrigin) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M || webView == null || targetOrigin == null) return false;
+    close();
+    try {
+      WebMessagePort[] ports = webView.createWebMessageChannel();
+      final WebMessagePort p = ports[0];
+      port = p;
+      acked = false;
+      p.setWebMessageCallback(new WebMessagePort.WebMessageCallback() {
+        @Override
+        public void onMessage(WebMessagePort from, WebMessage message) {
+          if (message != null && ACK.equals(message.getData())) onAck(p);
+        }
+      });
+      webView.postWebMessage(new WebMessage(HANDSHAKE, new WebMessagePort[] { ports[1] }), targetOrigin);
+      Log.i(TAG, "fast channel open");
+      return true;
+    } catch (Exception e) {
+      Log.w(TAG, "fast channel open failed", e);
+      port = null;
+      return false;
+    }
+  }
+
+  private synchronized void onAck(WebMessagePort from) {
+    if (from != port) return;
+    acked = true;
+    Log.i(TAG, "fast channel acked");
+  }
+
+  synchronized boolean isOpen() {
+    return port != null && acked;
+  }
+
+  /** false = canal fechado (ou página ainda sem o port); quem chamou usa o fallback. */
+  synchronized boolean send(String message) {
+    if (port == null || !acked || Build.VERSION.SDK_INT < Build.VERSION_CODES.M) return false;
+    try {
+      port.postMessage(new WebMessage(message));
+      return true;
+    } catch (Exception e) {
+      Log.w(TAG, "fast channel send failed; falling back", e);
+      close();
+      return false;
+    }
+  }
+
+  synchronized void close() {
+    if (port == null) return;
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) port.close();
+    } catch (Exception ignored) {}
+    port = null;
+    acked = false;
+  }
+}
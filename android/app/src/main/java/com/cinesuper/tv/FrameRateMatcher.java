@@ -0,0 +1,168 @@
+package com.cinesuper.tv;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Display;
+import android.view.Window;
+import android.view.WindowManager;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Troca o modo do display para um múltiplo inteiro do fps do conteúdo
+ * (23.976 -> 23.976/47.952 Hz...). O TextureView não repassa
+ * Surface.setFrameRate ao compositor, então usamos preferredDisplayModeId da
+ * janela. "seamless" só troca quando o modo atual lista a taxa como
+ * alternativa sem re-sync (API 31+); "always" troca mesmo com tela preta.
+ */
+final class FrameRateMatcher {
+  private static final String TAG = "CineSuperExo";
+  private static final long MEASURE_WINDOW_MS = 10_000L;
+
+  interface Reporter {
+    void onSwitch(float contentFps, float fromHz, float toHz, boolean seamless, long droppedBefore, long beforeMs,
+                  long droppedAfter, long afterMs);
+  }
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private String mode = "off";
+  private int originalPreferredModeId = -1;
+  private float matchedFps = 0f;
+  private long droppedTotal = 0L;
+  private long windowStartMs = 0L;
+  private long windowStartDropped = 0L;
+  private Runnable pendingMeasure;
+
+  static String normalizeMode(@Nullable String raw) {
+    if (raw == null) return "off";
+    String m = raw.trim().toLowerCase();
+    if (m.equals("seamless") || m.equals("always")) return m;
+    return "off";
+  }
+
+  void setMode(String mode) {
+    this.mode = normalizeMode(mode);
+  }
+
+  String getMode() {
+    return mode;
+  }
+
+  /** Novo media item: zera a janela de medição e permite nova troca. */
+  void onSourceChanged() {
+    matchedFps = 0f;
+    windowStartMs = SystemClock.elapsedRealtime();
+    windowStartDropped = droppedTotal;
+    cancelMeasure();
+  }
+
+  void onDroppedFrames(int count) {
+    droppedTotal += Math.max(0, count);
+  }
+
+  long getDroppedTotal() {
+    return droppedTotal;
+  }
+
+  void onVideoFormat(@Nullable Activity activity, float fps, @Nullable Reporter reporter) {
+    if ("off".equals(mode) || activity == null || fps <= 0) return;
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) return;
+    if (Math.abs(fps - matchedFps) < 0.01f) return;
+    matchedFps = fps;
+
+    try {
+      Window window = activity.getWindow();
+      Display display = activity.getWindowManager().getDefaultDisplay();
+      if (window == null || display == null) return;
+      Display.Mode cur = display.getMode();
+      if (isMultiple(cur.getRefreshRate(), fps)) return;
+      Display.Mode best = pickMode(display, cur, fps);
+      if (best == null) {
+        Log.i(TAG, "frameRate: no mode for " + fps + "fps");
+        return;
+      }
+      if (best.getModeId() == cur.getModeId()) return;
+
+      boolean seamless = isSeamless(cur, best.getRefreshRate());
+      if ("seamless".equals(mode) && !seamless) {
+        Log.i(TAG, "frameRate: " + best.getRefreshRate() + "Hz needs a non-seamless switch; skipped");
+        return;
+      }
+
+      WindowManager.LayoutParams lp = window.getAttributes();
+      if (originalPreferredModeId < 0) originalPreferredModeId = lp.preferredDisplayModeId;
+      lp.preferredDisplayModeId = best.getModeId();
+      window.setAttributes(lp);
+      Log.i(TAG, "frameRate: " + fps + "fps " + cur.getRefreshRate() + "Hz -> " + best.getRefreshRate() +
+        "Hz seamless=" + seamless);
+
+      final long now = SystemClock.elapsedRealtime();
+      final long droppedBefore = droppedTotal - windowStartDropped;
+      final long beforeMs = now - windowStartMs;
+      final long droppedAtSwitch = droppedTotal;
+      final float fromHz = cur.getRefreshRate();
+      final float toHz = best.getRefreshRate();
+      cancelMeasure();
+      pendingMeasure = () -> {
+        pendingMeasure = null;
+        if (reporter == null) return;
+        reporter.onSwitch(fps, fromHz, toHz, seamless, droppedBefore, beforeMs,
+          droppedTotal - droppedAtSwitch, SystemClock.elapsedRealtime() - now);
+      };
+      handler.postDelayed(pendingMeasure, MEASURE_WINDOW_MS);
+    } catch (Exception e) {
+      Log.w(TAG, "frameRate switch failed", e);
+    }
+  }
+
+  void restore(@Nullable Activity activity) {
+    cancelMeasure();
+    matchedFps = 0f;
+    if (originalPreferredModeId < 0 || activity == null) return;
+    try {
+      Window window = activity.getWindow();
+      WindowManager.LayoutParams lp = window.getAttributes();
+      lp.preferredDisplayModeId = originalPreferredModeId;
+      window.setAttributes(lp);
+      Log.i(TAG, "frameRate: restored display mode " + originalPreferredModeId);
+    } catch (Exception e) {
+      Log.w(TAG, "frameRate restore failed", e);
+    }
+    originalPreferredModeId = -1;
+  }
+
+  private void cancelMeasure() {
+    if (pendingMeasure != null) handler.removeCallbacks(pendingMeasure);
+    pendingMeasure = null;
+  }
+
+  // menor múltiplo inteiro do fps, mesma resolução física do modo atual
+  @Nullable
+  private static Display.Mode pickMode(Display display, Display.Mode cur, float fps) {
+    Display.Mode best = null;
+    for (Display.Mode m : display.getSupportedModes()) {
+      if (m.getPhysicalWidth() != cur.getPhysicalWidth() || m.getPhysicalHeight() != cur.getPhysicalHeight()) continue;
+      if (!isMultiple(m.getRefreshRate(), fps)) continue;
+      if (best == null || m.getRefreshRate() < best.getRefreshRate()) best = m;
+    }
+    return best;
+  }
+
+  private static boolean isMultiple(float hz, float fps) {
+    float ratio = hz / fps;
+    long mult = Math.round(ratio);
+    return mult >= 1 && Math.abs(ratio - mult) <= 0.005f * mult;
+  }
+
+  private static boolean isSeamless(Display.Mode cur, float targetHz) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) return false;
+    for (float r : cur.getAlternativeRefreshRates()) {
+      if (Math.abs(r - targetHz) < 0.01f) return true;
+    }
+    return false;
+  }
+}
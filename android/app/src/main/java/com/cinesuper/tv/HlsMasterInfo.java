@@ -0,0 +1,199 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.Format;
+import androidx.media3.common.util.UriUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitura mínima do master playlist (EXT-X-STREAM-INF) antes do prepare.
+ * O parser do media3 não expõe VIDEO-RANGE, então guardamos os atributos
+ * que precisamos para decidir HDR/SDR antes da primeira seleção.
+ */
+final class HlsMasterInfo {
+  static final class Variant {
+    int bandwidth;
+    int width;
+    int height;
+    String codecs = "";
+    String videoRange = "";
+    String uri;
+
+    boolean isHdr() {
+      if ("PQ".equals(videoRange) || "HLG".equals(videoRange)) return true;
+      String c = codecs.toLowerCase();
+      return c.contains("dvh1") || c.contains("dvhe");
+    }
+  }
+
+  final List<Variant> variants = new ArrayList<>();
+
+  boolean hasHdr() {
+    for (Variant v : variants) if (v.isHdr()) return true;
+    return false;
+  }
+
+  boolean hasSdr() {
+    for (Variant v : variants) if (!v.isHdr()) return true;
+    return false;
+  }
+
+  /** Casa um Format do TrackGroup com a variante do master (BANDWIDTH + RESOLUTION). */
+  @Nullable
+  Variant match(Format fmt) {
+    if (fmt == null) return null;
+    for (Variant v : variants) {
+      if (v.bandwidth <= 0 || v.bandwidth != fmt.peakBitrate) continue;
+      if (v.width > 0 && fmt.width > 0 && v.width != fmt.width) continue;
+      if (v.height > 0 && fmt.height > 0 && v.height != fmt.height) continue;
+      return v;
+    }
+    return null;
+  }
+
+  static HlsMasterInfo parse(String text) {
+    HlsMasterInfo info = new HlsMasterInfo();
+    if (text == null) return info;
+    String[] lines = text.split("\n");
+    Variant pending = null;
+    for (String raw : lines) {
+      String line = raw.trim();
+      if (line.isEmpty()) continue;
+      // a URI da variante é a primeira linha que não é tag depois do STREAM-INF
+      if (pending != null && !line.startsWith("#")) {
+        pending.uri = line;
+        pending = null;
+        continue;
+      }
+      if (!line.startsWith("#EXT-X-STREAM-INF:")) continue;
+      Variant v = new Variant();
+      String attrs = line.substring("#EXT-X-STREAM-INF:".length());
+      v.bandwidth = parseInt(attr(attrs, "BANDWIDTH"));
+      String res = attr(attrs, "RESOLUTION");
+      if (res != null) {
+        int x = res.indexOf('x');
+        if (x > 0) {
+          v.width = parseInt(res.substring(0, x));
+          v.height = parseInt(res.substring(x + 1));
+        }
+      }
+      String codecs = attr(attrs, "CODECS");
+      if (codecs != null) v.codecs = codecs;
+      String range = attr(attrs, "VIDEO-RANGE");
+      if (range != null) v.videoRange = range.toUpperCase();
+      info.variants.add(v);
+      pending = v;
+    }
+    return info;
+  }
+
+  /** Preparação chunkless só funciona se todas as variantes declaram CODECS. */
+  boolean allHaveCodecs() {
+    if (variants.isEmpty()) return false;
+    for (Variant v : variants) if (v.codecs.isEmpty()) return false;
+    return true;
+  }
+
+  /** URI absoluta da primeira variante (a que o HLS trata como principal). */
+  @Nullable
+  String firstVariantUrl(String masterUrl) {
+    for (Variant v : variants) {
+      if (v.uri != null && !v.uri.isEmpty()) return UriUtil.resolve(masterUrl, v.uri);
+    }
+    return null;
+  }
+
+  /**
+   * Início (ms) do segmento do media playlist que contém posMs, somando os
+   * EXTINF. -1 se não houver segmento que contenha a posição.
+   */
+  static long segmentStartMs(String mediaText, long posMs) {
+    if (mediaText == null) return -1;
+    long startUs = 0L;
+    for (String raw : mediaText.split("\n")) {
+      String line = raw.trim();
+      if (!line.startsWith("#EXTINF:")) continue;
+      int comma = line.indexOf(',');
+      String dur = comma > 0 ? line.substring(8, comma) : line.substring(8);
+      long durUs;
+      try {
+        durUs = (long) (Double.parseDouble(dur.trim()) * 1_000_000d);
+      } catch (Exception e) {
+        return -1;
+      }
+      if (posMs * 1000L < startUs + durUs) return startUs / 1000L;
+      startUs += durUs;
+    }
+    return -1;
+  }
+
+  /** Mesmo cache do player: o prepare logo depois não baixa o master de novo. */
+  static String fetchCached(String url, int timeoutMs) throws Exception {
+    Uri uri = Uri.parse(url);
+    HlsPlaylistCache cache = HlsPlaylistCache.get();
+    String text = cache.getText(uri);
+    if (text != null) return text;
+    text = fetch(url, timeoutMs);
+    cache.put(uri, text);
+    return text;
+  }
+
+  static String fetch(String url, int timeoutMs) throws Exception {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setConnectTimeout(timeoutMs);
+    conn.setReadTimeout(timeoutMs);
+    try {
+      int code = conn.getResponseCode();
+      if (code < 200 || code >= 300) throw new java.io.IOException("http " + code);
+      try (InputStream in = conn.getInputStream()) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+      }
+    } finally {
+      conn.disconnect();
+    }
+  }
+
+  @Nullable
+  private static String attr(String attrs, String name) {
+    int from = 0;
+    while (true) {
+      int i = attrs.indexOf(name + "=", from);
+      if (i < 0) return null;
+      // evita casar AVERAGE-BANDWIDTH quando procuramos BANDWIDTH
+      if (i > 0 && attrs.charAt(i - 1) != ',') {
+        from = i + name.length();
+        continue;
+      }
+      int start = i + name.length() + 1;
+      if (start < attrs.length() && attrs.charAt(start) == '"') {
+        int end = attrs.indexOf('"', start + 1);
+        return end > start ? attrs.substring(start + 1, end) : null;
+      }
+      int end = attrs.indexOf(',', start);
+      return end < 0 ? attrs.substring(start) : attrs.substring(start, end);
+    }
+  }
+
+  private static int parseInt(@Nullable String s) {
+    if (s == null) return 0;
+    try {
+      return Integer.parseInt(s.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
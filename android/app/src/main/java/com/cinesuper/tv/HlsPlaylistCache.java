@@ -0,0 +1,260 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.exoplayer.hls.playlist.DefaultHlsPlaylistParserFactory;
+import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsMultivariantPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsPlaylistParserFactory;
+import androidx.media3.exoplayer.upstream.ParsingLoadable;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache em memória (processo todo, sobrevive ao destroy do plugin) dos
+ * playlists HLS de VOD: master e media playlists com EXT-X-ENDLIST.
+ * A chave é a URL sem o token (?t=); o token é trocado por um placeholder no
+ * texto guardado e reposto com o token da requisição atual ao servir, já
+ * que o gateway reescreve as URIs filhas com ?t=.
+ *
+ * As entradas da fonte em reprodução (diretório do master, fixado com pin)
+ * não expiram nem saem no trim/clear: o release por pausa longa
+ * (IdlePolicy) solta o playlist tracker e a volta, muitos minutos depois,
+ * re-prepara a mesma fonte só com o que está aqui.
+ */
+final class HlsPlaylistCache {
+  private static final String TOKEN_PARAM = "t";
+  private static final String TOKEN_PLACEHOLDER = "\u0000cs-token\u0000";
+  private static final int MAX_ENTRIES = 64;
+  private static final long MAX_BYTES = 4L * 1024 * 1024;
+  private static final long TTL_MS = 10 * 60 * 1000L;
+
+  private static final HlsPlaylistCache INSTANCE = new HlsPlaylistCache();
+
+  static HlsPlaylistCache get() {
+    return INSTANCE;
+  }
+
+  private static final class Entry {
+    final String template;
+    final String token;
+    long storedAtMs;
+    final int bytes;
+    HlsPlaylist parsed;
+    String parsedToken;
+
+    Entry(String template, String token, long storedAtMs) {
+      this.template = template;
+      this.token = token;
+      this.storedAtMs = storedAtMs;
+      this.bytes = template.length() * 2;
+    }
+  }
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0L;
+  @Nullable private String pinnedPrefix;
+  private int hits = 0;
+  private int misses = 0;
+
+  static boolean isPlaylistUri(@Nullable Uri uri) {
+    if (uri == null || uri.getPath() == null) return false;
+    return uri.getPath().toLowerCase().endsWith(".m3u8");
+  }
+
+  static String keyFor(Uri uri) {
+    Uri.Builder b = uri.buildUpon().clearQuery().fragment(null);
+    for (String name : uri.getQueryParameterNames()) {
+      if (TOKEN_PARAM.equals(name) || "token".equals(name)) continue;
+      for (String v : uri.getQueryParameters(name)) b.appendQueryParameter(name, v);
+    }
+    return b.build().toString();
+  }
+
+  @Nullable
+  private static String tokenOf(Uri uri) {
+    try {
+      String t = uri.getQueryParameter(TOKEN_PARAM);
+      return t != null && !t.isEmpty() ? t : null;
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  /** Só VOD: master (STREAM-INF) ou media playlist fechado (ENDLIST). */
+  static boolean isCacheable(String text) {
+    return text.contains("#EXT-X-STREAM-INF") || text.contains("#EXT-X-ENDLIST");
+  }
+
+  @Nullable
+  synchronized String getText(Uri uri) {
+    String key = keyFor(uri);
+    Entry e = entries.get(key);
+    if (e == null || isExpired(key, e)) {
+      if (e != null) remove(key);
+      misses++;
+      return null;
+    }
+    hits++;
+    String token = tokenOf(uri);
+    return e.template.replace(TOKEN_PLACEHOLDER, token != null ? token : (e.token != null ? e.token : ""));
+  }
+
+  @Nullable
+  byte[] getBytes(Uri uri) {
+    String text = getText(uri);
+    return text != null ? text.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  synchronized void put(Uri uri, String text) {
+    if (text == null || !isCacheable(text)) return;
+    String key = keyFor(uri);
+    String token = tokenOf(uri);
+    String template = token != null ? text.replace(token, TOKEN_PLACEHOLDER) : text;
+    remove(key);
+    Entry e = new Entry(template, token, SystemClock.elapsedRealtime());
+    entries.put(key, e);
+    totalBytes += e.bytes;
+    trim();
+  }
+
+  @Nullable
+  private synchronized HlsPlaylist getParsed(Uri uri) {
+    String key = keyFor(uri);
+    Entry e = entries.get(key);
+    if (e == null || e.parsed == null) return null;
+    if (isExpired(key, e)) return null;
+    String token = tokenOf(uri);
+    return eq(token, e.parsedToken) ? e.parsed : null;
+  }
+
+  private synchronized void putParsed(Uri uri, HlsPlaylist parsed) {
+    Entry e = entries.get(keyFor(uri));
+    if (e == null) return;
+    e.parsed = parsed;
+    e.parsedToken = tokenOf(uri);
+  }
+
+  private boolean isPinned(String key) {
+    return pinnedPrefix != null && key.startsWith(pinnedPrefix);
+  }
+
+  private boolean isExpired(String key, Entry e) {
+    return !isPinned(key) && SystemClock.elapsedRealtime() - e.storedAtMs > TTL_MS;
+  }
+
+  /** Prefixo das chaves da fonte: diretório do master (as media playlists ficam abaixo dele). */
+  static String pinPrefixFor(Uri master) {
+    String key = keyFor(master);
+    int q = key.indexOf('?');
+    String path = q >= 0 ? key.substring(0, q) : key;
+    int slash = path.lastIndexOf('/');
+    return slash >= 0 ? path.substring(0, slash + 1) : path;
+  }
+
+  /**
+   * Fonte em reprodução (null = nenhuma). As entradas da anterior voltam
+   * ao TTL contado a partir de agora.
+   */
+  synchronized void pin(@Nullable String prefix) {
+    String old = pinnedPrefix;
+    pinnedPrefix = prefix;
+    if (old == null || old.equals(prefix)) return;
+    long now = SystemClock.elapsedRealtime();
+    for (Map.Entry<String, Entry> me : entries.entrySet()) {
+      if (me.getKey().startsWith(old) && !isPinned(me.getKey())) me.getValue().storedAtMs = now;
+    }
+  }
+
+  /** Pressão de memória: tudo menos a fonte em reprodução. */
+  synchronized void clear() {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, Entry> me = it.next();
+      if (isPinned(me.getKey())) continue;
+      totalBytes -= me.getValue().bytes;
+      it.remove();
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized int getHits() {
+    return hits;
+  }
+
+  synchronized int getMisses() {
+    return misses;
+  }
+
+  private void remove(String key) {
+    Entry old = entries.remove(key);
+    if (old != null) totalBytes -= old.bytes;
+  }
+
+  private void trim() {
+    Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+    while ((entries.size() > MAX_ENTRIES || totalBytes > MAX_BYTES) && it.hasNext()) {
+      Map.Entry<String, Entry> eldest = it.next();
+      if (isPinned(eldest.getKey())) continue;
+      totalBytes -= eldest.getValue().bytes;
+      it.remove();
+    }
+  }
+
+  private static boolean eq(@Nullable String a, @Nullable String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+
+  /**
+   * Parser que reaproveita o playlist já parseado quando o token é o mesmo
+   * e entrega as media playlists ao SegmentPrefetcher, se houver.
+   */
+  static final class ParserFactory implements HlsPlaylistParserFactory {
+    private final HlsPlaylistParserFactory delegate = new DefaultHlsPlaylistParserFactory();
+    @Nullable private final SegmentPrefetcher prefetcher;
+
+    ParserFactory(@Nullable SegmentPrefetcher prefetcher) {
+      this.prefetcher = prefetcher;
+    }
+
+    @Override
+    public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser() {
+      return wrap(delegate.createPlaylistParser(), null);
+    }
+
+    @Override
+    public ParsingLoadable.Parser<HlsPlaylist> createPlaylistParser(
+      HlsMultivariantPlaylist multivariantPlaylist,
+      @Nullable HlsMediaPlaylist previousMediaPlaylist
+    ) {
+      return wrap(delegate.createPlaylistParser(multivariantPlaylist, previousMediaPlaylist), multivariantPlaylist);
+    }
+
+    private ParsingLoadable.Parser<HlsPlaylist> wrap(ParsingLoadable.Parser<HlsPlaylist> parser,
+                                                     @Nullable HlsMultivariantPlaylist multivariant) {
+      return (Uri uri, InputStream in) -> {
+        HlsPlaylistCache cache = HlsPlaylistCache.get();
+        HlsPlaylist parsed = cache.getParsed(uri);
+        if (parsed == null) {
+          parsed = parser.parse(uri, in);
+          cache.putParsed(uri, parsed);
+        }
+        if (prefetcher != null && parsed instanceof HlsMediaPlaylist) {
+          prefetcher.onMediaPlaylist(uri, (HlsMediaPlaylist) parsed, multivariant);
+        }
+        return parsed;
+      };
+    }
+  }
+}
@@ -0,0 +1,172 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.DefaultHttpDataSource;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.datasource.TransferListener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Roteia cada requisição da fonte para a origem mais bem ranqueada pelo
+ * CdnRouter e, se ela falhar no open (rede, 5xx, 429) ou não mandar o
+ * primeiro byte a tempo, tenta a próxima — por requisição, sem re-prepare.
+ * Só a última tentativa usa os timeouts normais. Falha no meio do corpo
+ * sobe para o TvLoadErrorPolicy, e o retry já cai na próxima origem pelo
+ * ranking. Para cima (getUri) a resposta sempre aparece no host da fonte:
+ * é contra ele que o media3 resolve as URIs da playlist, e o CdnRouter e o
+ * PlaybackToken só reconhecem esse host.
+ */
+final class HostFailoverDataSource implements DataSource {
+  static final class Factory implements DataSource.Factory {
+    private final DataSource.Factory normal;
+    private final DataSource.Factory fast;
+    private final CdnRouter router;
+
+    Factory(Context ctx, CdnRouter router) {
+      this.router = router;
+      this.normal = new DefaultDataSource.Factory(ctx);
+      int t = router.firstByteTimeoutMs();
+      this.fast = new DefaultDataSource.Factory(ctx,
+        new DefaultHttpDataSource.Factory().setConnectTimeoutMs(t).setReadTimeoutMs(t));
+    }
+
+    @Override
+    public DataSource createDataSource() {
+      return new HostFailoverDataSource(normal, fast, router);
+    }
+  }
+
+  private final DataSource.Factory fastFactory;
+  private final CdnRouter router;
+  private final List<TransferListener> listeners = new ArrayList<>();
+  private final DataSource direct;
+  @Nullable private DataSource fastSource;
+  @Nullable private DataSource current;
+  @Nullable private Uri currentOrigin;
+  // scheme+host da URI pedida; a origem de fato fica só aqui dentro
+  @Nullable private Uri logicalOrigin;
+  private long openedAtMs;
+  private long bytesRead;
+
+  private HostFailoverDataSource(DataSource.Factory normal, DataSource.Factory fast, CdnRouter router) {
+    this.fastFactory = fast;
+    this.router = router;
+    this.direct = normal.createDataSource();
+  }
+
+  @Override
+  public void addTransferListener(TransferListener transferListener) {
+    listeners.add(transferListener);
+    direct.addTransferListener(transferListener);
+    if (fastSource != null) fastSource.addTransferListener(transferListener);
+  }
+
+  private DataSource fastSource() {
+    if (fastSource == null) {
+      fastSource = fastFactory.createDataSource();
+      for (TransferListener l : listeners) fastSource.addTransferListener(l);
+    }
+    return fastSource;
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    List<Uri> candidates = router.candidatesFor(dataSpec.uri);
+    currentOrigin = null;
+    logicalOrigin = null;
+    bytesRead = 0L;
+    if (candidates.isEmpty()) {
+      current = direct;
+      return direct.open(dataSpec);
+    }
+    for (int i = 0; i < candidates.size(); i++) {
+      Uri origin = candidates.get(i);
+      boolean last = i == candidates.size() - 1;
+      DataSource ds = last ? direct : fastSource();
+      long t0 = SystemClock.elapsedRealtime();
+      try {
+        long len = ds.open(dataSpec.withUri(CdnRouter.rewrite(dataSpec.uri, origin)));
+        openedAtMs = SystemClock.elapsedRealtime();
+        router.onOpen(origin, openedAtMs - t0);
+        current = ds;
+        currentOrigin = origin;
+        logicalOrigin = new Uri.Builder().scheme(dataSpec.uri.getScheme())
+          .encodedAuthority(dataSpec.uri.getEncodedAuthority()).build();
+        return len;
+      } catch (IOException e) {
+        try {
+          ds.close();
+        } catch (Exception ignored) {}
+        router.onError(origin);
+        if (last || !shouldFailOver(e)) throw e;
+      }
+    }
+    throw new IOException("no origin");
+  }
+
+  /** 401/403 são do token e 404 é igual em todas as origens: não troca. */
+  private static boolean shouldFailOver(IOException e) {
+    if (e instanceof HttpDataSource.InvalidResponseCodeException) {
+      int code = ((HttpDataSource.InvalidResponseCodeException) e).responseCode;
+      return code == 429 || code >= 500;
+    }
+    return !(e instanceof HttpDataSource.CleartextNotPermittedException);
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (current == null) throw new IOException("not open");
+    try {
+      int n = current.read(buffer, offset, length);
+      if (n > 0) bytesRead += n;
+      return n;
+    } catch (IOException e) {
+      if (currentOrigin != null) router.onError(currentOrigin);
+      currentOrigin = null;
+      throw e;
+    }
+  }
+
+  @Nullable
+  @Override
+  public Uri getUri() {
+    if (current == null) return null;
+    Uri u = current.getUri();
+    // redirect para outro host (fora das nossas origens) sobe como veio
+    if (u == null || logicalOrigin == null || currentOrigin == null
+      || !currentOrigin.getEncodedAuthority().equals(u.getEncodedAuthority())) {
+      return u;
+    }
+    return CdnRouter.rewrite(u, logicalOrigin);
+  }
+
+  @Override
+  public Map<String, List<String>> getResponseHeaders() {
+    return current != null ? current.getResponseHeaders() : Collections.emptyMap();
+  }
+
+  @Override
+  public void close() throws IOException {
+    DataSource ds = current;
+    current = null;
+    logicalOrigin = null;
+    if (currentOrigin != null) {
+      router.onTransfer(currentOrigin, bytesRead, SystemClock.elapsedRealtime() - openedAtMs);
+      currentOrigin = null;
+    }
+    if (ds != null) ds.close();
+  }
+}
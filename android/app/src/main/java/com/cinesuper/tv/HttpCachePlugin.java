@@ -0,0 +1,49 @@
+package com.cinesuper.tv;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+/** Regras e contadores do WebResponseCache (interceptação no TvWebViewClient). */
+@CapacitorPlugin(name = "HttpCachePlugin")
+public class HttpCachePlugin extends Plugin {
+
+  @PluginMethod
+  public void configure(PluginCall call) {
+    JSArray rules = call.getArray("rules");
+    if (rules == null) {
+      call.reject("missing_rules");
+      return;
+    }
+    try {
+      WebResponseCache.get(getContext()).configure(rules);
+      call.resolve();
+    } catch (Exception e) {
+      call.reject("invalid_rules", e);
+    }
+  }
+
+  @PluginMethod
+  public void getStats(PluginCall call) {
+    WebResponseCache c = WebResponseCache.get(getContext());
+    JSObject res = new JSObject();
+    res.put("hits", c.hits.get());
+    res.put("staleHits", c.staleHits.get());
+    res.put("misses", c.misses.get());
+    res.put("revalidations", c.revalidations.get());
+    res.put("offlineHits", c.offlineHits.get());
+    res.put("errors", c.errors.get());
+    res.put("diskBytes", c.diskBytes());
+    res.put("rules", c.ruleCount());
+    call.resolve(res);
+  }
+
+  @PluginMethod
+  public void clear(PluginCall call) {
+    WebResponseCache.get(getContext()).clear();
+    call.resolve();
+  }
+}
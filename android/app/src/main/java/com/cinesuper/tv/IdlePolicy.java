@@ -0,0 +1,114 @@
+package com.cinesuper.tv;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.Tracks;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+
+/**
+ * Pausa longa (usuário saiu da frente da TV): na metade do prazo apara os
+ * buffers; no prazo solta decoder e surface (stop) e guarda um snapshot —
+ * posição, idiomas selecionados e o último frame. No play, o plugin
+ * re-prepara a mesma fonte (playlists saem do HlsPlaylistCache) na posição
+ * do snapshot, com o frame como placeholder até o primeiro frame novo.
+ */
+final class IdlePolicy {
+  static final int NONE = 0;
+  static final int TRIM = 1;
+  static final int RELEASE = 2;
+  static final int RESUME = 3;
+  static final long DEFAULT_RELEASE_MS = 5 * 60_000L;
+  private static final long MIN_RELEASE_MS = 30_000L;
+
+  /** Estado salvo no release. Só main thread. */
+  static final class Snapshot {
+    long positionMs;
+    @Nullable String audioLanguage;
+    @Nullable String textLanguage;
+    boolean textEnabled;
+    @Nullable Bitmap frame;
+
+    Snapshot(long positionMs) {
+      this.positionMs = positionMs;
+    }
+
+    void captureTracks(Tracks tracks) {
+      for (Tracks.Group g : tracks.getGroups()) {
+        if (!g.isSelected()) continue;
+        for (int i = 0; i < g.length; i++) {
+          if (!g.isTrackSelected(i)) continue;
+          Format f = g.getTrackFormat(i);
+          if (g.getType() == C.TRACK_TYPE_AUDIO && audioLanguage == null) {
+            audioLanguage = f.language;
+          } else if (g.getType() == C.TRACK_TYPE_TEXT) {
+            textEnabled = true;
+            if (textLanguage == null) textLanguage = f.language;
+          }
+        }
+      }
+    }
+
+    /**
+     * Overrides manuais continuam valendo se os grupos voltarem iguais no
+     * re-prepare; os idiomas cobrem o caso em que não voltam.
+     */
+    void applyTracks(DefaultTrackSelector.Parameters.Builder builder) {
+      if (audioLanguage != null) builder.setPreferredAudioLanguage(audioLanguage);
+      if (textLanguage != null) builder.setPreferredTextLanguage(textLanguage);
+      builder.setTrackTypeDisabled(C.TRACK_TYPE_TEXT, !textEnabled);
+    }
+  }
+
+  private long releaseAfterMs = DEFAULT_RELEASE_MS;
+  private long pausedSinceMs = 0L;
+  private int step = NONE;
+
+  /** 0 desliga; abaixo de 30s vira 30s. */
+  void configure(long releaseAfterMs) {
+    this.releaseAfterMs = releaseAfterMs <= 0 ? 0L : Math.max(MIN_RELEASE_MS, releaseAfterMs);
+  }
+
+  int step() {
+    return step;
+  }
+
+  /**
+   * Tick de 1s. paused = pausado com mídia pronta (ou já solto). Devolve a
+   * ação a aplicar: TRIM, RELEASE, RESUME (voltou a tocar depois do TRIM).
+   */
+  int sample(boolean paused, long nowMs) {
+    if (!paused) {
+      pausedSinceMs = 0L;
+      if (step == TRIM) {
+        step = NONE;
+        return RESUME;
+      }
+      return NONE;
+    }
+    if (releaseAfterMs <= 0) return NONE;
+    if (pausedSinceMs == 0L) pausedSinceMs = nowMs;
+    long idle = nowMs - pausedSinceMs;
+    if (step < TRIM && idle >= releaseAfterMs / 2) {
+      step = TRIM;
+      return TRIM;
+    }
+    if (step < RELEASE && idle >= releaseAfterMs) {
+      step = RELEASE;
+      return RELEASE;
+    }
+    return NONE;
+  }
+
+  long idleMs(long nowMs) {
+    return pausedSinceMs > 0L ? nowMs - pausedSinceMs : 0L;
+  }
+
+  void reset() {
+    step = NONE;
+    pausedSinceMs = 0L;
+  }
+}
@@ -0,0 +1,58 @@
+package com.cinesuper.tv;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+
+import com.getcapacitor.JSObject;
+
+/**
+ * Preferência de áudio/legenda que vem no setSource. Entra nos parâmetros
+ * antes do prepare, então a primeira seleção já sai no idioma certo — sem
+ * esperar o evento "tracks" e trocar de faixa (que re-bufferiza o áudio).
+ * Os ids do TrackRegistry não existem antes do prepare; aqui só idioma.
+ */
+final class InitialTracks {
+  static final InitialTracks NONE = new InitialTracks(null, null, null);
+
+  @Nullable final String audioLanguage;
+  @Nullable final String textLanguage;
+  // null = mantém o que estava (legenda padrão/forçada do stream)
+  @Nullable final Boolean textEnabled;
+
+  private InitialTracks(@Nullable String audioLanguage, @Nullable String textLanguage, @Nullable Boolean textEnabled) {
+    this.audioLanguage = audioLanguage;
+    this.textLanguage = textLanguage;
+    this.textEnabled = textEnabled;
+  }
+
+  /** { audioLanguage?, textLanguage?, textEnabled? } */
+  static InitialTracks from(JSObject args) {
+    String audio = trimToNull(args.getString("audioLanguage"));
+    String text = trimToNull(args.getString("textLanguage"));
+    Boolean enabled = args.has("textEnabled") ? args.getBoolean("textEnabled", false) : null;
+    if (audio == null && text == null && enabled == null) return NONE;
+    return new InitialTracks(audio, text, enabled);
+  }
+
+  void apply(DefaultTrackSelector.Parameters.Builder builder) {
+    if (this == NONE) return;
+    // overrides da fonte anterior apontam para grupos que não existem mais
+    if (audioLanguage != null) {
+      builder.clearOverridesOfType(C.TRACK_TYPE_AUDIO);
+      builder.setPreferredAudioLanguage(audioLanguage);
+    }
+    if (textLanguage != null || textEnabled != null) {
+      builder.clearOverridesOfType(C.TRACK_TYPE_TEXT);
+    }
+    if (textLanguage != null) builder.setPreferredTextLanguage(textLanguage);
+    if (textEnabled != null) builder.setTrackTypeDisabled(C.TRACK_TYPE_TEXT, !textEnabled);
+  }
+
+  @Nullable
+  private static String trimToNull(@Nullable String s) {
+    if (s == null) return null;
+    String t = s.trim();
+    return t.isEmpty() ? null : t;
+  }
+}
@@ -3,6 +3,8 @@ package com.cinesuper.tv;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.os.Build;
+import android.os.SystemClock;
+import android.view.KeyEvent;
 import android.view.View;
 import android.view.WindowInsets;
 import android.view.WindowInsetsController;
@@ -13,10 +15,19 @@ import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.PluginHandle;
 import android.util.Log;
 
   public class MainActivity extends BridgeActivity {
     private static final String TAG = "CineSuperExo";
+    // ↑↑↓↓←→←→ em até 4s: painel de stats do player (suporte)
+    private static final int[] STATS_COMBO = {
+      KeyEvent.KEYCODE_DPAD_UP, KeyEvent.KEYCODE_DPAD_UP, KeyEvent.KEYCODE_DPAD_DOWN, KeyEvent.KEYCODE_DPAD_DOWN,
+      KeyEvent.KEYCODE_DPAD_LEFT, KeyEvent.KEYCODE_DPAD_RIGHT, KeyEvent.KEYCODE_DPAD_LEFT, KeyEvent.KEYCODE_DPAD_RIGHT
+    };
+    private static final long STATS_COMBO_WINDOW_MS = 4_000L;
+    private int comboIndex = 0;
+    private long comboStartMs = 0L;
 
   private void applyImmersive() {
     try {
@@ -43,11 +54,22 @@ import android.util.Log;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
+    TvLog.init(this);
     registerPlugin(UpdatePlugin.class);
     registerPlugin(ExoPlayerPlugin.class);
+    registerPlugin(ArtworkPlugin.class);
+    registerPlugin(HttpCachePlugin.class);
     super.onCreate(savedInstanceState);
-    Log.w("Capacitor/ExoPlayerPlugin", "MainActivity build=2026-02-08T02:40Z");
-    Log.e(TAG, "MainActivity onCreate (BUILD=2026-02-08T02:40Z)");
+
+    // GETs com regra de cache (catálogo/Top 10/gêneros) saem do cache nativo
+    try {
+      if (getBridge() != null && getBridge().getWebView() != null) {
+        getBridge().setWebViewClient(new TvWebViewClient(getBridge()));
+      }
+    } catch (Exception e) {
+      Log.w(TAG, "TvWebViewClient install failed", e);
+    }
+    TvLog.i("MainActivity onCreate", "build=2026-02-08T02:40Z");
     try {
       WindowCompat.setDecorFitsSystemWindows(getWindow(), false);
     } catch (Exception ignored) {}
@@ -78,7 +100,7 @@ import android.util.Log;
   @Override
   public void onResume() {
     super.onResume();
-    Log.e(TAG, "MainActivity onResume");
+    TvLog.i("MainActivity onResume");
     applyImmersive();
     try {
       if (getBridge() != null && getBridge().getWebView() != null) {
@@ -89,6 +111,35 @@ import android.util.Log;
     } catch (Exception ignored) {}
   }
 
+  @Override
+  public boolean dispatchKeyEvent(KeyEvent event) {
+    // só observa: a tecla segue para o WebView normalmente
+    if (event.getAction() == KeyEvent.ACTION_DOWN && event.getRepeatCount() == 0) trackStatsCombo(event.getKeyCode());
+    return super.dispatchKeyEvent(event);
+  }
+
+  private void trackStatsCombo(int keyCode) {
+    long now = SystemClock.elapsedRealtime();
+    if (comboIndex > 0 && now - comboStartMs > STATS_COMBO_WINDOW_MS) comboIndex = 0;
+    if (keyCode != STATS_COMBO[comboIndex]) {
+      comboIndex = keyCode == STATS_COMBO[0] ? 1 : 0;
+      if (comboIndex == 1) comboStartMs = now;
+      return;
+    }
+    if (comboIndex == 0) comboStartMs = now;
+    comboIndex++;
+    if (comboIndex < STATS_COMBO.length) return;
+    comboIndex = 0;
+    try {
+      PluginHandle h = getBridge() != null ? getBridge().getPlugin("ExoPlayerPlugin") : null;
+      if (h != null && h.getInstance() instanceof ExoPlayerPlugin) {
+        ((ExoPlayerPlugin) h.getInstance()).toggleStatsOverlay();
+      }
+    } catch (Exception e) {
+      Log.w(TAG, "stats overlay toggle failed", e);
+    }
+  }
+
   @Override
   public void onWindowFocusChanged(boolean hasFocus) {
     super.onWindowFocusChanged(hasFocus);
@@ -0,0 +1,84 @@
+package com.cinesuper.tv;
+
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Medição de rede antes do setSource: um GET com Range pequeno contra o
+ * gateway. TTFB = até os headers chegarem; banda = bytes do corpo sobre o
+ * tempo depois do primeiro byte (fora o handshake, que o ABR não vê em
+ * conexão reaproveitada).
+ */
+final class NetworkProbe {
+  static final int DEFAULT_BYTES = 512 * 1024;
+  static final int MIN_BYTES = 64 * 1024;
+  static final int MAX_BYTES = 4 * 1024 * 1024;
+  static final int DEFAULT_TIMEOUT_MS = 4000;
+
+  final long ttfbMs;
+  final long bytes;
+  final long transferMs;
+  final long throughputBps;
+  final int httpCode;
+
+  private NetworkProbe(long ttfbMs, long bytes, long transferMs, int httpCode) {
+    this.ttfbMs = ttfbMs;
+    this.bytes = bytes;
+    this.transferMs = transferMs;
+    this.httpCode = httpCode;
+    this.throughputBps = transferMs > 0 ? bytes * 8000L / transferMs : 0L;
+  }
+
+  static int clampBytes(int bytes) {
+    if (bytes <= 0) return DEFAULT_BYTES;
+    return Math.max(MIN_BYTES, Math.min(bytes, MAX_BYTES));
+  }
+
+  /** Bloqueante; chamar fora da main thread. timeoutMs vale para a medição inteira. */
+  static NetworkProbe run(String url, int bytes, int timeoutMs) throws IOException {
+    int want = clampBytes(bytes);
+    int timeout = timeoutMs > 0 ? timeoutMs : DEFAULT_TIMEOUT_MS;
+    long t0 = SystemClock.elapsedRealtime();
+    long deadline = t0 + timeout;
+
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setConnectTimeout(timeout);
+    conn.setReadTimeout(timeout);
+    conn.setUseCaches(false);
+    conn.setRequestProperty("Range", "bytes=0-" + (want - 1));
+    // gzip mediria a CPU, não o link
+    conn.setRequestProperty("Accept-Encoding", "identity");
+    try {
+      int code = conn.getResponseCode();
+      long ttfb = SystemClock.elapsedRealtime() - t0;
+      if (code != 200 && code != 206) throw new IOException("http " + code);
+
+      long total = 0L;
+      long measured = 0L;
+      long firstByteAt = 0L;
+      long lastByteAt = 0L;
+      byte[] buf = new byte[16 * 1024];
+      try (InputStream in = conn.getInputStream()) {
+        while (total < want) {
+          int n = in.read(buf, 0, (int) Math.min(buf.length, want - total));
+          long now = SystemClock.elapsedRealtime();
+          if (n < 0) break;
+          total += n;
+          // o primeiro bloco costuma vir junto com os headers; mede a partir dele
+          if (firstByteAt == 0L) firstByteAt = now;
+          else measured += n;
+          lastByteAt = now;
+          if (now >= deadline) break;
+        }
+      }
+      long elapsed = firstByteAt > 0L ? lastByteAt - firstByteAt : 0L;
+      return new NetworkProbe(ttfb, measured, elapsed, code);
+    } finally {
+      conn.disconnect();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Token atual do gateway (?t=) para o host da fonte principal. Requisições
+ * para esse host saem sempre com o token mais novo; num 401/403 o loader
+ * espera aqui até o JS mandar um token novo (evento "tokenExpired" ->
+ * updateToken) e repete a mesma requisição, sem re-prepare.
+ */
+final class PlaybackToken {
+  private static final String TAG = "CineSuperExo";
+  static final String PARAM = "t";
+
+  interface Listener {
+    void onTokenExpired(int httpStatus, long version);
+  }
+
+  @Nullable private String host;
+  @Nullable private String token;
+  private long version = 0L;
+  private long requestedForVersion = -1L;
+  static final long DEFAULT_WAIT_MS = 15_000L;
+  private long waitMs = DEFAULT_WAIT_MS;
+  @Nullable private Listener listener;
+
+  synchronized void setListener(@Nullable Listener l) {
+    listener = l;
+  }
+
+  synchronized void setWaitMs(long ms) {
+    if (ms > 0) waitMs = ms;
+  }
+
+  /** Nova fonte: host e token vêm da URL do master. */
+  synchronized void reset(@Nullable String url) {
+    host = null;
+    token = null;
+    if (url == null) return;
+    try {
+      Uri u = Uri.parse(url);
+      host = u.getHost();
+      token = u.getQueryParameter(PARAM);
+    } catch (Exception ignored) {}
+    version++;
+    requestedForVersion = -1L;
+    notifyAll();
+  }
+
+  synchronized void update(String newToken) {
+    if (newToken == null || newToken.isEmpty() || newToken.equals(token)) return;
+    token = newToken;
+    version++;
+    Log.i(TAG, "playback token updated v" + version);
+    notifyAll();
+  }
+
+  synchronized long version() {
+    return version;
+  }
+
+  /** Troca o ?t= pelo token atual, só para o host da fonte. */
+  synchronized Uri apply(Uri uri) {
+    if (token == null || host == null || !host.equals(uri.getHost())) return uri;
+    String cur = uri.getQueryParameter(PARAM);
+    if (cur == null || cur.equals(token)) return uri;
+    Uri.Builder b = uri.buildUpon().clearQuery();
+    for (String name : uri.getQueryParameterNames()) {
+      if (PARAM.equals(name)) {
+        b.appendQueryParameter(PARAM, token);
+        continue;
+      }
+      for (String v : uri.getQueryParameters(name)) b.appendQueryParameter(name, v);
+    }
+    return b.build();
+  }
+
+  synchronized boolean covers(Uri uri) {
+    return host != null && host.equals(uri.getHost()) && uri.getQueryParameter(PARAM) != null;
+  }
+
+  /**
+   * Chamado da thread do loader. Pede um token novo uma vez por versão e
+   * bloqueia até ele chegar ou estourar o tempo. true = há token novo.
+   */
+  boolean awaitRefresh(long seenVersion, int httpStatus) {
+    Listener l;
+    long deadline;
+    synchronized (this) {
+      if (version != seenVersion) return true;
+      l = requestedForVersion != seenVersion ? listener : null;
+      requestedForVersion = seenVersion;
+      deadline = System.currentTimeMillis() + waitMs;
+    }
+    if (l != null) {
+      try {
+        l.onTokenExpired(httpStatus, seenVersion);
+      } catch (Exception ignored) {}
+    }
+    synchronized (this) {
+      while (version == seenVersion) {
+        long left = deadline - System.currentTimeMillis();
+        if (left <= 0) return false;
+        try {
+          wait(left);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+package com.cinesuper.tv;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Dono do player principal: estado explícito + fila de comandos drenada só
+ * na main thread (a mesma looper do ExoPlayer). Os métodos do plugin chegam
+ * pela thread do bridge e só enfileiram; o estado e os campos do player são
+ * lidos e escritos apenas dentro dos comandos e dos callbacks do player.
+ *
+ * Coalescência: um setSource novo descarta o setSource e os seeks ainda na
+ * fila (miravam a fonte antiga); seek e play/pause pendentes são trocados
+ * pelo último.
+ */
+final class PlayerCommands {
+  static final int IDLE = 0;
+  static final int PREPARING = 1;
+  static final int READY = 2;
+  static final int RECOVERING = 3;
+  static final int RELEASED = 4;
+  private static final String[] STATE_NAMES = { "idle", "preparing", "ready", "recovering", "released" };
+
+  // transições permitidas a partir de cada estado (bit = estado destino)
+  private static final int[] ALLOWED = {
+    bits(PREPARING, READY, RELEASED),
+    bits(PREPARING, READY, RECOVERING, IDLE, RELEASED),
+    bits(PREPARING, RECOVERING, IDLE, RELEASED),
+    bits(PREPARING, READY, IDLE, RELEASED),
+    bits(IDLE),
+  };
+
+  static final int CMD_SOURCE = 1;
+  static final int CMD_SEEK = 2;
+  static final int CMD_PLAY_PAUSE = 3;
+  static final int CMD_OTHER = 4;
+
+  private static final class Command {
+    final int kind;
+    final Runnable action;
+
+    Command(int kind, Runnable action) {
+      this.kind = kind;
+      this.action = action;
+    }
+  }
+
+  private final Handler main = new Handler(Looper.getMainLooper());
+  private final ArrayDeque<Command> queue = new ArrayDeque<>();
+  private boolean drainPosted = false;
+  private int coalesced = 0;
+  // só main thread
+  private int state = RELEASED;
+
+  private final Runnable drain = this::drain;
+
+  /** Qualquer thread. */
+  void submit(int kind, Runnable action) {
+    synchronized (queue) {
+      coalesce(kind);
+      queue.addLast(new Command(kind, action));
+      if (drainPosted) return;
+      drainPosted = true;
+    }
+    main.post(drain);
+  }
+
+  /** Lote em ordem, sem submit de outra thread no meio; cada um coalesce pelo seu tipo. */
+  void submitAll(int[] kinds, Runnable[] actions) {
+    synchronized (queue) {
+      for (int i = 0; i < kinds.length; i++) {
+        coalesce(kinds[i]);
+        queue.addLast(new Command(kinds[i], actions[i]));
+      }
+      if (drainPosted) return;
+      drainPosted = true;
+    }
+    main.post(drain);
+  }
+
+  private void coalesce(int kind) {
+    if (kind == CMD_OTHER) return;
+    Iterator<Command> it = queue.iterator();
+    while (it.hasNext()) {
+      int k = it.next().kind;
+      boolean drop = k == kind || (kind == CMD_SOURCE && k == CMD_SEEK);
+      if (drop) {
+        it.remove();
+        coalesced++;
+      }
+    }
+  }
+
+  /** Há setSource na fila? (a recuperação não re-prepara uma fonte que vai sair) */
+  boolean hasPending(int kind) {
+    synchronized (queue) {
+      for (Command c : queue) {
+        if (c.kind == kind) return true;
+      }
+    }
+    return false;
+  }
+
+  int coalescedCount() {
+    synchronized (queue) {
+      return coalesced;
+    }
+  }
+
+  private void drain() {
+    while (true) {
+      Command c;
+      synchronized (queue) {
+        c = queue.pollFirst();
+        if (c == null) {
+          drainPosted = false;
+          return;
+        }
+      }
+      try {
+        c.action.run();
+      } catch (Exception e) {
+        TvLog.e("player command failed", e);
+      }
+    }
+  }
+
+  void clear() {
+    synchronized (queue) {
+      queue.clear();
+    }
+  }
+
+  // ===== estado (main thread) =====
+
+  int state() {
+    return state;
+  }
+
+  boolean is(int s) {
+    return state == s;
+  }
+
+  /** Falso (e nada muda) se a transição não é permitida. */
+  boolean moveTo(int next) {
+    if (state == next && next != PREPARING) return true;
+    if ((ALLOWED[state] & (1 << next)) == 0) {
+      // (de, para) pelos índices de STATE_NAMES
+      TvLog.w("player state rejected", state, next);
+      return false;
+    }
+    state = next;
+    TvLog.i("player state", STATE_NAMES[next]);
+    return true;
+  }
+
+  String stateName() {
+    return STATE_NAMES[state];
+  }
+
+  private static int bits(int... states) {
+    int b = 0;
+    for (int s : states) b |= 1 << s;
+    return b;
+  }
+}
@@ -0,0 +1,125 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.C;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DataSource que serve .m3u8 do HlsPlaylistCache e grava os que baixa.
+ * Segmentos e qualquer outra coisa passam direto para o upstream. Hits não
+ * passam pelo TransferListener, então não contaminam a estimativa de banda.
+ */
+final class PlaylistCachingDataSource implements DataSource {
+
+  static final class Factory implements DataSource.Factory {
+    private final DataSource.Factory upstreamFactory;
+
+    Factory(DataSource.Factory upstreamFactory) {
+      this.upstreamFactory = upstreamFactory;
+    }
+
+    @Override
+    public DataSource createDataSource() {
+      return new PlaylistCachingDataSource(upstreamFactory.createDataSource());
+    }
+  }
+
+  private final DataSource upstream;
+  private boolean upstreamOpen;
+  @Nullable private byte[] data;
+  private int readPos;
+  @Nullable private Uri uri;
+  private Map<String, List<String>> responseHeaders = Collections.emptyMap();
+
+  PlaylistCachingDataSource(DataSource upstream) {
+    this.upstream = upstream;
+  }
+
+  @Override
+  public void addTransferListener(TransferListener transferListener) {
+    upstream.addTransferListener(transferListener);
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    uri = dataSpec.uri;
+    // ranges parciais são raros em playlist; não vale a pena cachear
+    if (!HlsPlaylistCache.isPlaylistUri(dataSpec.uri) || dataSpec.position != 0
+      || dataSpec.length != C.LENGTH_UNSET) {
+      upstreamOpen = true;
+      return upstream.open(dataSpec);
+    }
+
+    HlsPlaylistCache cache = HlsPlaylistCache.get();
+    byte[] cached = cache.getBytes(dataSpec.uri);
+    if (cached != null) {
+      data = cached;
+      readPos = 0;
+      return data.length;
+    }
+
+    try {
+      upstream.open(dataSpec);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(16 * 1024);
+      byte[] buf = new byte[8 * 1024];
+      int n;
+      while ((n = upstream.read(buf, 0, buf.length)) != C.RESULT_END_OF_INPUT) {
+        out.write(buf, 0, n);
+      }
+      data = out.toByteArray();
+      responseHeaders = upstream.getResponseHeaders();
+      Uri finalUri = upstream.getUri();
+      if (finalUri != null) uri = finalUri;
+    } finally {
+      upstream.close();
+    }
+    cache.put(dataSpec.uri, new String(data, StandardCharsets.UTF_8));
+    readPos = 0;
+    return data.length;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (upstreamOpen) return upstream.read(buffer, offset, length);
+    if (length == 0) return 0;
+    if (data == null || readPos >= data.length) return C.RESULT_END_OF_INPUT;
+    int n = Math.min(length, data.length - readPos);
+    System.arraycopy(data, readPos, buffer, offset, n);
+    readPos += n;
+    return n;
+  }
+
+  @Nullable
+  @Override
+  public Uri getUri() {
+    return upstreamOpen ? upstream.getUri() : uri;
+  }
+
+  @Override
+  public Map<String, List<String>> getResponseHeaders() {
+    return upstreamOpen ? upstream.getResponseHeaders() : responseHeaders;
+  }
+
+  @Override
+  public void close() throws IOException {
+    boolean wasOpen = upstreamOpen;
+    upstreamOpen = false;
+    data = null;
+    readPos = 0;
+    uri = null;
+    responseHeaders = Collections.emptyMap();
+    if (wasOpen) upstream.close();
+  }
+}
@@ -0,0 +1,141 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.C;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serve segmentos já pré-buscados pelo SegmentPrefetcher (mesmo os que
+ * ainda estão chegando) e avisa o prefetcher de cada segmento aberto para
+ * ele agendar os próximos. Se a busca falha no meio, o resto vem do
+ * upstream a partir do byte onde parou.
+ */
+final class PrefetchingDataSource implements DataSource {
+
+  static final class Factory implements DataSource.Factory {
+    private final DataSource.Factory upstreamFactory;
+    private final SegmentPrefetcher prefetcher;
+
+    Factory(DataSource.Factory upstreamFactory, SegmentPrefetcher prefetcher) {
+      this.upstreamFactory = upstreamFactory;
+      this.prefetcher = prefetcher;
+    }
+
+    @Override
+    public DataSource createDataSource() {
+      return new PrefetchingDataSource(upstreamFactory.createDataSource(), prefetcher);
+    }
+  }
+
+  private final DataSource upstream;
+  private final SegmentPrefetcher prefetcher;
+  private boolean upstreamOpen;
+  @Nullable private SegmentPrefetcher.Entry entry;
+  @Nullable private DataSpec spec;
+  private int readPos;
+
+  PrefetchingDataSource(DataSource upstream, SegmentPrefetcher prefetcher) {
+    this.upstream = upstream;
+    this.prefetcher = prefetcher;
+  }
+
+  @Override
+  public void addTransferListener(TransferListener transferListener) {
+    upstream.addTransferListener(transferListener);
+    // as buscas paralelas contam para o bandwidth meter como as do loader
+    prefetcher.addTransferListener(transferListener);
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    SegmentPrefetcher.Entry e = HlsPlaylistCache.isPlaylistUri(dataSpec.uri)
+      ? null
+      : prefetcher.onSegmentOpen(dataSpec);
+    if (e != null) {
+      long len;
+      try {
+        len = e.awaitOpen();
+      } catch (InterruptedException ie) {
+        prefetcher.abandon(e);
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      if (len != -2L) {
+        entry = e;
+        spec = dataSpec;
+        readPos = 0;
+        return dataSpec.length != C.LENGTH_UNSET ? dataSpec.length : len;
+      }
+      prefetcher.abandon(e);
+    }
+    upstreamOpen = true;
+    return upstream.open(dataSpec);
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    if (upstreamOpen) return upstream.read(buffer, offset, length);
+    if (length == 0) return 0;
+    SegmentPrefetcher.Entry e = entry;
+    if (e == null || spec == null) throw new IOException("not open");
+    int n;
+    try {
+      n = e.read(readPos, buffer, offset, length);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    if (n == -2) {
+      // busca caiu no meio: continua do upstream de onde parou
+      TvLog.d("prefetch fallback", e.index, readPos);
+      DataSpec rest = spec.subrange(readPos);
+      entry = null;
+      prefetcher.abandon(e);
+      upstreamOpen = true;
+      upstream.open(rest);
+      return upstream.read(buffer, offset, length);
+    }
+    if (n > 0) readPos += n;
+    return n;
+  }
+
+  @Nullable
+  @Override
+  public Uri getUri() {
+    if (upstreamOpen) return upstream.getUri();
+    SegmentPrefetcher.Entry e = entry;
+    if (e == null) return null;
+    Uri u = e.finalUri();
+    return u != null ? u : e.uri;
+  }
+
+  @Override
+  public Map<String, List<String>> getResponseHeaders() {
+    if (upstreamOpen) return upstream.getResponseHeaders();
+    SegmentPrefetcher.Entry e = entry;
+    return e != null ? e.headers() : Collections.emptyMap();
+  }
+
+  @Override
+  public void close() throws IOException {
+    boolean wasOpen = upstreamOpen;
+    upstreamOpen = false;
+    SegmentPrefetcher.Entry e = entry;
+    entry = null;
+    spec = null;
+    readPos = 0;
+    if (e != null) prefetcher.abandon(e);
+    if (wasOpen) upstream.close();
+  }
+}
@@ -0,0 +1,161 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+import android.graphics.Matrix;
+import android.net.Uri;
+import android.util.Log;
+import android.view.TextureView;
+import android.view.ViewGroup;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.Player;
+import androidx.media3.common.VideoSize;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.RenderersFactory;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.exoplayer.upstream.LoadErrorHandlingPolicy;
+
+/**
+ * Segunda instância de player, leve, para trailers do Billboard/Top10.
+ * Buffer mínimo (TvLoadControl.PREVIEW), resolução limitada e TextureView
+ * próprio num retângulo. No "play" o plugin pode promover esta instância a
+ * player principal e aproveitar o que já está em buffer — por isso usa o
+ * mesmo renderers factory e a mesma cadeia de data sources (token, retry,
+ * failover) do principal, e uma AbrPolicy própria (o filtro de cor da fonte
+ * principal não vale para o trailer).
+ */
+final class PreviewPlayer {
+  private static final String TAG = "CineSuperExo";
+
+  final int handle;
+  final ExoPlayer player;
+  final AbrPolicy abrPolicy;
+  final DefaultTrackSelector trackSelector;
+  final TvLoadControl loadControl;
+  final TextureView textureView;
+  private Player.Listener listener;
+  private final Player.Listener coverListener;
+  final PlaybackToken token;
+  @Nullable private final LoadErrorHandlingPolicy errorPolicy;
+  @Nullable private final CdnRouter router;
+  @Nullable String url;
+  private int videoW = 0;
+  private int videoH = 0;
+
+  PreviewPlayer(Context ctx, int handle, AbrPolicy abrPolicy, RenderersFactory renderersFactory,
+                PlaybackToken token, @Nullable LoadErrorHandlingPolicy errorPolicy,
+                @Nullable CdnRouter router, int maxW, int maxH) {
+    this.handle = handle;
+    this.abrPolicy = abrPolicy;
+    this.token = token;
+    this.errorPolicy = errorPolicy;
+    this.router = router;
+    trackSelector = new DefaultTrackSelector(ctx, abrPolicy);
+    DefaultTrackSelector.Parameters.Builder builder = trackSelector.buildUponParameters();
+    builder.setMaxVideoSize(maxW, maxH);
+    builder.setExceedVideoConstraintsIfNecessary(true);
+    trackSelector.setParameters(builder);
+
+    loadControl = new TvLoadControl(TvLoadControl.PREVIEW);
+    player = new ExoPlayer.Builder(ctx, renderersFactory)
+      .setTrackSelector(trackSelector)
+      .setLoadControl(loadControl)
+      .build();
+
+    textureView = new TextureView(ctx);
+    textureView.setOpaque(true);
+    player.setVideoTextureView(textureView);
+    coverListener = new Player.Listener() {
+      @Override
+      public void onVideoSizeChanged(VideoSize videoSize) {
+        videoW = Math.max(0, videoSize.width);
+        videoH = Math.max(0, videoSize.height);
+        applyCover();
+      }
+    };
+    player.addListener(coverListener);
+  }
+
+  void setListener(Player.Listener l) {
+    if (listener != null) player.removeListener(listener);
+    listener = l;
+    if (l != null) player.addListener(l);
+  }
+
+  void attach(ViewGroup parent, int x, int y, int w, int h) {
+    ViewGroup.MarginLayoutParams lp = new ViewGroup.MarginLayoutParams(w, h);
+    // atrás do WebView, como o TextureView principal
+    parent.addView(textureView, 0, lp);
+    setRect(x, y, w, h);
+  }
+
+  void setRect(int x, int y, int w, int h) {
+    ViewGroup.LayoutParams lp = textureView.getLayoutParams();
+    if (lp != null) {
+      lp.width = Math.max(1, w);
+      lp.height = Math.max(1, h);
+      textureView.setLayoutParams(lp);
+    }
+    textureView.setX(x);
+    textureView.setY(y);
+    applyCover();
+  }
+
+  void setSource(String url, long startMs, boolean muted, boolean loop) {
+    this.url = url;
+    token.reset(url);
+    MediaItem.Builder b = new MediaItem.Builder().setUri(Uri.parse(url));
+    String lower = url.toLowerCase();
+    if (lower.contains(".m3u8")) b.setMimeType(MimeTypes.APPLICATION_M3U8);
+    else if (lower.contains(".mp4")) b.setMimeType(MimeTypes.VIDEO_MP4);
+    player.setVolume(muted ? 0f : 1f);
+    player.setRepeatMode(loop ? Player.REPEAT_MODE_ONE : Player.REPEAT_MODE_OFF);
+    // sem pré-busca: o trailer tem buffer de poucos segundos
+    player.setMediaSource(
+      TvMediaSources.create(textureView.getContext(), b.build(), false, token, errorPolicy, router, null),
+      Math.max(0, startMs)
+    );
+    player.prepare();
+  }
+
+  /** Solta o TextureView do preview; o player continua vivo para o hand-off. */
+  void detachForHandOff() {
+    setListener(null);
+    player.removeListener(coverListener);
+    try {
+      player.clearVideoTextureView(textureView);
+    } catch (Exception ignored) {}
+    removeView();
+  }
+
+  void release() {
+    setListener(null);
+    try {
+      player.clearVideoTextureView(textureView);
+    } catch (Exception ignored) {}
+    player.release();
+    removeView();
+    Log.i(TAG, "preview " + handle + " released");
+  }
+
+  private void removeView() {
+    ViewGroup parent = (ViewGroup) textureView.getParent();
+    if (parent != null) parent.removeView(textureView);
+  }
+
+  // equivalente a object-fit: cover
+  private void applyCover() {
+    int vw = textureView.getLayoutParams() != null ? textureView.getLayoutParams().width : 0;
+    int vh = textureView.getLayoutParams() != null ? textureView.getLayoutParams().height : 0;
+    if (vw <= 0 || vh <= 0 || videoW <= 0 || videoH <= 0) return;
+    float scale = Math.max(vw / (float) videoW, vh / (float) videoH);
+    float sx = videoW * scale / vw;
+    float sy = videoH * scale / vh;
+    Matrix m = new Matrix();
+    m.setScale(sx, sy, vw / 2f, vh / 2f);
+    textureView.setTransform(m);
+  }
+}
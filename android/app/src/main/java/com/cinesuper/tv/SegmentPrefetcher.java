@@ -0,0 +1,542 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.UriUtil;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist;
+import androidx.media3.exoplayer.hls.playlist.HlsMultivariantPlaylist;
+
+import com.getcapacitor.JSObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pré-busca dos próximos segmentos da variante em uso. O loader do HLS baixa
+ * um segmento por vez por faixa; com RTT alto até o gateway a banda útil
+ * fica presa na latência de cada requisição. Quando o loader abre o
+ * segmento i, os segmentos i+1..i+N da mesma playlist já saem em paralelo
+ * (concorrência limitada) para um buffer em memória de vida curta, e o
+ * PrefetchingDataSource serve dali — inclusive enquanto ainda está chegando.
+ *
+ * Os índices vêm das media playlists parseadas (HlsPlaylistCache.ParserFactory).
+ * Vídeo e áudio têm janelas separadas: segmento de outra playlist do mesmo
+ * grupo é troca de variante, índice fora de sequência é seek — nos dois
+ * casos o que estava em voo para a janela antiga é cancelado.
+ *
+ * As buscas passam pelo mesmo TransferListener do loader, então o
+ * bandwidth meter vê a vazão agregada; servir do buffer não conta de novo.
+ *
+ * Memória: cada entrada reserva no orçamento comum (MAX_BUFFERED_BYTES) o
+ * tamanho do corpo assim que a resposta abre e, sem Content-Length, bloco a
+ * bloco enquanto chega. Estourou: a busca para e o loader continua do
+ * upstream de onde ela parou. A reserva volta quando a entrada sai do mapa
+ * sem ser lida ou quando o loader fecha.
+ */
+final class SegmentPrefetcher {
+  static final int DEFAULT_AHEAD = 2;
+  static final int MAX_AHEAD = 6;
+  static final int DEFAULT_CONCURRENCY = 2;
+  static final int MAX_CONCURRENCY = 4;
+  private static final long MAX_BUFFERED_BYTES = 48L * 1024 * 1024;
+  private static final int MAX_ENTRY_BYTES = 24 * 1024 * 1024;
+  // blocos fixos: crescer não copia o que já chegou
+  private static final int CHUNK_BYTES = 64 * 1024;
+  private static final long TTL_MS = 30_000L;
+  private static final int MAX_PLAYLISTS = 24;
+
+  static final int GROUP_VIDEO = 0;
+  static final int GROUP_AUDIO = 1;
+
+  /** Segmentos de uma media playlist, já resolvidos contra a baseUri. */
+  private static final class PlaylistRef {
+    final String key;
+    final int group;
+    final Uri[] uris;
+    final long[] positions;
+    final long[] lengths;
+
+    PlaylistRef(String key, int group, int size) {
+      this.key = key;
+      this.group = group;
+      this.uris = new Uri[size];
+      this.positions = new long[size];
+      this.lengths = new long[size];
+    }
+  }
+
+  private static final class Loc {
+    final PlaylistRef ref;
+    final int index;
+
+    Loc(PlaylistRef ref, int index) {
+      this.ref = ref;
+      this.index = index;
+    }
+  }
+
+  private static final class Window {
+    @Nullable PlaylistRef ref;
+    int lastIndex = -1;
+  }
+
+  /** Um segmento em voo ou pronto. Escrito pela thread da busca, lido pelo loader. */
+  static final class Entry {
+    final String key;
+    final Uri uri;
+    final long position;
+    final long length;
+    final int group;
+    final int index;
+    final long createdAtMs = SystemClock.elapsedRealtime();
+    private final AtomicLong budget;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int size = 0;
+    private long reserved = 0L;
+    private boolean released = false;
+    private long openLength = C.LENGTH_UNSET;
+    private boolean started = false;
+    private boolean opened = false;
+    private boolean done = false;
+    private boolean failed = false;
+    private boolean claimed = false;
+    volatile boolean cancelled = false;
+    @Nullable private Uri finalUri;
+    private Map<String, List<String>> headers = new HashMap<>();
+
+    Entry(String key, Uri uri, long position, long length, int group, int index, AtomicLong budget) {
+      this.key = key;
+      this.uri = uri;
+      this.position = position;
+      this.length = length;
+      this.group = group;
+      this.index = index;
+      this.budget = budget;
+    }
+
+    synchronized boolean markStarted() {
+      if (cancelled || claimed) return false;
+      started = true;
+      return true;
+    }
+
+    /** Falso se a busca nem começou: aí o loader baixa direto. */
+    synchronized boolean claim() {
+      if (!started || cancelled || failed) {
+        cancelled = true;
+        return false;
+      }
+      claimed = true;
+      return true;
+    }
+
+    /** Falso (sem abrir) se o corpo não cabe: o loader baixa direto. */
+    synchronized boolean onOpen(long len, @Nullable Uri uri, Map<String, List<String>> responseHeaders) {
+      if (released || cancelled || len > MAX_ENTRY_BYTES) return false;
+      if (len > 0 && !reserveUpTo(len)) return false;
+      openLength = len;
+      finalUri = uri;
+      headers = responseHeaders;
+      opened = true;
+      notifyAll();
+      return true;
+    }
+
+    /** Falso = parar a busca (cancelada, grande demais ou sem orçamento). */
+    synchronized boolean append(byte[] buf, int n) {
+      if (released || cancelled || size + n > MAX_ENTRY_BYTES) return false;
+      int need = (size + n + CHUNK_BYTES - 1) / CHUNK_BYTES;
+      if (need > chunks.size() && !reserveUpTo((long) need * CHUNK_BYTES)) return false;
+      int off = 0;
+      while (off < n) {
+        int c = size / CHUNK_BYTES;
+        if (c == chunks.size()) chunks.add(new byte[CHUNK_BYTES]);
+        int at = size % CHUNK_BYTES;
+        int k = Math.min(n - off, CHUNK_BYTES - at);
+        System.arraycopy(buf, off, chunks.get(c), at, k);
+        off += k;
+        size += k;
+      }
+      notifyAll();
+      return true;
+    }
+
+    /** Leva a reserva desta entrada até bytes, se o orçamento comum deixar. */
+    private boolean reserveUpTo(long bytes) {
+      long extra = bytes - reserved;
+      if (extra <= 0) return true;
+      while (true) {
+        long cur = budget.get();
+        if (cur + extra > MAX_BUFFERED_BYTES) return false;
+        if (budget.compareAndSet(cur, cur + extra)) break;
+      }
+      reserved = bytes;
+      return true;
+    }
+
+    /** Devolve a reserva e os blocos; depois disso ninguém lê a entrada. */
+    synchronized void release() {
+      if (released) return;
+      released = true;
+      budget.addAndGet(-reserved);
+      reserved = 0L;
+      chunks.clear();
+      notifyAll();
+    }
+
+    synchronized void finish(boolean ok) {
+      if (ok) done = true;
+      else failed = true;
+      notifyAll();
+    }
+
+    synchronized boolean isFinished() {
+      return done || failed;
+    }
+
+    synchronized int size() {
+      return size;
+    }
+
+    /** Tamanho do corpo (ou LENGTH_UNSET); -2 se falhou antes de abrir. */
+    synchronized long awaitOpen() throws InterruptedException {
+      while (!opened && !failed) wait(250);
+      return opened ? openLength : -2L;
+    }
+
+    @Nullable
+    synchronized Uri finalUri() {
+      return finalUri;
+    }
+
+    synchronized Map<String, List<String>> headers() {
+      return headers;
+    }
+
+    /** Bloqueia até haver bytes em pos; END_OF_INPUT no fim, -2 se a busca falhou. */
+    synchronized int read(int pos, byte[] buffer, int offset, int len) throws InterruptedException {
+      while (pos >= size && !done && !failed && !released) wait(250);
+      if (released) return -2;
+      if (pos < size) {
+        int at = pos % CHUNK_BYTES;
+        int n = Math.min(Math.min(len, size - pos), CHUNK_BYTES - at);
+        System.arraycopy(chunks.get(pos / CHUNK_BYTES), at, buffer, offset, n);
+        return n;
+      }
+      return done ? C.RESULT_END_OF_INPUT : -2;
+    }
+  }
+
+  private final Map<String, Loc> index = new HashMap<>();
+  private final Map<String, PlaylistRef> playlists = new HashMap<>();
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final Window[] windows = { new Window(), new Window() };
+  private final List<TransferListener> listeners = new ArrayList<>();
+  // bytes reservados pelas entradas vivas (no mapa ou nas mãos do loader)
+  private final AtomicLong reservedBytes = new AtomicLong();
+  private final ThreadPoolExecutor exec = new ThreadPoolExecutor(
+    DEFAULT_CONCURRENCY, DEFAULT_CONCURRENCY, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+  @Nullable private DataSource.Factory fetchFactory;
+  private int ahead = DEFAULT_AHEAD;
+  private int concurrency = DEFAULT_CONCURRENCY;
+
+  // métricas
+  private int active = 0;
+  private long busySinceMs = 0L;
+  private long busyMs = 0L;
+  private long requestMs = 0L;
+  private long fetchedBytes = 0L;
+  private long wastedBytes = 0L;
+  private int fetches = 0;
+  private int hits = 0;
+  private int misses = 0;
+  private int cancelled = 0;
+  private int switches = 0;
+  private int seeks = 0;
+
+  SegmentPrefetcher() {
+    exec.allowCoreThreadTimeOut(true);
+  }
+
+  /** ahead = 0 desliga; concurrency <= 0 = padrão. */
+  synchronized void configure(int ahead, int concurrency) {
+    this.ahead = Math.max(0, Math.min(ahead, MAX_AHEAD));
+    int c = concurrency > 0 ? Math.min(concurrency, MAX_CONCURRENCY) : DEFAULT_CONCURRENCY;
+    if (c > exec.getMaximumPoolSize()) {
+      exec.setMaximumPoolSize(c);
+      exec.setCorePoolSize(c);
+    } else {
+      exec.setCorePoolSize(c);
+      exec.setMaximumPoolSize(c);
+    }
+    this.concurrency = c;
+    if (this.ahead == 0) cancelAll();
+  }
+
+  synchronized boolean isEnabled() {
+    return ahead > 0 && fetchFactory != null;
+  }
+
+  /** Fonte nova: esquece índices e buffers da anterior. */
+  synchronized void reset(@Nullable DataSource.Factory fetchFactory) {
+    cancelAll();
+    this.fetchFactory = fetchFactory;
+    index.clear();
+    playlists.clear();
+    listeners.clear();
+  }
+
+  synchronized void addTransferListener(TransferListener listener) {
+    for (TransferListener l : listeners) {
+      if (l == listener) return;
+    }
+    listeners.add(listener);
+  }
+
+  /** Seek/fonte nova/stop: nada do que está em voo vai ser lido. */
+  synchronized void cancelAll() {
+    for (Window w : windows) {
+      w.ref = null;
+      w.lastIndex = -1;
+    }
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      drop(it.next());
+      it.remove();
+    }
+  }
+
+  // ===== índice =====
+
+  /** Chamado pelo parser a cada media playlist (inclusive as do cache). */
+  synchronized void onMediaPlaylist(Uri playlistUri, HlsMediaPlaylist playlist,
+                                    @Nullable HlsMultivariantPlaylist multivariant) {
+    // live muda a cada refresh; o cache de playlists também é só VOD
+    if (!playlist.hasEndTag || playlist.segments.isEmpty()) return;
+    String key = HlsPlaylistCache.keyFor(playlistUri);
+    int group = groupOf(key, multivariant);
+    if (group < 0) return;
+    PlaylistRef old = playlists.get(key);
+    if (old != null && old.uris.length == playlist.segments.size()) return;
+    if (playlists.size() >= MAX_PLAYLISTS) {
+      playlists.clear();
+      index.clear();
+    }
+    PlaylistRef ref = new PlaylistRef(key, group, playlist.segments.size());
+    for (int i = 0; i < ref.uris.length; i++) {
+      HlsMediaPlaylist.Segment s = playlist.segments.get(i);
+      ref.uris[i] = UriUtil.resolveToUri(playlist.baseUri, s.url);
+      ref.positions[i] = s.byteRangeOffset;
+      ref.lengths[i] = s.byteRangeLength;
+      index.put(segmentKey(ref.uris[i], ref.positions[i], ref.lengths[i]), new Loc(ref, i));
+    }
+    playlists.put(key, ref);
+  }
+
+  /** -1 = não pré-busca (legendas). */
+  private static int groupOf(String key, @Nullable HlsMultivariantPlaylist mv) {
+    if (mv == null) return GROUP_VIDEO;
+    for (HlsMultivariantPlaylist.Rendition r : mv.audios) {
+      if (r.url != null && key.equals(HlsPlaylistCache.keyFor(r.url))) return GROUP_AUDIO;
+    }
+    for (HlsMultivariantPlaylist.Rendition r : mv.subtitles) {
+      if (r.url != null && key.equals(HlsPlaylistCache.keyFor(r.url))) return -1;
+    }
+    return GROUP_VIDEO;
+  }
+
+  private static String segmentKey(Uri uri, long position, long length) {
+    return HlsPlaylistCache.keyFor(uri) + '#' + position + '+' + length;
+  }
+
+  // ===== loader =====
+
+  /**
+   * O loader vai abrir este segmento: devolve a busca já em andamento (se
+   * houver) e agenda os próximos da mesma playlist.
+   */
+  @Nullable
+  synchronized Entry onSegmentOpen(DataSpec spec) {
+    if (ahead == 0 || fetchFactory == null) return null;
+    String key = segmentKey(spec.uri, spec.position, spec.length);
+    Loc loc = index.get(key);
+    if (loc == null) return null;
+    Entry hit = entries.remove(key);
+    if (hit != null && !hit.claim()) {
+      drop(hit);
+      hit = null;
+    }
+    if (hit != null) hits++;
+    else misses++;
+    advance(loc);
+    return hit;
+  }
+
+  private void advance(Loc loc) {
+    PlaylistRef ref = loc.ref;
+    Window w = windows[ref.group];
+    if (w.ref != null && !w.ref.key.equals(ref.key)) {
+      switches++;
+      cancelWhere(ref.group, -1, -1);
+    } else if (w.ref != null && loc.index != w.lastIndex + 1 && loc.index != w.lastIndex) {
+      seeks++;
+      cancelWhere(ref.group, loc.index + 1, loc.index + ahead);
+    }
+    w.ref = ref;
+    w.lastIndex = loc.index;
+    expire();
+
+    int last = Math.min(ref.uris.length - 1, loc.index + ahead);
+    for (int i = loc.index + 1; i <= last; i++) {
+      String key = segmentKey(ref.uris[i], ref.positions[i], ref.lengths[i]);
+      if (entries.containsKey(key)) continue;
+      if (reservedBytes.get() >= MAX_BUFFERED_BYTES) break;
+      Entry e = new Entry(key, ref.uris[i], ref.positions[i], ref.lengths[i], ref.group, i, reservedBytes);
+      entries.put(key, e);
+      DataSource.Factory factory = fetchFactory;
+      List<TransferListener> ls = new ArrayList<>(listeners);
+      exec.execute(() -> fetch(e, factory, ls));
+    }
+  }
+
+  /** Cancela o que é do grupo e está fora de [from, to] (from < 0 = tudo). */
+  private void cancelWhere(int group, int from, int to) {
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      Entry e = it.next();
+      if (e.group != group) continue;
+      if (from >= 0 && e.index >= from && e.index <= to) continue;
+      drop(e);
+      it.remove();
+    }
+  }
+
+  private void expire() {
+    long now = SystemClock.elapsedRealtime();
+    Iterator<Entry> it = entries.values().iterator();
+    while (it.hasNext()) {
+      Entry e = it.next();
+      if (now - e.createdAtMs > TTL_MS && e.isFinished()) {
+        drop(e);
+        it.remove();
+      }
+    }
+  }
+
+  /** Entrada que sai sem ser lida. */
+  private void drop(Entry e) {
+    e.cancelled = true;
+    cancelled++;
+    wastedBytes += e.size();
+    e.release();
+  }
+
+  /**
+   * Loader largou a entrada (fechou, caiu no upstream): se ainda está
+   * chegando não adianta continuar; a reserva volta ao orçamento.
+   */
+  void abandon(Entry e) {
+    if (!e.isFinished()) e.cancelled = true;
+    e.release();
+  }
+
+  // ===== busca =====
+
+  private void fetch(Entry e, DataSource.Factory factory, List<TransferListener> ls) {
+    if (!e.markStarted()) return;
+    DataSource ds = factory.createDataSource();
+    for (TransferListener l : ls) ds.addTransferListener(l);
+    long t0 = onFetchStart();
+    boolean ok = false;
+    long bytes = 0L;
+    try {
+      DataSpec spec = new DataSpec.Builder()
+        .setUri(e.uri)
+        .setPosition(e.position)
+        .setLength(e.length)
+        .build();
+      long len = ds.open(spec);
+      if (!e.onOpen(len, ds.getUri(), ds.getResponseHeaders())) {
+        TvLog.d("prefetch over budget", e.index, len);
+        return;
+      }
+      byte[] buf = new byte[32 * 1024];
+      while (!e.cancelled) {
+        int n = ds.read(buf, 0, buf.length);
+        if (n == C.RESULT_END_OF_INPUT) {
+          ok = true;
+          break;
+        }
+        if (!e.append(buf, n)) break;
+        bytes += n;
+      }
+    } catch (IOException ex) {
+      TvLog.d("prefetch failed", e.index);
+    } catch (Exception ex) {
+      TvLog.e("prefetch error", ex);
+    } finally {
+      try {
+        ds.close();
+      } catch (Exception ignored) {}
+      e.finish(ok && !e.cancelled);
+      onFetchEnd(t0, bytes);
+    }
+  }
+
+  private synchronized long onFetchStart() {
+    long now = SystemClock.elapsedRealtime();
+    if (active++ == 0) busySinceMs = now;
+    return now;
+  }
+
+  private synchronized void onFetchEnd(long startedAtMs, long bytes) {
+    long now = SystemClock.elapsedRealtime();
+    requestMs += now - startedAtMs;
+    fetchedBytes += bytes;
+    fetches++;
+    if (--active == 0) busyMs += now - busySinceMs;
+  }
+
+  // ===== métricas =====
+
+  /**
+   * gain = soma do tempo das requisições / tempo de relógio com alguma em
+   * voo: quanto a vazão agregada rendeu sobre a de uma requisição por vez.
+   */
+  synchronized JSObject describe() {
+    long now = SystemClock.elapsedRealtime();
+    long busy = busyMs + (active > 0 ? now - busySinceMs : 0L);
+    JSObject o = new JSObject();
+    o.put("ahead", ahead);
+    o.put("concurrency", concurrency);
+    o.put("inFlight", active);
+    o.put("fetches", fetches);
+    o.put("hits", hits);
+    o.put("misses", misses);
+    o.put("cancelled", cancelled);
+    o.put("variantSwitches", switches);
+    o.put("seeks", seeks);
+    o.put("fetchedBytes", fetchedBytes);
+    o.put("wastedBytes", wastedBytes);
+    o.put("reservedBytes", reservedBytes.get());
+    o.put("aggregateBps", busy > 0 ? fetchedBytes * 8000L / busy : 0L);
+    o.put("perRequestBps", requestMs > 0 ? fetchedBytes * 8000L / requestMs : 0L);
+    o.put("gain", busy > 0 ? Math.round(requestMs * 100d / busy) / 100d : 0d);
+    return o;
+  }
+}
@@ -0,0 +1,110 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.view.View;
+
+/**
+ * Painel de diagnóstico por cima do vídeo e do WebView (suporte). Atualiza
+ * a 2 Hz só enquanto visível e sem alocar por atualização: o texto é
+ * montado num StringBuilder reaproveitado, copiado para um char[] fixo e
+ * desenhado linha a linha com drawText(char[]). Quem chama não pode usar
+ * String.format/concatenação dentro do fill.
+ */
+final class StatsOverlayView extends View {
+  static final long UPDATE_MS = 500L;
+  private static final int MAX_CHARS = 1024;
+
+  interface Source {
+    /** Escreve as linhas separadas por '\n'. Roda na main thread. */
+    void fill(StringBuilder out);
+  }
+
+  private final StringBuilder text = new StringBuilder(MAX_CHARS);
+  private final char[] chars = new char[MAX_CHARS];
+  private int length = 0;
+  private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+  private final Paint bgPaint = new Paint();
+  private final float lineHeight;
+  private final float pad;
+  private Source source;
+
+  private final Runnable tick = new Runnable() {
+    @Override
+    public void run() {
+      refresh();
+      if (getVisibility() == VISIBLE) postDelayed(this, UPDATE_MS);
+    }
+  };
+
+  StatsOverlayView(Context ctx) {
+    super(ctx);
+    float density = ctx.getResources().getDisplayMetrics().density;
+    textPaint.setColor(Color.WHITE);
+    textPaint.setTypeface(Typeface.MONOSPACE);
+    textPaint.setTextSize(12f * density);
+    bgPaint.setColor(0xB0000000);
+    lineHeight = textPaint.getFontSpacing();
+    pad = 8f * density;
+    setWillNotDraw(false);
+    setFocusable(false);
+    setClickable(false);
+    setVisibility(GONE);
+  }
+
+  void setSource(Source source) {
+    this.source = source;
+  }
+
+  void show(boolean visible) {
+    removeCallbacks(tick);
+    setVisibility(visible ? VISIBLE : GONE);
+    if (visible) tick.run();
+  }
+
+  boolean isShowing() {
+    return getVisibility() == VISIBLE;
+  }
+
+  private void refresh() {
+    text.setLength(0);
+    if (source != null) source.fill(text);
+    length = Math.min(text.length(), MAX_CHARS);
+    text.getChars(0, length, chars, 0);
+    invalidate();
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    removeCallbacks(tick);
+    super.onDetachedFromWindow();
+  }
+
+  @Override
+  protected void onDraw(Canvas canvas) {
+    if (length == 0) return;
+    int lines = 1;
+    float maxW = 0f;
+    int start = 0;
+    for (int i = 0; i <= length; i++) {
+      if (i == length || chars[i] == '\n') {
+        maxW = Math.max(maxW, textPaint.measureText(chars, start, i - start));
+        if (i < length) lines++;
+        start = i + 1;
+      }
+    }
+    canvas.drawRect(pad, pad, pad * 3 + maxW, pad * 3 + lines * lineHeight, bgPaint);
+    float y = pad * 2 - textPaint.ascent();
+    start = 0;
+    for (int i = 0; i <= length; i++) {
+      if (i == length || chars[i] == '\n') {
+        canvas.drawText(chars, start, i - start, pad * 2, y, textPaint);
+        y += lineHeight;
+        start = i + 1;
+      }
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package com.cinesuper.tv;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageInstaller;
+import android.os.Build;
+import android.os.SystemClock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Update sem arquivo intermediário: os bytes do download vão direto para
+ * uma sessão do PackageInstaller enquanto chegam, com SHA-256 conferido
+ * antes do commit. O APK ocupa espaço uma vez só (dentro da sessão) e não
+ * há segunda leitura/escrita em disco.
+ *
+ * Retomada: sessão, url e bytes já gravados (após fsync) ficam em prefs; um
+ * start() com a mesma url/hash reabre a sessão, refaz o hash do que já está
+ * lá e pede o resto com Range.
+ */
+final class StreamingApkInstaller {
+  static final String ACTION_STATUS = "com.cinesuper.tv.APK_INSTALL_STATUS";
+  private static final String PREFS = "cs_update_session";
+  private static final String KEY_SESSION = "session_id";
+  private static final String KEY_URL = "url";
+  private static final String KEY_SHA = "sha256";
+  private static final String KEY_WRITTEN = "written";
+  private static final String ENTRY_NAME = "base.apk";
+  private static final long SYNC_EVERY_BYTES = 1024 * 1024;
+  private static final long PROGRESS_EVERY_MS = 250;
+  private static final int TIMEOUT_MS = 15_000;
+
+  interface Listener {
+    void onProgress(long written, long total);
+
+    /** "resuming" | "verifying" | "committing" */
+    void onStatus(String status);
+
+    void onError(String code, int reason);
+  }
+
+  private final Context ctx;
+  private final Listener listener;
+  private final ExecutorService exec = Executors.newSingleThreadExecutor();
+  private volatile boolean running = false;
+
+  StreamingApkInstaller(Context ctx, Listener listener) {
+    this.ctx = ctx.getApplicationContext();
+    this.listener = listener;
+  }
+
+  boolean isRunning() {
+    return running;
+  }
+
+  /** false se já há um download em andamento. */
+  boolean start(String url, String sha256, long sizeHint) {
+    if (running) return false;
+    running = true;
+    exec.execute(() -> {
+      try {
+        run(url, sha256.trim().toLowerCase(), sizeHint);
+      } finally {
+        running = false;
+      }
+    });
+    return true;
+  }
+
+  private void run(String url, String sha256, long sizeHint) {
+    PackageInstaller installer = ctx.getPackageManager().getPackageInstaller();
+    SharedPreferences prefs = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+
+    int sessionId = prefs.getInt(KEY_SESSION, -1);
+    long offset = prefs.getLong(KEY_WRITTEN, 0L);
+    boolean resumable = sessionId > 0
+      && url.equals(prefs.getString(KEY_URL, null))
+      && sha256.equals(prefs.getString(KEY_SHA, null))
+      && installer.getSessionInfo(sessionId) != null;
+
+    try {
+      if (!resumable) {
+        // sessões velhas (outra versão / hash) seguram espaço até alguém abandonar
+        for (PackageInstaller.SessionInfo info : installer.getMySessions()) {
+          try { installer.abandonSession(info.getSessionId()); } catch (Exception ignored) {}
+        }
+        PackageInstaller.SessionParams params =
+          new PackageInstaller.SessionParams(PackageInstaller.SessionParams.MODE_FULL_INSTALL);
+        params.setAppPackageName(ctx.getPackageName());
+        if (sizeHint > 0) params.setSize(sizeHint);
+        sessionId = installer.createSession(params);
+        offset = 0L;
+        prefs.edit()
+          .putInt(KEY_SESSION, sessionId)
+          .putString(KEY_URL, url)
+          .putString(KEY_SHA, sha256)
+          .putLong(KEY_WRITTEN, 0L)
+          .apply();
+      }
+    } catch (Exception e) {
+      TvLog.e("apk session create failed", e);
+      listener.onError("session_failed", 0);
+      return;
+    }
+
+    try (PackageInstaller.Session session = installer.openSession(sessionId)) {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      if (offset > 0) {
+        listener.onStatus("resuming");
+        offset = rehash(session, offset, md);
+      }
+
+      HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+      conn.setConnectTimeout(TIMEOUT_MS);
+      conn.setReadTimeout(TIMEOUT_MS);
+      conn.setRequestProperty("Accept-Encoding", "identity");
+      if (offset > 0) conn.setRequestProperty("Range", "bytes=" + offset + "-");
+      try {
+        int code = conn.getResponseCode();
+        if (offset > 0 && code == 200) {
+          // servidor ignorou o Range: recomeça do zero na mesma sessão
+          offset = 0L;
+          md.reset();
+        } else if (code != 200 && code != 206) {
+          listener.onError("download_failed", code);
+          return;
+        }
+        long remaining = contentLength(conn);
+        long total = remaining > 0 ? offset + remaining : sizeHint;
+
+        long written = offset;
+        long syncedAt = offset;
+        long progressAt = 0L;
+        byte[] buf = new byte[64 * 1024];
+        try (InputStream in = conn.getInputStream();
+             OutputStream out = session.openWrite(ENTRY_NAME, offset, remaining > 0 ? remaining : -1)) {
+          int n;
+          while ((n = in.read(buf)) > 0) {
+            out.write(buf, 0, n);
+            md.update(buf, 0, n);
+            written += n;
+            if (written - syncedAt >= SYNC_EVERY_BYTES) {
+              session.fsync(out);
+              syncedAt = written;
+              prefs.edit().putLong(KEY_WRITTEN, written).apply();
+            }
+            long now = SystemClock.elapsedRealtime();
+            if (now - progressAt >= PROGRESS_EVERY_MS) {
+              progressAt = now;
+              if (total > 0) session.setStagingProgress((float) written / (float) total);
+              listener.onProgress(written, total);
+            }
+          }
+          session.fsync(out);
+        }
+        prefs.edit().putLong(KEY_WRITTEN, written).apply();
+        listener.onProgress(written, total > 0 ? total : written);
+        if (total > 0 && written != total) {
+          listener.onError("download_incomplete", 0);
+          return;
+        }
+      } finally {
+        conn.disconnect();
+      }
+
+      listener.onStatus("verifying");
+      String digest = toHex(md.digest());
+      if (!digest.equals(sha256)) {
+        TvLog.w("apk checksum mismatch", digest);
+        session.abandon();
+        clear(prefs);
+        listener.onError("checksum_mismatch", 0);
+        return;
+      }
+
+      listener.onStatus("committing");
+      Intent status = new Intent(ACTION_STATUS).setPackage(ctx.getPackageName());
+      int flags = PendingIntent.FLAG_UPDATE_CURRENT;
+      // o instalador preenche os extras de status no intent
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) flags |= PendingIntent.FLAG_MUTABLE;
+      PendingIntent pending = PendingIntent.getBroadcast(ctx, sessionId, status, flags);
+      session.commit(pending.getIntentSender());
+      clear(prefs);
+    } catch (IOException e) {
+      // rede caiu: sessão e bytes gravados ficam para o próximo start()
+      TvLog.w("apk stream interrupted", String.valueOf(e.getMessage()));
+      listener.onError("download_failed", 0);
+    } catch (Exception e) {
+      TvLog.e("apk stream failed", e);
+      try { installer.abandonSession(sessionId); } catch (Exception ignored) {}
+      clear(prefs);
+      listener.onError("install_failed", 0);
+    }
+  }
+
+  /** Refaz o hash do que já está na sessão; devolve quantos bytes valem. */
+  private static long rehash(PackageInstaller.Session session, long offset, MessageDigest md) {
+    long read = 0L;
+    byte[] buf = new byte[64 * 1024];
+    try (InputStream in = session.openRead(ENTRY_NAME)) {
+      while (read < offset) {
+        int n = in.read(buf, 0, (int) Math.min(buf.length, offset - read));
+        if (n <= 0) break;
+        md.update(buf, 0, n);
+        read += n;
+      }
+    } catch (IOException e) {
+      md.reset();
+      return 0L;
+    }
+    return read;
+  }
+
+  private static long contentLength(HttpURLConnection conn) {
+    String raw = conn.getHeaderField("Content-Length");
+    if (raw == null) return -1L;
+    try {
+      return Long.parseLong(raw.trim());
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+
+  private static void clear(SharedPreferences prefs) {
+    prefs.edit().clear().apply();
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,148 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Estado térmico do device em degraus de THERMAL_CONSTRAINTS. Stick sem
+ * ventoinha estrangula o SoC depois de 30–60 min de 4K HEVC; o status do
+ * PowerManager (API 29+) sobe o degrau na hora e o headroom previsto
+ * (API 30+, lido no tick do player) antecipa antes do status mudar.
+ * Descer de degrau só depois de COOL_DOWN_MS abaixo, um por vez.
+ */
+final class ThermalMonitor {
+  static final int MAX_STEP = 3;
+  private static final long HEADROOM_POLL_MS = 10_000L;
+  private static final int HEADROOM_FORECAST_S = 10;
+  // headroom 1.0 = ponto em que o sistema começa a estrangular
+  private static final float HEADROOM_STEP_1 = 0.85f;
+  private static final float HEADROOM_STEP_2 = 1.0f;
+  private static final long COOL_DOWN_MS = 60_000L;
+
+  interface Listener {
+    /** stepChanged = o degrau mudou (senão só o status). */
+    void onThermal(boolean stepChanged);
+  }
+
+  @Nullable private PowerManager pm;
+  @Nullable private Object statusListener;
+  @Nullable private Listener listener;
+  private int status = 0;
+  private float headroom = Float.NaN;
+  private int step = 0;
+  private long lastPollMs = 0L;
+  private long belowSinceMs = 0L;
+
+  /** Main thread. No-op abaixo da API 29. */
+  void start(Context ctx, Listener listener) {
+    if (statusListener != null || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return;
+    this.listener = listener;
+    try {
+      pm = (PowerManager) ctx.getSystemService(Context.POWER_SERVICE);
+      if (pm == null) return;
+      PowerManager.OnThermalStatusChangedListener l = this::onStatus;
+      pm.addThermalStatusListener(new Handler(Looper.getMainLooper())::post, l);
+      statusListener = l;
+      status = pm.getCurrentThermalStatus();
+      update(SystemClock.elapsedRealtime(), false);
+    } catch (Exception e) {
+      TvLog.w("thermal listener failed", String.valueOf(e.getMessage()));
+    }
+  }
+
+  void stop() {
+    if (pm != null && statusListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      try {
+        pm.removeThermalStatusListener((PowerManager.OnThermalStatusChangedListener) statusListener);
+      } catch (Exception ignored) {}
+    }
+    statusListener = null;
+    listener = null;
+  }
+
+  private void onStatus(int s) {
+    if (s == status) return;
+    status = s;
+    TvLog.w("thermal status", s);
+    update(SystemClock.elapsedRealtime(), true);
+  }
+
+  /** Tick do player (main). Lê o headroom no máximo a cada HEADROOM_POLL_MS. */
+  void poll(long nowMs) {
+    if (pm == null || statusListener == null) return;
+    if (nowMs - lastPollMs < HEADROOM_POLL_MS) return;
+    lastPollMs = nowMs;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+      try {
+        // NaN quando chamado cedo demais ou sem suporte no HAL
+        float h = pm.getThermalHeadroom(HEADROOM_FORECAST_S);
+        if (!Float.isNaN(h)) headroom = h;
+      } catch (Exception ignored) {}
+    }
+    update(nowMs, false);
+  }
+
+  private void update(long nowMs, boolean statusChanged) {
+    int target = targetStep();
+    int prev = step;
+    if (target > step) {
+      step = target;
+      belowSinceMs = 0L;
+    } else if (target < step) {
+      if (belowSinceMs == 0L) belowSinceMs = nowMs;
+      else if (nowMs - belowSinceMs >= COOL_DOWN_MS) {
+        step--;
+        belowSinceMs = step > target ? nowMs : 0L;
+      }
+    } else {
+      belowSinceMs = 0L;
+    }
+    if (step != prev) TvLog.w("thermal step", prev, step);
+    if ((step != prev || statusChanged) && listener != null) listener.onThermal(step != prev);
+  }
+
+  private int targetStep() {
+    int fromStatus;
+    if (status >= PowerManager.THERMAL_STATUS_CRITICAL) fromStatus = 3;
+    else if (status == PowerManager.THERMAL_STATUS_SEVERE) fromStatus = 2;
+    else if (status == PowerManager.THERMAL_STATUS_MODERATE) fromStatus = 1;
+    else fromStatus = 0;
+    int fromHeadroom = 0;
+    if (!Float.isNaN(headroom)) {
+      if (headroom >= HEADROOM_STEP_2) fromHeadroom = 2;
+      else if (headroom >= HEADROOM_STEP_1) fromHeadroom = 1;
+    }
+    return Math.min(MAX_STEP, Math.max(fromStatus, fromHeadroom));
+  }
+
+  int step() {
+    return step;
+  }
+
+  int status() {
+    return status;
+  }
+
+  float headroom() {
+    return headroom;
+  }
+
+  static String statusName(int s) {
+    switch (s) {
+      case 0: return "none";
+      case 1: return "light";
+      case 2: return "moderate";
+      case 3: return "severe";
+      case 4: return "critical";
+      case 5: return "emergency";
+      case 6: return "shutdown";
+      default: return "unknown";
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.datasource.TransferListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aplica o PlaybackToken atual em cada open e, num 401/403 do gateway,
+ * espera o token novo e reabre a mesma requisição uma vez.
+ */
+final class TokenRefreshingDataSource implements DataSource {
+
+  static final class Factory implements DataSource.Factory {
+    private final DataSource.Factory upstreamFactory;
+    private final PlaybackToken token;
+
+    Factory(DataSource.Factory upstreamFactory, PlaybackToken token) {
+      this.upstreamFactory = upstreamFactory;
+      this.token = token;
+    }
+
+    @Override
+    public DataSource createDataSource() {
+      return new TokenRefreshingDataSource(upstreamFactory.createDataSource(), token);
+    }
+  }
+
+  private final DataSource upstream;
+  private final PlaybackToken token;
+
+  TokenRefreshingDataSource(DataSource upstream, PlaybackToken token) {
+    this.upstream = upstream;
+    this.token = token;
+  }
+
+  @Override
+  public void addTransferListener(TransferListener transferListener) {
+    upstream.addTransferListener(transferListener);
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    long seen = token.version();
+    try {
+      return upstream.open(withToken(dataSpec));
+    } catch (HttpDataSource.InvalidResponseCodeException e) {
+      if ((e.responseCode != 401 && e.responseCode != 403) || !token.covers(dataSpec.uri)) throw e;
+      try {
+        upstream.close();
+      } catch (Exception ignored) {}
+      if (!token.awaitRefresh(seen, e.responseCode)) throw e;
+      return upstream.open(withToken(dataSpec));
+    }
+  }
+
+  private DataSpec withToken(DataSpec dataSpec) {
+    Uri uri = token.apply(dataSpec.uri);
+    return uri == dataSpec.uri ? dataSpec : dataSpec.withUri(uri);
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int length) throws IOException {
+    return upstream.read(buffer, offset, length);
+  }
+
+  @Nullable
+  @Override
+  public Uri getUri() {
+    return upstream.getUri();
+  }
+
+  @Override
+  public Map<String, List<String>> getResponseHeaders() {
+    return upstream.getResponseHeaders();
+  }
+
+  @Override
+  public void close() throws IOException {
+    upstream.close();
+  }
+}
@@ -0,0 +1,248 @@
+package com.cinesuper.tv;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.TrackGroup;
+import androidx.media3.common.TrackSelectionOverride;
+import androidx.media3.common.Tracks;
+import androidx.media3.exoplayer.audio.AudioCapabilities;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registro de faixas de áudio/legenda com IDs estáveis por media item.
+ * O ID é atribuído uma vez por (tipo, formato) e sobrevive a rebuilds do
+ * HLS (TrackGroup novo, mesma rendition). Label/idioma e o JSObject de cada
+ * faixa são montados só na primeira vez que a faixa aparece.
+ */
+final class TrackRegistry {
+  static final int CHANGED_NONE = 0;
+  static final int CHANGED_SELECTION = 1;
+  static final int CHANGED_STRUCTURE = 2;
+
+  static final class Entry {
+    final String id;
+    final int type;
+    final int idx;
+    final JSObject json;
+    TrackGroup group;
+    int trackIndex;
+    boolean available;
+    boolean wasAvailable;
+
+    Entry(String id, int type, int idx, JSObject json) {
+      this.id = id;
+      this.type = type;
+      this.idx = idx;
+      this.json = json;
+    }
+
+    TrackSelectionOverride toOverride() {
+      return new TrackSelectionOverride(group, ImmutableList.of(trackIndex));
+    }
+  }
+
+  private final Map<String, Entry> byKey = new HashMap<>();
+  private final Map<String, Entry> byId = new HashMap<>();
+  private final Map<String, Integer> keyCounts = new HashMap<>();
+  private final List<Entry> audio = new ArrayList<>();
+  private final List<Entry> text = new ArrayList<>();
+  private String selectedAudioId = null;
+  private String selectedTextId = null;
+  private AudioCapabilities audioCapabilities = null;
+
+  /** Com passthrough ligado, marca as faixas que o sink entrega sem decodificar. */
+  void setAudioCapabilities(@Nullable AudioCapabilities caps) {
+    audioCapabilities = caps;
+  }
+
+  void reset() {
+    byKey.clear();
+    byId.clear();
+    audio.clear();
+    text.clear();
+    selectedAudioId = null;
+    selectedTextId = null;
+  }
+
+  /** Atualiza o registro a partir de onTracksChanged e diz o que mudou. */
+  int sync(@Nullable Tracks tracks) {
+    boolean structure = false;
+    markUnavailable(audio);
+    markUnavailable(text);
+
+    String newAudio = null;
+    String newText = null;
+    keyCounts.clear();
+
+    if (tracks != null) {
+      for (int gi = 0; gi < tracks.getGroups().size(); gi++) {
+        Tracks.Group group = tracks.getGroups().get(gi);
+        int type = group.getType();
+        if (type != C.TRACK_TYPE_AUDIO && type != C.TRACK_TYPE_TEXT) continue;
+
+        for (int ti = 0; ti < group.length; ti++) {
+          Format fmt = group.getTrackFormat(ti);
+          String key = keyFor(type, fmt);
+          Integer seen = keyCounts.get(key);
+          keyCounts.put(key, seen == null ? 1 : seen + 1);
+          if (seen != null) key = key + "#" + seen;
+
+          Entry e = byKey.get(key);
+          if (e == null) {
+            e = create(type, fmt);
+            byKey.put(key, e);
+            byId.put(e.id, e);
+            structure = true;
+          }
+          e.group = group.getMediaTrackGroup();
+          e.trackIndex = ti;
+          e.available = true;
+
+          if (group.isTrackSelected(ti)) {
+            if (type == C.TRACK_TYPE_AUDIO) newAudio = e.id;
+            else newText = e.id;
+          }
+        }
+      }
+    }
+
+    structure |= availabilityChanged(audio) | availabilityChanged(text);
+
+    boolean selection = !eq(newAudio, selectedAudioId) || !eq(newText, selectedTextId);
+    selectedAudioId = newAudio;
+    selectedTextId = newText;
+
+    if (structure) return CHANGED_STRUCTURE;
+    return selection ? CHANGED_SELECTION : CHANGED_NONE;
+  }
+
+  @Nullable
+  Entry find(int type, @Nullable String id, int index) {
+    Entry e = null;
+    if (id != null && !id.isEmpty()) {
+      e = byId.get(id);
+    } else {
+      List<Entry> list = type == C.TRACK_TYPE_AUDIO ? audio : text;
+      if (index >= 0 && index < list.size()) e = list.get(index);
+    }
+    if (e == null || e.type != type || !e.available || e.group == null) return null;
+    return e;
+  }
+
+  /** Payload completo; só enviado quando a estrutura muda. */
+  JSObject buildFull() {
+    JSArray audioArr = new JSArray();
+    JSArray textArr = new JSArray();
+    for (Entry e : audio) audioArr.put(e.json);
+    for (Entry e : text) {
+      e.json.put("mode", e.id.equals(selectedTextId) ? "showing" : "disabled");
+      textArr.put(e.json);
+    }
+    JSObject payload = buildSelection();
+    payload.put("audio", audioArr);
+    payload.put("text", textArr);
+    return payload;
+  }
+
+  /** Delta de seleção (evento "trackSelection"). */
+  JSObject buildSelection() {
+    JSObject payload = new JSObject();
+    payload.put("selectedAudio", indexOf(selectedAudioId));
+    payload.put("selectedText", indexOf(selectedTextId));
+    payload.put("selectedAudioId", selectedAudioId != null ? selectedAudioId : "");
+    payload.put("selectedTextId", selectedTextId != null ? selectedTextId : "");
+    return payload;
+  }
+
+  private static void markUnavailable(List<Entry> list) {
+    for (int i = 0; i < list.size(); i++) {
+      Entry e = list.get(i);
+      e.wasAvailable = e.available;
+      e.available = false;
+    }
+  }
+
+  private static boolean availabilityChanged(List<Entry> list) {
+    boolean changed = false;
+    for (int i = 0; i < list.size(); i++) {
+      Entry e = list.get(i);
+      if (e.available != e.wasAvailable) {
+        e.json.put("available", e.available);
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  private int indexOf(@Nullable String id) {
+    if (id == null) return -1;
+    Entry e = byId.get(id);
+    return e != null ? e.idx : -1;
+  }
+
+  private Entry create(int type, Format fmt) {
+    String lang = fmt.language == null ? "" : fmt.language;
+    String label = fmt.label != null ? fmt.label : (lang.isEmpty() ? "" : lang.toUpperCase());
+    JSObject o = new JSObject();
+    Entry e;
+    if (type == C.TRACK_TYPE_AUDIO) {
+      int idx = audio.size();
+      e = new Entry("a" + idx, type, idx, o);
+      o.put("id", e.id);
+      o.put("available", true);
+      o.put("idx", idx);
+      o.put("name", label.isEmpty() ? ("Faixa " + (idx + 1)) : label);
+      o.put("lang", lang);
+      o.put("codec", fmt.sampleMimeType != null ? fmt.sampleMimeType : "");
+      o.put("channels", fmt.channelCount);
+      o.put("passthrough", canPassthrough(fmt));
+      audio.add(e);
+    } else {
+      int idx = text.size();
+      e = new Entry("t" + idx, type, idx, o);
+      o.put("id", e.id);
+      o.put("available", true);
+      o.put("idx", idx);
+      o.put("label", label.isEmpty() ? ("Legenda " + (idx + 1)) : label);
+      o.put("language", lang);
+      o.put("kind", "subtitles");
+      o.put("mode", "disabled");
+      text.add(e);
+    }
+    return e;
+  }
+
+  private boolean canPassthrough(Format fmt) {
+    AudioCapabilities caps = audioCapabilities;
+    if (caps == null || fmt.sampleMimeType == null) return false;
+    int encoding = MimeTypes.getEncoding(fmt.sampleMimeType, fmt.codecs);
+    if (encoding == C.ENCODING_INVALID || encoding == C.ENCODING_PCM_16BIT) return false;
+    return caps.supportsEncoding(encoding);
+  }
+
+  private static String keyFor(int type, Format fmt) {
+    StringBuilder sb = new StringBuilder(48);
+    sb.append(type).append('|');
+    if (fmt.id != null) sb.append(fmt.id);
+    sb.append('|').append(fmt.language != null ? fmt.language : "");
+    sb.append('|').append(fmt.label != null ? fmt.label : "");
+    sb.append('|').append(fmt.sampleMimeType != null ? fmt.sampleMimeType : "");
+    if (type == C.TRACK_TYPE_AUDIO) sb.append('|').append(fmt.channelCount);
+    return sb.toString();
+  }
+
+  private static boolean eq(@Nullable String a, @Nullable String b) {
+    return a == null ? b == null : a.equals(b);
+  }
+}
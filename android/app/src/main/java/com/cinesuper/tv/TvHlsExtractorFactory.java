@@ -0,0 +1,116 @@
+package com.cinesuper.tv;
+
+import android.net.Uri;
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.Format;
+import androidx.media3.common.Metadata;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.common.util.TimestampAdjuster;
+import androidx.media3.exoplayer.analytics.PlayerId;
+import androidx.media3.exoplayer.hls.BundledHlsMediaChunkExtractor;
+import androidx.media3.exoplayer.hls.DefaultHlsExtractorFactory;
+import androidx.media3.exoplayer.hls.HlsExtractorFactory;
+import androidx.media3.exoplayer.hls.HlsMediaChunkExtractor;
+import androidx.media3.exoplayer.hls.HlsTrackMetadataEntry;
+import androidx.media3.extractor.Extractor;
+import androidx.media3.extractor.ExtractorInput;
+import androidx.media3.extractor.mp4.FragmentedMp4Extractor;
+import androidx.media3.extractor.ts.DefaultTsPayloadReaderFactory;
+import androidx.media3.extractor.ts.TsExtractor;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extractors do fastStart: só TS e fMP4, que é o que o pipeline de
+ * empacotamento gera. O default monta e testa (sniff) até sete formatos por
+ * chunk antes de achar o certo; aqui a extensão decide a ordem e são no
+ * máximo dois sniffs. Sem CEA-608 não declarado (legendas são WebVTT
+ * side-loaded). Chunk que não é nenhum dos dois (rendition WebVTT, áudio
+ * puro de terceiros) cai no DefaultHlsExtractorFactory.
+ */
+final class TvHlsExtractorFactory implements HlsExtractorFactory {
+  private final DefaultHlsExtractorFactory fallback =
+    new DefaultHlsExtractorFactory(0, /* exposeCea608WhenMissingDeclarations= */ false);
+
+  @Override
+  public HlsMediaChunkExtractor createExtractor(Uri uri, Format format, @Nullable List<Format> muxedCaptionFormats,
+                                                TimestampAdjuster timestampAdjuster,
+                                                Map<String, List<String>> responseHeaders,
+                                                ExtractorInput sniffingExtractorInput,
+                                                PlayerId playerId) throws IOException {
+    String path = uri.getLastPathSegment();
+    boolean mp4First = path != null && (path.endsWith(".m4s") || path.endsWith(".mp4") || path.endsWith(".m4v")
+      || path.endsWith(".m4a") || path.endsWith(".cmfv") || path.endsWith(".cmfa"));
+    for (int i = 0; i < 2; i++) {
+      Extractor e = (i == 0) == mp4First
+        ? createFmp4(format, muxedCaptionFormats, timestampAdjuster)
+        : createTs(format, muxedCaptionFormats, timestampAdjuster);
+      if (sniffQuietly(e, sniffingExtractorInput)) {
+        return new BundledHlsMediaChunkExtractor(e, format, timestampAdjuster);
+      }
+    }
+    return fallback.createExtractor(uri, format, muxedCaptionFormats, timestampAdjuster, responseHeaders,
+      sniffingExtractorInput, playerId);
+  }
+
+  private static boolean sniffQuietly(Extractor e, ExtractorInput input) throws IOException {
+    try {
+      return e.sniff(input);
+    } catch (EOFException ignored) {
+      return false;
+    } finally {
+      input.resetPeekPosition();
+    }
+  }
+
+  // mesmas flags que o default usa para TS, menos o CEA-608 implícito
+  private static Extractor createTs(Format format, @Nullable List<Format> muxedCaptionFormats,
+                                    TimestampAdjuster timestampAdjuster) {
+    int flags = DefaultTsPayloadReaderFactory.FLAG_IGNORE_SPLICE_INFO_STREAM;
+    if (muxedCaptionFormats != null) {
+      flags |= DefaultTsPayloadReaderFactory.FLAG_OVERRIDE_CAPTION_DESCRIPTORS;
+    } else {
+      muxedCaptionFormats = Collections.emptyList();
+    }
+    String codecs = format.codecs;
+    if (!TextUtils.isEmpty(codecs)) {
+      if (!MimeTypes.containsCodecsCorrespondingToMimeType(codecs, MimeTypes.AUDIO_AAC)) {
+        flags |= DefaultTsPayloadReaderFactory.FLAG_IGNORE_AAC_STREAM;
+      }
+      if (!MimeTypes.containsCodecsCorrespondingToMimeType(codecs, MimeTypes.VIDEO_H264)) {
+        flags |= DefaultTsPayloadReaderFactory.FLAG_IGNORE_H264_STREAM;
+      }
+    }
+    return new TsExtractor(TsExtractor.MODE_HLS, timestampAdjuster,
+      new DefaultTsPayloadReaderFactory(flags, muxedCaptionFormats));
+  }
+
+  private static Extractor createFmp4(Format format, @Nullable List<Format> muxedCaptionFormats,
+                                      TimestampAdjuster timestampAdjuster) {
+    return new FragmentedMp4Extractor(
+      isVariantTrack(format) ? FragmentedMp4Extractor.FLAG_WORKAROUND_IGNORE_EDIT_LISTS : 0,
+      timestampAdjuster,
+      /* sideloadedTrack= */ null,
+      muxedCaptionFormats != null ? muxedCaptionFormats : Collections.emptyList());
+  }
+
+  /** Chunk de uma variante do master (não de rendition): edit lists ignoradas, como no default. */
+  private static boolean isVariantTrack(Format format) {
+    Metadata metadata = format.metadata;
+    if (metadata == null) return false;
+    for (int i = 0; i < metadata.length(); i++) {
+      Metadata.Entry entry = metadata.get(i);
+      if (entry instanceof HlsTrackMetadataEntry) {
+        return !((HlsTrackMetadataEntry) entry).variantInfos.isEmpty();
+      }
+    }
+    return false;
+  }
+}
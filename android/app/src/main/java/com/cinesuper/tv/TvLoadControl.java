@@ -0,0 +1,206 @@
+package com.cinesuper.tv;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.Util;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.LoadControl;
+import androidx.media3.exoplayer.Renderer;
+import androidx.media3.exoplayer.source.TrackGroupArray;
+import androidx.media3.exoplayer.trackselection.ExoTrackSelection;
+import androidx.media3.exoplayer.upstream.Allocator;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+/**
+ * LoadControl com limites mutáveis em runtime. Mesma lógica do
+ * DefaultLoadControl, mas o perfil (preview/full) e o teto de bytes podem
+ * mudar sem recriar o player — usado no hand-off do preview e sob pressão
+ * de memória.
+ */
+final class TvLoadControl implements LoadControl {
+  static final class Profile {
+    final int minBufferMs;
+    final int maxBufferMs;
+    final int bufferForPlaybackMs;
+    final int bufferForPlaybackAfterRebufferMs;
+    final int targetBufferBytes;
+    final int backBufferMs;
+
+    Profile(int minBufferMs, int maxBufferMs, int bufferForPlaybackMs,
+            int bufferForPlaybackAfterRebufferMs, int targetBufferBytes, int backBufferMs) {
+      this.minBufferMs = minBufferMs;
+      this.maxBufferMs = maxBufferMs;
+      this.bufferForPlaybackMs = bufferForPlaybackMs;
+      this.bufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+      this.targetBufferBytes = targetBufferBytes;
+      this.backBufferMs = backBufferMs;
+    }
+  }
+
+  static final Profile FULL = new Profile(
+    DefaultLoadControl.DEFAULT_MIN_BUFFER_MS,
+    DefaultLoadControl.DEFAULT_MAX_BUFFER_MS,
+    DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS,
+    DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS,
+    C.LENGTH_UNSET,
+    DefaultLoadControl.DEFAULT_BACK_BUFFER_DURATION_MS
+  );
+
+  // preview de trailer: poucos segundos e poucos MB
+  static final Profile PREVIEW = new Profile(2_000, 6_000, 500, 1_000, 4 * 1024 * 1024, 0);
+
+  private static final long MIN_LOADING_US = 500_000L;
+
+  private final DefaultAllocator allocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+  private volatile Profile profile;
+  private volatile int memoryStep = 0;
+  private volatile int computedTargetBytes = DefaultLoadControl.DEFAULT_MIN_BUFFER_SIZE;
+  private volatile int targetBufferBytes = DefaultLoadControl.DEFAULT_MIN_BUFFER_SIZE;
+  private boolean isLoading;
+
+  TvLoadControl(Profile profile) {
+    this.profile = profile;
+  }
+
+  Profile getProfile() {
+    return profile;
+  }
+
+  void setProfile(Profile next) {
+    profile = next;
+    updateTargetBytes();
+  }
+
+  /**
+   * 0 = normal; 1 = sem back buffer e metade dos bytes; 2 = um quarto dos
+   * bytes e no máximo 15s à frente. O allocator é aparado na hora.
+   */
+  void setMemoryStep(int step) {
+    memoryStep = Math.max(0, Math.min(2, step));
+    updateTargetBytes();
+  }
+
+  int getMemoryStep() {
+    return memoryStep;
+  }
+
+  int getTargetBufferBytes() {
+    return targetBufferBytes;
+  }
+
+  long getAllocatedBytes() {
+    return allocator.getTotalBytesAllocated();
+  }
+
+  private void updateTargetBytes() {
+    Profile p = profile;
+    int target = scaleForMemory(p.targetBufferBytes > 0 ? p.targetBufferBytes : computedTargetBytes);
+    targetBufferBytes = target;
+    allocator.setTargetBufferSize(target);
+  }
+
+  private int scaleForMemory(int bytes) {
+    int step = memoryStep;
+    if (step <= 0) return bytes;
+    int scaled = step == 1 ? bytes / 2 : bytes / 4;
+    return Math.max(C.DEFAULT_BUFFER_SEGMENT_SIZE * 16, scaled);
+  }
+
+  @Override
+  public void onPrepared() {
+    reset(false);
+  }
+
+  @Override
+  public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups, ExoTrackSelection[] trackSelections) {
+    int bytes = 0;
+    for (int i = 0; i < renderers.length; i++) {
+      if (trackSelections[i] != null) bytes += defaultBufferSize(renderers[i].getTrackType());
+    }
+    computedTargetBytes = Math.max(DefaultLoadControl.DEFAULT_MIN_BUFFER_SIZE, bytes);
+    updateTargetBytes();
+  }
+
+  @Override
+  public void onStopped() {
+    reset(true);
+  }
+
+  @Override
+  public void onReleased() {
+    reset(true);
+  }
+
+  @Override
+  public Allocator getAllocator() {
+    return allocator;
+  }
+
+  // o ExoPlayer lê isso uma vez no build; o passo de memória vale para players novos
+  @Override
+  public long getBackBufferDurationUs() {
+    return memoryStep > 0 ? 0 : Util.msToUs(profile.backBufferMs);
+  }
+
+  @Override
+  public boolean retainBackBufferFromKeyframe() {
+    return false;
+  }
+
+  @Override
+  public boolean shouldContinueLoading(long playbackPositionUs, long bufferedDurationUs, float playbackSpeed) {
+    Profile p = profile;
+    boolean targetReached = allocator.getTotalBytesAllocated() >= targetBufferBytes;
+    long maxUs = Util.msToUs(p.maxBufferMs);
+    long minUs = Util.msToUs(p.minBufferMs);
+    if (memoryStep >= 2) {
+      maxUs = Math.min(maxUs, 15_000_000L);
+      minUs = Math.min(minUs, maxUs);
+    }
+    if (playbackSpeed > 1) {
+      minUs = Math.min(Util.getMediaDurationForPlayoutDuration(minUs, playbackSpeed), maxUs);
+    }
+    minUs = Math.max(minUs, MIN_LOADING_US);
+    if (bufferedDurationUs < minUs) {
+      isLoading = !targetReached;
+    } else if (bufferedDurationUs >= maxUs || targetReached) {
+      isLoading = false;
+    }
+    return isLoading;
+  }
+
+  @Override
+  public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering, long targetLiveOffsetUs) {
+    Profile p = profile;
+    long buffered = Util.getPlayoutDurationForMediaDuration(bufferedDurationUs, playbackSpeed);
+    long minUs = Util.msToUs(rebuffering ? p.bufferForPlaybackAfterRebufferMs : p.bufferForPlaybackMs);
+    if (targetLiveOffsetUs != C.TIME_UNSET) minUs = Math.min(targetLiveOffsetUs / 2, minUs);
+    return minUs <= 0 || buffered >= minUs || allocator.getTotalBytesAllocated() >= targetBufferBytes;
+  }
+
+  private void reset(boolean resetAllocator) {
+    computedTargetBytes = DefaultLoadControl.DEFAULT_MIN_BUFFER_SIZE;
+    Profile p = profile;
+    targetBufferBytes = scaleForMemory(p.targetBufferBytes > 0 ? p.targetBufferBytes : computedTargetBytes);
+    isLoading = false;
+    if (resetAllocator) allocator.reset();
+  }
+
+  private static int defaultBufferSize(int trackType) {
+    switch (trackType) {
+      case C.TRACK_TYPE_DEFAULT:
+        return DefaultLoadControl.DEFAULT_MUXED_BUFFER_SIZE;
+      case C.TRACK_TYPE_AUDIO:
+        return DefaultLoadControl.DEFAULT_AUDIO_BUFFER_SIZE;
+      case C.TRACK_TYPE_VIDEO:
+        return DefaultLoadControl.DEFAULT_VIDEO_BUFFER_SIZE;
+      case C.TRACK_TYPE_TEXT:
+        return DefaultLoadControl.DEFAULT_TEXT_BUFFER_SIZE;
+      case C.TRACK_TYPE_METADATA:
+        return DefaultLoadControl.DEFAULT_METADATA_BUFFER_SIZE;
+      case C.TRACK_TYPE_CAMERA_MOTION:
+        return DefaultLoadControl.DEFAULT_CAMERA_MOTION_BUFFER_SIZE;
+      default:
+        return 0;
+    }
+  }
+}
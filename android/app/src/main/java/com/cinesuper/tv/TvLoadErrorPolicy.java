@@ -0,0 +1,53 @@
+package com.cinesuper.tv;
+
+import androidx.media3.common.C;
+import androidx.media3.common.ParserException;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.upstream.DefaultLoadErrorHandlingPolicy;
+
+import java.io.FileNotFoundException;
+import java.util.Random;
+
+/**
+ * Retry com backoff exponencial e jitter para falhas transitórias do
+ * gateway (5xx, 429, timeout, rede). 401/403 já passaram pelo
+ * PlaybackToken no DataSource; se ainda falham, não adianta repetir.
+ * 404/410/parse continuam fatais como no default (com fallback de trilha).
+ */
+final class TvLoadErrorPolicy extends DefaultLoadErrorHandlingPolicy {
+  private final Random random = new Random();
+  private volatile long baseMs = 500L;
+  private volatile long maxMs = 8_000L;
+  private volatile int minRetryCount = 6;
+
+  void configure(long baseMs, long maxMs, int retryCount) {
+    if (baseMs > 0) this.baseMs = baseMs;
+    if (maxMs > 0) this.maxMs = Math.max(this.baseMs, maxMs);
+    if (retryCount > 0) this.minRetryCount = retryCount;
+  }
+
+  String describe() {
+    return "base=" + baseMs + "ms max=" + maxMs + "ms retries=" + minRetryCount;
+  }
+
+  @Override
+  public long getRetryDelayMsFor(LoadErrorInfo info) {
+    Throwable e = info.exception;
+    if (e instanceof ParserException || e instanceof FileNotFoundException) return C.TIME_UNSET;
+    if (e instanceof HttpDataSource.InvalidResponseCodeException) {
+      int code = ((HttpDataSource.InvalidResponseCodeException) e).responseCode;
+      if (code != 429 && code < 500) return C.TIME_UNSET;
+    } else if (e instanceof HttpDataSource.CleartextNotPermittedException) {
+      return C.TIME_UNSET;
+    }
+    // base * 2^(n-1), metade fixa + metade aleatória para não sincronizar clientes
+    int n = Math.max(1, info.errorCount);
+    long backoff = Math.min(maxMs, baseMs << Math.min(n - 1, 16));
+    return backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+  }
+
+  @Override
+  public int getMinimumLoadableRetryCount(int dataType) {
+    return minRetryCount;
+  }
+}
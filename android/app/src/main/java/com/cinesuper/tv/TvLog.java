@@ -0,0 +1,189 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Log dos plugins nativos num ring buffer em memória (exportável para o JS
+ * ou arquivo de bug report) + seções do android.os.Trace para os spans que
+ * importam. A mensagem é uma constante e os argumentos vão em arrays
+ * primitivos; só vira String no export ou quando o nível passa do corte do
+ * logcat (W em release, D em build debuggable).
+ */
+final class TvLog {
+  private static final String TAG = "CineSuperExo";
+  private static final int CAPACITY = 2048;
+  private static final int ARG_A = 1;
+  private static final int ARG_B = 2;
+  private static final int ARG_S = 4;
+
+  // spans assíncronos (setSource->ready etc.): id fixo = cookie do Trace
+  static final int SPAN_SOURCE = 0;
+  static final int SPAN_SEEK = 1;
+  static final int SPAN_RECOVERY = 2;
+  static final int SPAN_SURFACE = 3;
+  static final int SPAN_IDLE_RESUME = 4;
+  private static final String[] SPAN_NAMES = {
+    "cs.source_ready", "cs.seek_ready", "cs.recovery", "cs.surface", "cs.idle_resume"
+  };
+  private static final long[] spanStartMs = new long[SPAN_NAMES.length];
+
+  private static final long[] times = new long[CAPACITY];
+  private static final int[] levels = new int[CAPACITY];
+  private static final int[] masks = new int[CAPACITY];
+  private static final String[] messages = new String[CAPACITY];
+  private static final String[] strArgs = new String[CAPACITY];
+  private static final long[] argA = new long[CAPACITY];
+  private static final long[] argB = new long[CAPACITY];
+  private static int next = 0;
+  private static int count = 0;
+  private static volatile int logcatLevel = Log.WARN;
+  private static final long wallOffsetMs = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+
+  private TvLog() {}
+
+  static void init(Context ctx) {
+    boolean debuggable = (ctx.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+    logcatLevel = debuggable ? Log.DEBUG : Log.WARN;
+  }
+
+  /** "debug" | "info" | "warn" | "error"; outro valor mantém. */
+  static void setLogcatLevel(String name) {
+    if (name == null) return;
+    switch (name) {
+      case "debug": logcatLevel = Log.DEBUG; break;
+      case "info": logcatLevel = Log.INFO; break;
+      case "warn": logcatLevel = Log.WARN; break;
+      case "error": logcatLevel = Log.ERROR; break;
+      default: break;
+    }
+  }
+
+  static void d(String msg) { put(Log.DEBUG, msg, 0, 0L, 0L, null); }
+  static void d(String msg, long a) { put(Log.DEBUG, msg, ARG_A, a, 0L, null); }
+  static void d(String msg, long a, long b) { put(Log.DEBUG, msg, ARG_A | ARG_B, a, b, null); }
+  static void d(String msg, String s) { put(Log.DEBUG, msg, ARG_S, 0L, 0L, s); }
+  static void i(String msg) { put(Log.INFO, msg, 0, 0L, 0L, null); }
+  static void i(String msg, long a) { put(Log.INFO, msg, ARG_A, a, 0L, null); }
+  static void i(String msg, long a, long b) { put(Log.INFO, msg, ARG_A | ARG_B, a, b, null); }
+  static void i(String msg, String s) { put(Log.INFO, msg, ARG_S, 0L, 0L, s); }
+  static void w(String msg) { put(Log.WARN, msg, 0, 0L, 0L, null); }
+  static void w(String msg, long a) { put(Log.WARN, msg, ARG_A, a, 0L, null); }
+  static void w(String msg, long a, long b) { put(Log.WARN, msg, ARG_A | ARG_B, a, b, null); }
+  static void w(String msg, String s) { put(Log.WARN, msg, ARG_S, 0L, 0L, s); }
+  static void e(String msg, String s) { put(Log.ERROR, msg, ARG_S, 0L, 0L, s); }
+
+  static void e(String msg, Throwable t) {
+    store(Log.ERROR, msg, ARG_S, 0L, 0L, t != null ? t.toString() : null);
+    // com stack trace no logcat
+    if (Log.ERROR >= logcatLevel) Log.e(TAG, msg, t);
+  }
+
+  private static void put(int level, String msg, int mask, long a, long b, String s) {
+    store(level, msg, mask, a, b, s);
+    if (level >= logcatLevel) Log.println(level, TAG, format(msg, mask, a, b, s));
+  }
+
+  private static void store(int level, String msg, int mask, long a, long b, String s) {
+    long now = SystemClock.elapsedRealtime();
+    synchronized (TvLog.class) {
+      int i = next;
+      times[i] = now;
+      levels[i] = level;
+      masks[i] = mask;
+      messages[i] = msg;
+      strArgs[i] = s;
+      argA[i] = a;
+      argB[i] = b;
+      next = (i + 1) % CAPACITY;
+      if (count < CAPACITY) count++;
+    }
+  }
+
+  private static String format(String msg, int mask, long a, long b, String s) {
+    StringBuilder sb = new StringBuilder(msg.length() + 32).append(msg);
+    if ((mask & ARG_A) != 0) sb.append(' ').append(a);
+    if ((mask & ARG_B) != 0) sb.append(' ').append(b);
+    if ((mask & ARG_S) != 0) sb.append(' ').append(s);
+    return sb.toString();
+  }
+
+  // ===== Trace =====
+
+  /** Seção síncrona (mesma thread até endSection). */
+  static void beginSection(String name) {
+    Trace.beginSection(name);
+  }
+
+  static void endSection() {
+    Trace.endSection();
+  }
+
+  /** Span que atravessa callbacks; reabrir um span em aberto reinicia. */
+  static void beginSpan(int span) {
+    long now = SystemClock.elapsedRealtime();
+    if (spanStartMs[span] > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+      Trace.endAsyncSection(SPAN_NAMES[span], span);
+    }
+    spanStartMs[span] = now;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) Trace.beginAsyncSection(SPAN_NAMES[span], span);
+  }
+
+  /** Fecha e registra a duração; no-op se o span não estiver aberto. */
+  static void endSpan(int span) {
+    long start = spanStartMs[span];
+    if (start <= 0) return;
+    spanStartMs[span] = 0L;
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) Trace.endAsyncSection(SPAN_NAMES[span], span);
+    i(SPAN_NAMES[span], SystemClock.elapsedRealtime() - start);
+  }
+
+  // ===== export =====
+
+  static String dump(int max) {
+    SimpleDateFormat fmt = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+    StringBuilder sb = new StringBuilder();
+    synchronized (TvLog.class) {
+      int n = max > 0 ? Math.min(max, count) : count;
+      int start = (next - n + CAPACITY) % CAPACITY;
+      for (int k = 0; k < n; k++) {
+        int i = (start + k) % CAPACITY;
+        sb.append(fmt.format(new Date(wallOffsetMs + times[i]))).append(' ')
+          .append(levelChar(levels[i])).append(' ')
+          .append(format(messages[i], masks[i], argA[i], argB[i], strArgs[i])).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
+  static File export(File dir) throws IOException {
+    if (!dir.exists() && !dir.mkdirs()) throw new IOException("log dir create failed");
+    String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+    File out = new File(dir, "cinesuper-" + stamp + ".log");
+    try (FileOutputStream os = new FileOutputStream(out)) {
+      os.write(dump(0).getBytes("UTF-8"));
+    }
+    return out;
+  }
+
+  private static char levelChar(int level) {
+    switch (level) {
+      case Log.VERBOSE: return 'V';
+      case Log.DEBUG: return 'D';
+      case Log.INFO: return 'I';
+      case Log.WARN: return 'W';
+      default: return 'E';
+    }
+  }
+}
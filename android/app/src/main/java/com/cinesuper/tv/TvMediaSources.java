@@ -0,0 +1,82 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import androidx.media3.common.C;
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.MimeTypes;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.exoplayer.hls.HlsMediaSource;
+import androidx.media3.exoplayer.source.DefaultMediaSourceFactory;
+import androidx.media3.exoplayer.source.MediaSource;
+import androidx.media3.exoplayer.source.MergingMediaSource;
+import androidx.media3.exoplayer.source.SingleSampleMediaSource;
+import androidx.media3.exoplayer.upstream.DefaultLoadErrorHandlingPolicy;
+import androidx.media3.exoplayer.upstream.LoadErrorHandlingPolicy;
+
+import java.util.List;
+
+/**
+ * Monta o MediaSource do player principal e do preview. HLS vai por um
+ * HlsMediaSource com o cache de playlists; o resto segue pelo
+ * DefaultMediaSourceFactory. As legendas side-loaded são mescladas aqui
+ * porque o HlsMediaSource.Factory ignora subtitleConfigurations.
+ */
+final class TvMediaSources {
+  private TvMediaSources() {}
+
+  // token por fora do cache: o cache já vê a URL com o token atual; a troca
+  // de origem fica por dentro, então cache e token só enxergam o host da fonte.
+  // A pré-busca fica entre os dois e faz as próprias requisições pela mesma
+  // troca de origem, com o token aplicado por ela mesma.
+  static DataSource.Factory dataSourceFactory(Context ctx, @Nullable PlaybackToken token,
+                                              @Nullable CdnRouter router,
+                                              @Nullable SegmentPrefetcher prefetcher) {
+    DataSource.Factory base = router != null
+      ? new HostFailoverDataSource.Factory(ctx, router)
+      : new DefaultDataSource.Factory(ctx);
+    DataSource.Factory segments = base;
+    if (prefetcher != null) {
+      prefetcher.reset(token != null ? new TokenRefreshingDataSource.Factory(base, token) : base);
+      segments = new PrefetchingDataSource.Factory(base, prefetcher);
+    }
+    DataSource.Factory f = new PlaylistCachingDataSource.Factory(segments);
+    return token != null ? new TokenRefreshingDataSource.Factory(f, token) : f;
+  }
+
+  /**
+   * fastStart: extractors só de TS/fMP4 (TvHlsExtractorFactory). O prepare
+   * chunkless já é o padrão do media3; ele só vale quando o master traz
+   * CODECS em todas as variantes, o que o plugin confere no probe.
+   */
+  static MediaSource create(Context ctx, MediaItem item, boolean fastStart, @Nullable PlaybackToken token,
+                            @Nullable LoadErrorHandlingPolicy errorPolicy, @Nullable CdnRouter router,
+                            @Nullable SegmentPrefetcher prefetcher) {
+    DataSource.Factory ds = dataSourceFactory(ctx, token, router, prefetcher);
+    LoadErrorHandlingPolicy policy = errorPolicy != null ? errorPolicy : new DefaultLoadErrorHandlingPolicy();
+    MediaItem.LocalConfiguration lc = item.localConfiguration;
+    if (lc == null || !MimeTypes.APPLICATION_M3U8.equals(lc.mimeType)) {
+      return new DefaultMediaSourceFactory(ds).setLoadErrorHandlingPolicy(policy).createMediaSource(item);
+    }
+
+    HlsMediaSource.Factory hlsFactory = new HlsMediaSource.Factory(ds)
+      .setPlaylistParserFactory(new HlsPlaylistCache.ParserFactory(prefetcher))
+      .setLoadErrorHandlingPolicy(policy);
+    if (fastStart) hlsFactory.setExtractorFactory(new TvHlsExtractorFactory());
+    MediaSource main = hlsFactory.createMediaSource(item);
+    List<MediaItem.SubtitleConfiguration> subs = lc.subtitleConfigurations;
+    if (subs.isEmpty()) return main;
+
+    MediaSource[] sources = new MediaSource[subs.size() + 1];
+    sources[0] = main;
+    SingleSampleMediaSource.Factory subFactory = new SingleSampleMediaSource.Factory(ds)
+      .setLoadErrorHandlingPolicy(policy);
+    for (int i = 0; i < subs.size(); i++) {
+      sources[i + 1] = subFactory.createMediaSource(subs.get(i), C.TIME_UNSET);
+    }
+    return new MergingMediaSource(sources);
+  }
+}
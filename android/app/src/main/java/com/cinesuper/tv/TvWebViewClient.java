@@ -0,0 +1,39 @@
+package com.cinesuper.tv;
+
+import android.graphics.Bitmap;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeWebViewClient;
+
+/**
+ * Client do WebView do bridge: GETs que casam com as regras do
+ * WebResponseCache saem do cache nativo; o resto (inclusive o servidor
+ * local do Capacitor) segue pelo BridgeWebViewClient. Navegação nova
+ * fecha o FastChannel: a página nova pede outro.
+ */
+final class TvWebViewClient extends BridgeWebViewClient {
+  private final WebResponseCache cache;
+
+  TvWebViewClient(Bridge bridge) {
+    super(bridge);
+    cache = WebResponseCache.get(bridge.getContext());
+  }
+
+  @Override
+  public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+    WebResourceResponse cached = null;
+    try {
+      cached = cache.intercept(request);
+    } catch (Exception ignored) {}
+    return cached != null ? cached : super.shouldInterceptRequest(view, request);
+  }
+
+  @Override
+  public void onPageStarted(WebView view, String url, Bitmap favicon) {
+    FastChannel.get().close();
+    super.onPageStarted(view, url, favicon);
+  }
+}
@@ -1,8 +1,11 @@
 package com.cinesuper.tv;
 
 import android.app.DownloadManager;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInstaller;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Environment;
@@ -29,6 +32,36 @@ public class UpdatePlugin extends Plugin {
   private Runnable progressTask;
   private static final String PREFS = "cs_update_prefs";
   private static final String KEY_APK_URI = "apk_uri";
+  private StreamingApkInstaller streamingInstaller;
+  private BroadcastReceiver installStatusReceiver;
+
+  @Override
+  public void load() {
+    super.load();
+    installStatusReceiver = new BroadcastReceiver() {
+      @Override
+      public void onReceive(Context context, Intent intent) {
+        onInstallStatus(intent);
+      }
+    };
+    IntentFilter filter = new IntentFilter(StreamingApkInstaller.ACTION_STATUS);
+    try {
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+        getContext().registerReceiver(installStatusReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
+      } else {
+        getContext().registerReceiver(installStatusReceiver, filter);
+      }
+    } catch (Exception ignored) {}
+  }
+
+  @Override
+  protected void handleOnDestroy() {
+    try {
+      if (installStatusReceiver != null) getContext().unregisterReceiver(installStatusReceiver);
+    } catch (Exception ignored) {}
+    installStatusReceiver = null;
+    super.handleOnDestroy();
+  }
 
   @PluginMethod
   public void downloadApk(PluginCall call) {
@@ -40,6 +73,12 @@ public class UpdatePlugin extends Plugin {
 
     Context ctx = getContext();
 
+    // mode "session": baixa direto para o PackageInstaller (sem APK em disco)
+    if ("session".equals(call.getString("mode", ""))) {
+      downloadIntoSession(call, ctx, url.trim());
+      return;
+    }
+
     // If we already have a downloaded APK, try to open installer directly.
     String cachedUri = getCachedApkUri(ctx);
     if (cachedUri != null && !cachedUri.isEmpty()) {
@@ -89,6 +128,71 @@ public class UpdatePlugin extends Plugin {
     call.resolve();
   }
 
+  private void downloadIntoSession(PluginCall call, Context ctx, String url) {
+    String sha256 = call.getString("sha256", "");
+    if (sha256 == null || !sha256.trim().matches("(?i)[0-9a-f]{64}")) {
+      call.reject("missing_sha256");
+      return;
+    }
+    if (!canRequestInstalls(ctx)) {
+      requestInstallPermission(ctx);
+      emitError("install_permission_required", 0);
+      call.reject("install_permission_required");
+      return;
+    }
+    if (streamingInstaller == null) {
+      final Handler main = new Handler(Looper.getMainLooper());
+      streamingInstaller = new StreamingApkInstaller(ctx, new StreamingApkInstaller.Listener() {
+        @Override
+        public void onProgress(long written, long total) {
+          main.post(() -> emitProgress(written, total));
+        }
+
+        @Override
+        public void onStatus(String status) {
+          main.post(() -> emitStatus(status, ""));
+        }
+
+        @Override
+        public void onError(String code, int reason) {
+          main.post(() -> emitError(code, reason));
+        }
+      });
+    }
+    Long size = call.getLong("size");
+    if (!streamingInstaller.start(url, sha256, size != null ? size : -1L)) {
+      call.reject("already_running");
+      return;
+    }
+    call.resolve();
+  }
+
+  private void onInstallStatus(Intent intent) {
+    int status = intent.getIntExtra(PackageInstaller.EXTRA_STATUS, PackageInstaller.STATUS_FAILURE);
+    String message = intent.getStringExtra(PackageInstaller.EXTRA_STATUS_MESSAGE);
+    switch (status) {
+      case PackageInstaller.STATUS_PENDING_USER_ACTION: {
+        // confirmação do sistema (a TV mostra o diálogo de instalação)
+        Intent confirm = intent.getParcelableExtra(Intent.EXTRA_INTENT);
+        if (confirm != null) {
+          try {
+            confirm.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            getContext().startActivity(confirm);
+          } catch (Exception ignored) {}
+        }
+        emitStatus("pending_user", "");
+        break;
+      }
+      case PackageInstaller.STATUS_SUCCESS:
+        emitStatus("installed", "");
+        break;
+      default:
+        emitStatus("failed", message != null ? message : "");
+        emitError("install_failed", status);
+        break;
+    }
+  }
+
   private void startProgressLoop(DownloadManager dm) {
     stopProgressLoop();
 
@@ -156,6 +260,9 @@ public class UpdatePlugin extends Plugin {
       progress = (double) downloaded / (double) total;
     }
 
+    // "u,received,total"; a página redispara como cs:update-progress
+    if (FastChannel.get().send("u," + downloaded + "," + total)) return;
+
     final String js = "window.dispatchEvent(new CustomEvent('cs:update-progress', {detail:{progress:"
       + progress + ",received:" + downloaded + ",total:" + total + "}}));";
 
@@ -179,6 +286,19 @@ public class UpdatePlugin extends Plugin {
     } catch (Exception ignored) {}
   }
 
+  private void emitStatus(String status, String message) {
+    String safe = message.replace("\\", "").replace("'", "").replace("\n", " ");
+    final String js = "window.dispatchEvent(new CustomEvent('cs:update-status', {detail:{status:'"
+      + status + "',message:'" + safe + "'}}));";
+
+    try {
+      Bridge bridge = getBridge();
+      if (bridge != null && bridge.getWebView() != null) {
+        bridge.getWebView().post(() -> bridge.getWebView().evaluateJavascript(js, null));
+      }
+    } catch (Exception ignored) {}
+  }
+
   private void openInstaller(String localUri) {
     if (localUri == null || localUri.isEmpty()) return;
 
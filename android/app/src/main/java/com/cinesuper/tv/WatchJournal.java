@@ -0,0 +1,241 @@
+package com.cinesuper.tv;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diário append-only (uma linha JSON por registro) de progresso e
+ * heartbeats de sessão. Cada append é sincronizado no disco; uma linha
+ * cortada por crash simplesmente não parseia e é ignorada no replay.
+ * Registros "ack" marcam até qual seq o servidor já confirmou. Quando o
+ * arquivo cresce, é reescrito (tmp + rename) só com o estado atual.
+ * Não é thread-safe: o WatchSync usa sempre a mesma thread.
+ */
+final class WatchJournal {
+  private static final String TAG = "CineSuperExo";
+  private static final long COMPACT_AT_BYTES = 64 * 1024;
+  private static final int MAX_POSITIONS = 500;
+
+  static final class Position {
+    final String videoId;
+    final String profileId;
+    final long positionSec;
+    final long durationSec;
+    final long updatedAtMs;
+    final long seq;
+
+    Position(String videoId, String profileId, long positionSec, long durationSec, long updatedAtMs, long seq) {
+      this.videoId = videoId;
+      this.profileId = profileId;
+      this.positionSec = positionSec;
+      this.durationSec = durationSec;
+      this.updatedAtMs = updatedAtMs;
+      this.seq = seq;
+    }
+  }
+
+  static final class Session {
+    final String videoId;
+    final String profileId;
+    final String titlePublicId;
+    final boolean playing;
+    final long atMs;
+    final long seq;
+
+    Session(String videoId, String profileId, String titlePublicId, boolean playing, long atMs, long seq) {
+      this.videoId = videoId;
+      this.profileId = profileId;
+      this.titlePublicId = titlePublicId;
+      this.playing = playing;
+      this.atMs = atMs;
+      this.seq = seq;
+    }
+  }
+
+  private final File file;
+  private final File tmp;
+  // última posição conhecida por perfil|vídeo, em ordem de acesso
+  private final LinkedHashMap<String, Position> latest = new LinkedHashMap<>(64, 0.75f, true);
+  @Nullable private Session session;
+  private long seq = 0L;
+  private long ackedSeq = 0L;
+
+  WatchJournal(File dir) {
+    this.file = new File(dir, "watch_journal.log");
+    this.tmp = new File(dir, "watch_journal.tmp");
+  }
+
+  static String key(String profileId, String videoId) {
+    return profileId + "|" + videoId;
+  }
+
+  void load() {
+    latest.clear();
+    session = null;
+    seq = 0L;
+    ackedSeq = 0L;
+    if (!file.exists()) return;
+    int bad = 0;
+    try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = r.readLine()) != null) {
+        if (line.isEmpty()) continue;
+        try {
+          apply(new JSONObject(line));
+        } catch (Exception e) {
+          bad++;
+        }
+      }
+    } catch (Exception e) {
+      Log.w(TAG, "watch journal load failed", e);
+    }
+    Log.i(TAG, "watch journal: " + latest.size() + " positions, pending=" + pendingPositions().size() +
+      (bad > 0 ? " skipped=" + bad : ""));
+  }
+
+  private void apply(JSONObject o) {
+    long s = o.optLong("seq", 0L);
+    seq = Math.max(seq, s);
+    String k = o.optString("k", "");
+    if ("p".equals(k)) {
+      Position p = new Position(o.optString("vid"), o.optString("pid"), o.optLong("pos"), o.optLong("dur"),
+        o.optLong("ts"), s);
+      putLatest(p);
+    } else if ("s".equals(k)) {
+      session = new Session(o.optString("vid"), o.optString("pid"), o.optString("tpid"), o.optBoolean("playing"),
+        o.optLong("ts"), s);
+    } else if ("ack".equals(k)) {
+      ackedSeq = Math.max(ackedSeq, s);
+    }
+  }
+
+  private void putLatest(Position p) {
+    latest.put(key(p.profileId, p.videoId), p);
+    Iterator<Map.Entry<String, Position>> it = latest.entrySet().iterator();
+    while (latest.size() > MAX_POSITIONS && it.hasNext()) {
+      Map.Entry<String, Position> eldest = it.next();
+      // pendente não sai do diário antes de ir para o servidor
+      if (eldest.getValue().seq > ackedSeq) continue;
+      it.remove();
+    }
+  }
+
+  Position appendPosition(String videoId, String profileId, long positionSec, long durationSec, long nowMs) {
+    Position p = new Position(videoId, profileId, positionSec, durationSec, nowMs, ++seq);
+    putLatest(p);
+    append(positionJson(p));
+    return p;
+  }
+
+  Session appendSession(String videoId, String profileId, String titlePublicId, boolean playing, long nowMs) {
+    Session s = new Session(videoId, profileId, titlePublicId, playing, nowMs, ++seq);
+    session = s;
+    append(sessionJson(s));
+    return s;
+  }
+
+  /** Servidor confirmou tudo até upToSeq. */
+  void ack(long upToSeq) {
+    if (upToSeq <= ackedSeq) return;
+    ackedSeq = upToSeq;
+    try {
+      JSONObject o = new JSONObject();
+      o.put("k", "ack");
+      o.put("seq", upToSeq);
+      append(o);
+    } catch (Exception ignored) {}
+    if (file.length() > COMPACT_AT_BYTES) compact();
+  }
+
+  @Nullable
+  Position get(String profileId, String videoId) {
+    return latest.get(key(profileId, videoId));
+  }
+
+  List<Position> pendingPositions() {
+    List<Position> out = new ArrayList<>();
+    for (Position p : latest.values()) if (p.seq > ackedSeq) out.add(p);
+    return out;
+  }
+
+  @Nullable
+  Session pendingSession() {
+    return session != null && session.seq > ackedSeq ? session : null;
+  }
+
+  long lastSeq() {
+    return seq;
+  }
+
+  private void append(JSONObject o) {
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      out.write((o.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      out.getFD().sync();
+    } catch (Exception e) {
+      Log.w(TAG, "watch journal append failed", e);
+    }
+  }
+
+  private void compact() {
+    try (FileOutputStream out = new FileOutputStream(tmp, false)) {
+      StringBuilder sb = new StringBuilder();
+      for (Position p : latest.values()) sb.append(positionJson(p)).append('\n');
+      if (session != null) sb.append(sessionJson(session)).append('\n');
+      JSONObject ack = new JSONObject();
+      ack.put("k", "ack");
+      ack.put("seq", ackedSeq);
+      sb.append(ack).append('\n');
+      out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      out.getFD().sync();
+    } catch (Exception e) {
+      Log.w(TAG, "watch journal compact failed", e);
+      return;
+    }
+    if (!tmp.renameTo(file)) Log.w(TAG, "watch journal rename failed");
+  }
+
+  private static JSONObject positionJson(Position p) {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("k", "p");
+      o.put("seq", p.seq);
+      o.put("vid", p.videoId);
+      o.put("pid", p.profileId);
+      o.put("pos", p.positionSec);
+      o.put("dur", p.durationSec);
+      o.put("ts", p.updatedAtMs);
+    } catch (Exception ignored) {}
+    return o;
+  }
+
+  private static JSONObject sessionJson(Session s) {
+    JSONObject o = new JSONObject();
+    try {
+      o.put("k", "s");
+      o.put("seq", s.seq);
+      o.put("vid", s.videoId);
+      o.put("pid", s.profileId);
+      o.put("tpid", s.titlePublicId);
+      o.put("playing", s.playing);
+      o.put("ts", s.atMs);
+    } catch (Exception ignored) {}
+    return o;
+  }
+}
@@ -0,0 +1,232 @@
+package com.cinesuper.tv;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progresso e heartbeat de sessão gravados no WatchJournal e enviados em
+ * lote para um endpoint REST (por padrão a edge function playback-sync).
+ * Tudo roda numa thread própria; falhas fazem backoff exponencial com
+ * jitter e o diário guarda o que ainda não foi confirmado. O endpoint vem
+ * do JS, então pode apontar para um stub local.
+ */
+final class WatchSync {
+  private static final String TAG = "CineSuperExo";
+  private static final long DEFAULT_FLUSH_MS = 30_000L;
+  private static final long BACKOFF_BASE_MS = 2_000L;
+  private static final long BACKOFF_MAX_MS = 5 * 60_000L;
+  private static final int TIMEOUT_MS = 10_000;
+
+  interface Listener {
+    /** ok=false com status 401/403 pede um accessToken novo ao JS; 410 é device revogado. */
+    void onSyncResult(boolean ok, int status, int sent, int pending, long nextRetryMs);
+  }
+
+  private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
+  private final WatchJournal journal;
+  private final Random random = new Random();
+  @Nullable private volatile Listener listener;
+
+  // config e estado só são tocados na thread do exec
+  private String endpoint = "";
+  private String accessToken = "";
+  private String apiKey = "";
+  private String deviceKey = "";
+  private long flushIntervalMs = DEFAULT_FLUSH_MS;
+  private int failures = 0;
+  private boolean waitingAuth = false;
+  private boolean revoked = false;
+  @Nullable private ScheduledFuture<?> scheduled;
+
+  WatchSync(File dir) {
+    journal = new WatchJournal(dir);
+    exec.execute(journal::load);
+  }
+
+  void setListener(@Nullable Listener l) {
+    listener = l;
+  }
+
+  void configure(String endpoint, String accessToken, String apiKey, String deviceKey, long flushIntervalMs) {
+    exec.execute(() -> {
+      if (endpoint != null) this.endpoint = endpoint.trim();
+      if (accessToken != null) {
+        this.accessToken = accessToken.trim();
+        waitingAuth = false;
+      }
+      if (apiKey != null) this.apiKey = apiKey.trim();
+      if (deviceKey != null && !deviceKey.trim().equals(this.deviceKey)) {
+        this.deviceKey = deviceKey.trim();
+        revoked = false;
+      }
+      if (flushIntervalMs > 0) this.flushIntervalMs = Math.max(5_000L, flushIntervalMs);
+      failures = 0;
+      scheduleFlush(0L);
+    });
+  }
+
+  void recordPosition(String videoId, String profileId, long positionSec, long durationSec, boolean flushNow) {
+    final long now = System.currentTimeMillis();
+    exec.execute(() -> {
+      journal.appendPosition(videoId, profileId, positionSec, durationSec, now);
+      scheduleFlush(flushNow ? 0L : flushIntervalMs);
+    });
+  }
+
+  void recordSession(String videoId, String profileId, String titlePublicId, boolean playing, boolean flushNow) {
+    final long now = System.currentTimeMillis();
+    exec.execute(() -> {
+      journal.appendSession(videoId, profileId, titlePublicId, playing, now);
+      scheduleFlush(flushNow ? 0L : flushIntervalMs);
+    });
+  }
+
+  void flushNow() {
+    exec.execute(() -> scheduleFlush(0L));
+  }
+
+  /** Sem tarefas novas; as da fila e o flush já agendado terminam. */
+  void shutdown() {
+    listener = null;
+    exec.shutdown();
+  }
+
+  interface PositionCallback {
+    void onPosition(@Nullable WatchJournal.Position p);
+  }
+
+  /** Lido do diário local, sem rede. */
+  void getLastPosition(String profileId, String videoId, PositionCallback cb) {
+    exec.execute(() -> cb.onPosition(journal.get(profileId, videoId)));
+  }
+
+  // exec: mantém no máximo um flush agendado, sempre o mais cedo
+  private void scheduleFlush(long delayMs) {
+    if (waitingAuth || revoked || exec.isShutdown()) return;
+    if (scheduled != null && !scheduled.isDone()) {
+      if (scheduled.getDelay(TimeUnit.MILLISECONDS) <= delayMs) return;
+      scheduled.cancel(false);
+    }
+    scheduled = exec.schedule(this::flush, Math.max(0L, delayMs), TimeUnit.MILLISECONDS);
+  }
+
+  private void flush() {
+    scheduled = null;
+    List<WatchJournal.Position> positions = journal.pendingPositions();
+    WatchJournal.Session session = journal.pendingSession();
+    if (positions.isEmpty() && session == null) return;
+    if (endpoint.isEmpty() || accessToken.isEmpty()) return;
+
+    long upToSeq = journal.lastSeq();
+    int status = 0;
+    try {
+      status = post(buildBody(positions, session));
+    } catch (Exception e) {
+      Log.w(TAG, "watch sync failed: " + e.getMessage());
+    }
+
+    int sent = positions.size() + (session != null ? 1 : 0);
+    if (status >= 200 && status < 300) {
+      journal.ack(upToSeq);
+      failures = 0;
+      report(true, status, sent, 0L);
+      // o que chegou durante o POST vai no próximo ciclo
+      if (!journal.pendingPositions().isEmpty() || journal.pendingSession() != null) scheduleFlush(flushIntervalMs);
+      return;
+    }
+
+    if (status == 410) {
+      // device revogado: o servidor nunca vai aceitar este lote nem os próximos
+      journal.ack(upToSeq);
+      revoked = true;
+      report(false, status, 0, 0L);
+      return;
+    }
+
+    if (status == 401 || status == 403) {
+      // espera o JS mandar um token novo via configure()
+      waitingAuth = true;
+      report(false, status, 0, 0L);
+      return;
+    }
+
+    failures++;
+    long backoff = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(failures - 1, 16));
+    long delay = backoff / 2 + (long) (random.nextDouble() * (backoff / 2));
+    report(false, status, 0, delay);
+    scheduleFlush(delay);
+  }
+
+  private void report(boolean ok, int status, int sent, long nextRetryMs) {
+    Listener l = listener;
+    if (l == null) return;
+    int pending = journal.pendingPositions().size() + (journal.pendingSession() != null ? 1 : 0);
+    try {
+      l.onSyncResult(ok, status, sent, pending, nextRetryMs);
+    } catch (Exception ignored) {}
+  }
+
+  private String buildBody(List<WatchJournal.Position> positions, @Nullable WatchJournal.Session session)
+    throws Exception {
+    JSONObject body = new JSONObject();
+    body.put("deviceKey", deviceKey);
+    JSONArray progress = new JSONArray();
+    for (WatchJournal.Position p : positions) {
+      JSONObject o = new JSONObject();
+      o.put("videoId", p.videoId);
+      o.put("profileId", p.profileId);
+      o.put("positionSec", p.positionSec);
+      o.put("durationSec", p.durationSec);
+      o.put("updatedAt", p.updatedAtMs);
+      progress.put(o);
+    }
+    body.put("progress", progress);
+    if (session != null) {
+      JSONObject s = new JSONObject();
+      s.put("videoId", session.videoId);
+      s.put("profileId", session.profileId);
+      s.put("titlePublicId", session.titlePublicId);
+      s.put("isPlaying", session.playing);
+      s.put("at", session.atMs);
+      body.put("session", s);
+    }
+    return body.toString();
+  }
+
+  private int post(String body) throws Exception {
+    HttpURLConnection conn = (HttpURLConnection) new URL(endpoint).openConnection();
+    conn.setConnectTimeout(TIMEOUT_MS);
+    conn.setReadTimeout(TIMEOUT_MS);
+    conn.setRequestMethod("POST");
+    conn.setDoOutput(true);
+    conn.setRequestProperty("Content-Type", "application/json");
+    conn.setRequestProperty("Authorization", "Bearer " + accessToken);
+    if (!apiKey.isEmpty()) conn.setRequestProperty("apikey", apiKey);
+    try {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      conn.setFixedLengthStreamingMode(bytes.length);
+      try (OutputStream out = conn.getOutputStream()) {
+        out.write(bytes);
+      }
+      return conn.getResponseCode();
+    } finally {
+      conn.disconnect();
+    }
+  }
+}
@@ -0,0 +1,495 @@
+package com.cinesuper.tv;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Base64;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Cache em disco para GETs do WebView (REST do Supabase, assets remotos)
+ * interceptados no TvWebViewClient. Só entra o que casa com uma regra
+ * vinda do JS (HttpCachePlugin.configure, persistida para o próximo cold
+ * start): dentro do TTL responde do disco; até TTL+stale responde do disco
+ * e revalida em background; depois disso vai à rede, e se a rede falhar
+ * ainda serve a cópia velha. A chave inclui o usuário do JWT (sub), não o
+ * token, para sobreviver ao refresh sem misturar contas.
+ */
+final class WebResponseCache {
+  private static final String TAG = "CineSuperExo";
+  private static final String PREFS = "cinesuper_webcache";
+  private static final String KEY_RULES = "rules";
+  private static final long MAX_BYTES = 32L * 1024 * 1024;
+  private static final int MAX_ENTRY_BYTES = 2 * 1024 * 1024;
+  private static final int TIMEOUT_MS = 15_000;
+  // headers que mudam a resposta do PostgREST
+  private static final String[] VARY = { "accept", "accept-profile", "prefer", "range" };
+  private static final Set<String> DROP_HEADERS = new HashSet<>(Arrays.asList(
+    "content-encoding", "content-length", "transfer-encoding", "connection", "keep-alive", "set-cookie"
+  ));
+
+  private static volatile WebResponseCache instance;
+
+  static WebResponseCache get(Context ctx) {
+    if (instance == null) {
+      synchronized (WebResponseCache.class) {
+        if (instance == null) instance = new WebResponseCache(ctx.getApplicationContext());
+      }
+    }
+    return instance;
+  }
+
+  static final class Rule {
+    final Pattern pattern;
+    final long ttlMs;
+    final long staleMs;
+
+    Rule(Pattern pattern, long ttlMs, long staleMs) {
+      this.pattern = pattern;
+      this.ttlMs = ttlMs;
+      this.staleMs = staleMs;
+    }
+  }
+
+  private final SharedPreferences prefs;
+  private final File dir;
+  private volatile List<Rule> rules = new ArrayList<>();
+  private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+  private final ThreadPoolExecutor revalidateExec =
+    new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+  private long diskBytes = -1L;
+
+  final AtomicLong hits = new AtomicLong();
+  final AtomicLong staleHits = new AtomicLong();
+  final AtomicLong misses = new AtomicLong();
+  final AtomicLong revalidations = new AtomicLong();
+  final AtomicLong offlineHits = new AtomicLong();
+  final AtomicLong errors = new AtomicLong();
+
+  private WebResponseCache(Context ctx) {
+    prefs = ctx.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    dir = new File(ctx.getCacheDir(), "webcache");
+    if (!dir.exists() && !dir.mkdirs()) Log.w(TAG, "webcache dir create failed");
+    try {
+      String raw = prefs.getString(KEY_RULES, null);
+      if (raw != null) rules = parseRules(new JSONArray(raw));
+    } catch (Exception e) {
+      Log.w(TAG, "webcache rules load failed", e);
+    }
+  }
+
+  /** [{ match: regex, ttlSec, staleSec }] — substitui as regras e persiste. */
+  void configure(JSONArray raw) throws Exception {
+    rules = parseRules(raw);
+    prefs.edit().putString(KEY_RULES, raw.toString()).apply();
+    Log.i(TAG, "webcache rules=" + rules.size());
+  }
+
+  private static List<Rule> parseRules(JSONArray raw) throws Exception {
+    List<Rule> out = new ArrayList<>();
+    for (int i = 0; i < raw.length(); i++) {
+      JSONObject o = raw.getJSONObject(i);
+      String match = o.optString("match", "");
+      long ttl = o.optLong("ttlSec", 0L) * 1000L;
+      if (match.isEmpty() || ttl <= 0) continue;
+      out.add(new Rule(Pattern.compile(match), ttl, Math.max(0L, o.optLong("staleSec", 0L)) * 1000L));
+    }
+    return out;
+  }
+
+  @Nullable
+  private Rule ruleFor(String url) {
+    for (Rule r : rules) {
+      if (r.pattern.matcher(url).find()) return r;
+    }
+    return null;
+  }
+
+  /** null = não é com a gente, segue o fluxo normal do Capacitor. */
+  @Nullable
+  WebResourceResponse intercept(WebResourceRequest request) {
+    if (!"GET".equalsIgnoreCase(request.getMethod())) return null;
+    Uri uri = request.getUrl();
+    String scheme = uri.getScheme();
+    if (!"https".equals(scheme) && !"http".equals(scheme)) return null;
+    String url = uri.toString();
+    Rule rule = ruleFor(url);
+    if (rule == null) return null;
+
+    Map<String, String> headers = lowerKeys(request.getRequestHeaders());
+    String key = keyFor(url, headers);
+    Entry cached = read(key);
+    long now = System.currentTimeMillis();
+    if (cached != null) {
+      long age = now - cached.storedAt;
+      if (age < rule.ttlMs) {
+        hits.incrementAndGet();
+        return cached.toResponse();
+      }
+      if (age < rule.ttlMs + rule.staleMs) {
+        staleHits.incrementAndGet();
+        revalidate(key, url, headers);
+        return cached.toResponse();
+      }
+    }
+
+    misses.incrementAndGet();
+    try {
+      Entry fresh = fetch(url, headers);
+      // WebResourceResponse não aceita 3xx (redirect entre protocolos, que o
+      // HttpURLConnection não segue): aí o WebView refaz sozinho
+      if (fresh.status >= 300 && fresh.status < 400) {
+        fresh.discard();
+        return null;
+      }
+      // erro, 206, no-store, grande demais: segue em stream da conexão, sem guardar
+      if (fresh.cacheable) write(key, fresh);
+      return fresh.toResponse();
+    } catch (Exception e) {
+      errors.incrementAndGet();
+      if (cached != null) {
+        offlineHits.incrementAndGet();
+        return cached.toResponse();
+      }
+      // sem cópia: deixa o WebView tentar sozinho e reportar o erro normal
+      return null;
+    }
+  }
+
+  private void revalidate(String key, String url, Map<String, String> headers) {
+    if (!revalidating.add(key)) return;
+    revalidateExec.execute(() -> {
+      try {
+        Entry fresh = fetch(url, headers);
+        if (fresh.cacheable) write(key, fresh);
+        else fresh.discard();
+        revalidations.incrementAndGet();
+      } catch (Exception e) {
+        errors.incrementAndGet();
+      } finally {
+        revalidating.remove(key);
+      }
+    });
+  }
+
+  private static Map<String, String> lowerKeys(@Nullable Map<String, String> in) {
+    Map<String, String> out = new HashMap<>();
+    if (in == null) return out;
+    for (Map.Entry<String, String> e : in.entrySet()) {
+      if (e.getKey() != null) out.put(e.getKey().toLowerCase(Locale.ROOT), e.getValue());
+    }
+    return out;
+  }
+
+  private static String keyFor(String url, Map<String, String> headers) {
+    StringBuilder sb = new StringBuilder(url).append('\n').append(userOf(headers.get("authorization")));
+    for (String h : VARY) sb.append('\n').append(headers.containsKey(h) ? headers.get(h) : "");
+    try {
+      byte[] d = MessageDigest.getInstance("SHA-1").digest(sb.toString().getBytes("UTF-8"));
+      StringBuilder hex = new StringBuilder(d.length * 2);
+      for (byte b : d) hex.append(String.format("%02x", b));
+      return hex.toString();
+    } catch (Exception e) {
+      return Integer.toHexString(sb.toString().hashCode());
+    }
+  }
+
+  /** sub do JWT (sem validar: só separa contas na chave); "anon" se não houver. */
+  private static String userOf(@Nullable String authorization) {
+    if (authorization == null) return "anon";
+    try {
+      String jwt = authorization.startsWith("Bearer ") ? authorization.substring(7) : authorization;
+      String[] parts = jwt.split("\\.");
+      if (parts.length < 2) return "anon";
+      byte[] payload = Base64.decode(parts[1], Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+      String sub = new JSONObject(new String(payload, "UTF-8")).optString("sub", "");
+      return sub.isEmpty() ? "anon" : sub;
+    } catch (Exception e) {
+      return "anon";
+    }
+  }
+
+  /**
+   * Cacheável (200, sem no-store, até MAX_ENTRY_BYTES) vem lido em body; o
+   * resto fica em stream, lido pelo WebView direto da conexão.
+   */
+  private static Entry fetch(String url, Map<String, String> headers) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+    conn.setConnectTimeout(TIMEOUT_MS);
+    conn.setReadTimeout(TIMEOUT_MS);
+    for (Map.Entry<String, String> h : headers.entrySet()) {
+      // gzip fica com o HttpURLConnection (descompacta sozinho); condicionais
+      // do cache do próprio WebView dariam 304, que não dá para repassar
+      String name = h.getKey();
+      if ("accept-encoding".equals(name) || "if-none-match".equals(name) || "if-modified-since".equals(name)) continue;
+      conn.setRequestProperty(h.getKey(), h.getValue());
+    }
+    boolean handedOff = false;
+    try {
+      Entry e = new Entry();
+      e.status = conn.getResponseCode();
+      e.reason = conn.getResponseMessage();
+      e.storedAt = System.currentTimeMillis();
+      String cacheControl = "";
+      for (Map.Entry<String, List<String>> h : conn.getHeaderFields().entrySet()) {
+        if (h.getKey() == null || h.getValue() == null || h.getValue().isEmpty()) continue;
+        String name = h.getKey().toLowerCase(Locale.ROOT);
+        if ("cache-control".equals(name)) cacheControl = h.getValue().get(0).toLowerCase(Locale.ROOT);
+        if (DROP_HEADERS.contains(name)) continue;
+        e.headers.put(h.getKey(), h.getValue().get(0));
+      }
+      e.contentType = conn.getContentType();
+      InputStream in = e.status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+      if (in == null) {
+        e.body = new byte[0];
+        return e;
+      }
+      long length = parseLength(conn.getHeaderField("Content-Length"));
+      boolean cacheable = e.status == 200 && !cacheControl.contains("no-store") && length <= MAX_ENTRY_BYTES;
+      if (!cacheable) {
+        e.stream = new ConnectionStream(in, conn);
+        handedOff = true;
+        return e;
+      }
+      // sem Content-Length (chunked): lê até o teto; passou, o resto segue da conexão
+      ByteArrayOutputStream out = new ByteArrayOutputStream(length > 0 ? (int) length : 16 * 1024);
+      byte[] buf = new byte[16 * 1024];
+      int n;
+      while (out.size() <= MAX_ENTRY_BYTES && (n = in.read(buf)) > 0) out.write(buf, 0, n);
+      if (out.size() > MAX_ENTRY_BYTES) {
+        e.stream = new SequenceInputStream(new ByteArrayInputStream(out.toByteArray()), new ConnectionStream(in, conn));
+        handedOff = true;
+        return e;
+      }
+      in.close();
+      e.body = out.toByteArray();
+      e.cacheable = true;
+      return e;
+    } finally {
+      if (!handedOff) conn.disconnect();
+    }
+  }
+
+  private static long parseLength(@Nullable String raw) {
+    if (raw == null) return -1L;
+    try {
+      return Long.parseLong(raw.trim());
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+
+  /** Solta a conexão quando o WebView termina (ou desiste) de ler. */
+  private static final class ConnectionStream extends FilterInputStream {
+    private final HttpURLConnection conn;
+
+    ConnectionStream(InputStream in, HttpURLConnection conn) {
+      super(in);
+      this.conn = conn;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        conn.disconnect();
+      }
+    }
+  }
+
+  // ===== disco: <key>.meta (JSON) + <key>.body =====
+
+  @Nullable
+  private Entry read(String key) {
+    File meta = new File(dir, key + ".meta");
+    File body = new File(dir, key + ".body");
+    if (!meta.exists() || !body.exists()) return null;
+    try {
+      JSONObject m = new JSONObject(new String(readAll(meta), "UTF-8"));
+      Entry e = new Entry();
+      e.status = m.optInt("status", 200);
+      e.reason = m.optString("reason", "OK");
+      e.contentType = m.optString("contentType", "");
+      e.storedAt = m.optLong("storedAt", 0L);
+      JSONObject h = m.optJSONObject("headers");
+      if (h != null) {
+        Iterator<String> it = h.keys();
+        while (it.hasNext()) {
+          String k = it.next();
+          e.headers.put(k, h.optString(k, ""));
+        }
+      }
+      e.body = readAll(body);
+      body.setLastModified(System.currentTimeMillis());
+      return e;
+    } catch (Exception ex) {
+      meta.delete();
+      body.delete();
+      return null;
+    }
+  }
+
+  private void write(String key, Entry e) {
+    try {
+      JSONObject m = new JSONObject();
+      m.put("status", e.status);
+      m.put("reason", e.reason);
+      m.put("contentType", e.contentType != null ? e.contentType : "");
+      m.put("storedAt", e.storedAt);
+      m.put("headers", new JSONObject(e.headers));
+      // body antes da meta: meta presente = entrada completa
+      writeAtomic(new File(dir, key + ".body"), e.body);
+      writeAtomic(new File(dir, key + ".meta"), m.toString().getBytes("UTF-8"));
+      account(e.body.length);
+    } catch (Exception ex) {
+      Log.w(TAG, "webcache write failed", ex);
+    }
+  }
+
+  private static void writeAtomic(File target, byte[] data) throws IOException {
+    File tmp = new File(target.getPath() + ".tmp");
+    try (FileOutputStream os = new FileOutputStream(tmp)) {
+      os.write(data);
+    }
+    if (!tmp.renameTo(target)) throw new IOException("rename failed: " + target.getName());
+  }
+
+  private static byte[] readAll(File f) throws IOException {
+    try (FileInputStream in = new FileInputStream(f)) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.max(0, f.length()));
+      byte[] buf = new byte[16 * 1024];
+      int n;
+      while ((n = in.read(buf)) > 0) out.write(buf, 0, n);
+      return out.toByteArray();
+    }
+  }
+
+  private synchronized void account(long added) {
+    if (diskBytes < 0) diskBytes = sizeOnDisk();
+    diskBytes += added;
+    if (diskBytes > MAX_BYTES) trim();
+  }
+
+  private long sizeOnDisk() {
+    long total = 0L;
+    File[] files = dir.listFiles();
+    if (files != null) for (File f : files) total += f.length();
+    return total;
+  }
+
+  /** LRU pelo lastModified do body (tocado a cada hit) até 80% do teto. */
+  private void trim() {
+    File[] bodies = dir.listFiles((d, name) -> name.endsWith(".body"));
+    if (bodies == null) return;
+    Arrays.sort(bodies, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+    long total = sizeOnDisk();
+    long target = MAX_BYTES * 8 / 10;
+    for (File b : bodies) {
+      if (total <= target) break;
+      String key = b.getName().substring(0, b.getName().length() - ".body".length());
+      File meta = new File(dir, key + ".meta");
+      long len = b.length() + meta.length();
+      meta.delete();
+      if (b.delete()) total -= len;
+    }
+    diskBytes = total;
+  }
+
+  /** Aviso de memória: revalidações ainda na fila ficam para o próximo hit stale. */
+  void trimMemory() {
+    revalidateExec.getQueue().clear();
+    revalidating.clear();
+  }
+
+  synchronized void clear() {
+    File[] files = dir.listFiles();
+    if (files != null) for (File f : files) f.delete();
+    diskBytes = 0L;
+  }
+
+  synchronized long diskBytes() {
+    if (diskBytes < 0) diskBytes = sizeOnDisk();
+    return diskBytes;
+  }
+
+  int ruleCount() {
+    return rules.size();
+  }
+
+  private static final class Entry {
+    int status;
+    String reason;
+    String contentType;
+    long storedAt;
+    final Map<String, String> headers = new HashMap<>();
+    byte[] body;
+    // corpo não cacheável, ainda na conexão (só vale para uma resposta)
+    @Nullable InputStream stream;
+    boolean cacheable;
+
+    void discard() {
+      if (stream == null) return;
+      try {
+        stream.close();
+      } catch (IOException ignored) {}
+      stream = null;
+    }
+
+    WebResourceResponse toResponse() {
+      String mime = "application/octet-stream";
+      String charset = null;
+      if (contentType != null && !contentType.isEmpty()) {
+        String[] parts = contentType.split(";");
+        mime = parts[0].trim();
+        for (int i = 1; i < parts.length; i++) {
+          String p = parts[i].trim();
+          if (p.toLowerCase(Locale.ROOT).startsWith("charset=")) charset = p.substring(8).trim();
+        }
+      }
+      String why = reason != null && !reason.trim().isEmpty() ? reason : "OK";
+      Map<String, String> out = new HashMap<>(headers);
+      boolean hasCors = false;
+      for (String k : out.keySet()) hasCors |= "access-control-allow-origin".equalsIgnoreCase(k);
+      // a página (localhost) lê a resposta via fetch cross-origin sem credentials
+      if (!hasCors) out.put("Access-Control-Allow-Origin", "*");
+      InputStream data = stream != null ? stream : new ByteArrayInputStream(body);
+      return new WebResourceResponse(mime, charset, status, why, out, data);
+    }
+  }
+}
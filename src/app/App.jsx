@@ -9,6 +9,7 @@ import { ensureTvNavInit } from "./tvNavInit.js";
 import { ensureTvScaleInit } from "./tv/tvScaleInit.js";
 import { supabase } from "../lib/supabaseClient.js";
 import { checkForUpdate, downloadUpdate } from "../lib/update.ts";
+import { configureNativeHttpCache } from "../native/httpCache.js";
 
 function routeEnabledForTarget(r) {
   const targets = Array.isArray(r.targets) ? r.targets.map(String) : null;
@@ -65,6 +66,12 @@ export default function App() {
     } catch {}
   }, []);
 
+  // TV nativo: regras do cache HTTP interceptado no WebView (catálogo/Top 10)
+  useEffect(() => {
+    if (!IS_TV) return;
+    configureNativeHttpCache();
+  }, []);
+
   // ✅ TV: checa atualização na abertura
   useEffect(() => {
     if (!IS_TV) return;
@@ -95,9 +102,13 @@ export default function App() {
     setUpdateProgress(0);
     setUpdateError("");
 
-    const res = await downloadUpdate(updateInfo.apkUrl, (p) => {
-      setUpdateProgress(Math.max(0, Math.min(1, Number(p?.progress || 0))));
-    });
+    const res = await downloadUpdate(
+      updateInfo.apkUrl,
+      (p) => {
+        setUpdateProgress(Math.max(0, Math.min(1, Number(p?.progress || 0))));
+      },
+      { sha256: updateInfo.sha256, size: updateInfo.size }
+    );
 
     if (!res?.ok) {
       setUpdateStage("external");
@@ -314,6 +325,12 @@ export default function App() {
       if (detail?.code === "install_permission_required") {
         setUpdateError("Permita instalação de apps desconhecidos e clique em Atualizar agora novamente.");
         setUpdateStage("external");
+      } else if (detail?.code === "checksum_mismatch") {
+        setUpdateError("O arquivo baixado não confere. Tente novamente.");
+        setUpdateStage("external");
+      } else if (detail?.code === "install_failed") {
+        setUpdateError(`A instalação falhou${reason}. Tente novamente.`);
+        setUpdateStage("external");
       } else {
         setUpdateError(`Falha no download${reason}. Tente novamente.`);
         setUpdateStage("external");
@@ -4,6 +4,7 @@ import { useNavigate } from "react-router-dom";
 import Container from "../layout/Container.jsx";
 import { getHeroMedia } from "../../data/mockCatalog.js";
 import { supabase } from "../../lib/supabaseClient.js";
+import { artworkLoadFailed, useArtworkSrc } from "../../native/artwork.js";
 
 function isHttpUrl(v) {
   return /^https?:\/\//i.test(String(v || "").trim());
@@ -66,6 +67,10 @@ export default function Billboard({ item }) {
   const [loadingLogo, setLoadingLogo] = useState(false);
 
   const hero = useMemo(() => getHeroMedia(item?.heroImage), [item?.heroImage]);
+  // TV nativo: hero reduzido para a largura da tela (web: URL original)
+  const heroImgSrc = useArtworkSrc(hero?.type === "image" ? hero.src : "", {
+    width: typeof window !== "undefined" ? window.innerWidth : 1280,
+  });
 
   // no seu caso isso é KEY: ".../preview.mp4"
   const previewKey = useMemo(() => {
@@ -284,9 +289,10 @@ export default function Billboard({ item }) {
                 "
               />
             </div>
-          ) : hero?.src ? (
+          ) : hero?.src && heroImgSrc ? (
             <img
-              src={hero.src}
+              src={heroImgSrc}
+              onError={artworkLoadFailed}
               alt={item.title || "CineSuper"}
               className="absolute inset-0 h-full w-full object-cover opacity-90"
               loading="eager"
@@ -5,6 +5,7 @@ import { ChevronLeft, ChevronRight } from "lucide-react";
 import { useWatchProgressForItems } from "../../hooks/browse/useWatchProgressForItems.js";
 import { IS_TV } from "../../app/target.js";
 import { FocusContext, useFocusable } from "@noriginmedia/norigin-spatial-navigation";
+import { TV_CARD_ART, artworkFocus, registerArtworkRow } from "../../native/artwork.js";
 
 function clamp(n, min, max) {
   return Math.max(min, Math.min(max, n));
@@ -52,12 +53,13 @@ function ensureRowVisibleFromItem(itemEl) {
   rowEl.scrollIntoView({ behavior: "smooth", block: "nearest", inline: "nearest" });
 }
 
-function TvCard({ focusKey, scrollerRef, autoFocus, children }) {
+function TvCard({ focusKey, scrollerRef, autoFocus, onFocused, children }) {
   const { ref, focused, focusSelf } = useFocusable({
     focusKey,
     onFocus: () => {
       ensureRowVisibleFromItem(ref.current);
       ensureVisibleInScroller(scrollerRef.current, ref.current);
+      onFocused?.();
     },
     onEnterPress: () => {
       const el = ref.current;
@@ -109,6 +111,7 @@ export default function Row({
 
   const sliced = useMemo(() => items.slice(0, MAX_ITEMS), [items]);
   const { progressByVideoId } = useWatchProgressForItems(sliced);
+  const thumbs = useMemo(() => sliced.map((it) => String(it?.thumb || "")), [sliced]);
 
   const pageScroll = useMemo(() => {
     const el = scrollerRef.current;
@@ -158,6 +161,12 @@ export default function Row({
 
   const rowFocusKey = String(tvRowKey || `row:${title || "row"}`);
 
+  // TV nativo: capas das próximas fileiras/cards são pré-carregadas na direção do D-pad
+  useEffect(() => {
+    if (!IS_TV) return;
+    return registerArtworkRow(rowFocusKey, scrollerRef.current, thumbs, TV_CARD_ART);
+  }, [rowFocusKey, thumbs]);
+
   const { ref: rowRef, focusKey } = useFocusable(
     IS_TV
       ? { focusKey: rowFocusKey, saveLastFocusedChild: true, trackChildren: true }
@@ -266,7 +275,13 @@ export default function Row({
                 const autoFocus = globalAutoFocus && idx === 0;
 
                 return (
-                  <TvCard key={key} focusKey={cardKey} scrollerRef={scrollerRef} autoFocus={autoFocus}>
+                  <TvCard
+                    key={key}
+                    focusKey={cardKey}
+                    scrollerRef={scrollerRef}
+                    autoFocus={autoFocus}
+                    onFocused={() => artworkFocus(rowFocusKey, idx)}
+                  >
                     <TitleCard
                       item={it}
                       progressSec={progressSec}
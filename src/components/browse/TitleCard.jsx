@@ -5,6 +5,7 @@ import { createPortal } from "react-dom";
 import { Play, Plus, X, ListPlus, Check, Volume2, VolumeX, Heart } from "lucide-react";
 import { IS_TV } from "../../app/target.js";
 import { fetchTitleById } from "../../lib/catalogApi.js";
+import { TV_CARD_ART, artworkLoadFailed, useArtworkSrc } from "../../native/artwork.js";
 
 const SR_RE = /^sr-\d{8}$/i;
 
@@ -183,6 +184,8 @@ export default function TitleCard({
   const [detailsLoading, setDetailsLoading] = useState(false);
 
   const full = useMemo(() => (details ? { ...item, ...details } : item), [item, details]);
+  // fora do app nativo volta a URL original
+  const tvThumbSrc = useArtworkSrc(IS_TV ? full?.thumb : "", TV_CARD_ART);
   const categoriesArr = useMemo(() => (Array.isArray(full?.categories) ? full.categories : []), [full]);
   const tagsArr = useMemo(() => (Array.isArray(full?.tags) ? full.tags : []), [full]);
 
@@ -305,13 +308,16 @@ export default function TitleCard({
               </div>
             ) : null}
 
-            <img
-              src={full.thumb}
-              alt={full.title}
-              className="absolute inset-0 h-full w-full object-contain"
-              loading="lazy"
-              draggable="false"
-            />
+            {tvThumbSrc ? (
+              <img
+                src={tvThumbSrc}
+                onError={artworkLoadFailed}
+                alt={full.title}
+                className="absolute inset-0 h-full w-full object-contain"
+                loading="lazy"
+                draggable="false"
+              />
+            ) : null}
 
             <div
               className={[
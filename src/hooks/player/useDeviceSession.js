@@ -3,7 +3,8 @@ import { useCallback, useRef } from "react";
 import { DEBUG, DEVICE_LABEL_STORAGE } from "../../player/env.js";
 import { defaultDeviceLabel, getOrCreateDeviceKey, guessPlatform, readStoredDeviceLabel } from "../../player/device.js";
 
-export function useDeviceSession({ supabase, titlePublicIdRef, titleDbIdRef, setError }) {
+// heartbeat=false: o player nativo já manda o heartbeat em lote (NATIVE_PROGRESS)
+export function useDeviceSession({ supabase, titlePublicIdRef, titleDbIdRef, setError, heartbeat = true }) {
   const deviceIdRef = useRef("");
   const heartbeatRef = useRef(null);
   const lastReportRef = useRef({ ts: 0, is_playing: null, titleDbId: null, profileId: null });
@@ -137,7 +138,7 @@ export function useDeviceSession({ supabase, titlePublicIdRef, titleDbIdRef, set
   }, []);
 
   const startHeartbeatIfNeeded = useCallback(() => {
-    if (heartbeatRef.current) return;
+    if (!heartbeat || heartbeatRef.current) return;
 
     heartbeatRef.current = setInterval(async () => {
       const deviceId = String(deviceIdRef.current || "").trim();
@@ -167,7 +168,7 @@ export function useDeviceSession({ supabase, titlePublicIdRef, titleDbIdRef, set
         if (DEBUG) console.warn("[DEVICES] heartbeat failed:", e?.message || e);
       }
     }, 25_000);
-  }, [supabase]);
+  }, [supabase, heartbeat]);
 
   const reportSessionState = useCallback(
     async ({ profileId, titleDbId, is_playing }) => {
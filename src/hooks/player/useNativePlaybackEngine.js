@@ -1,6 +1,14 @@
 import { useEffect, useRef } from "react";
-import { exoPlayer, isNativeExoAvailable } from "../../native/exoplayer.js";
-import { DEBUG, INTRO_SRC, WATCH_BASE } from "../../player/env.js";
+import { exoPlayer, isNativeExoAvailable, readTrackPrefs } from "../../native/exoplayer.js";
+import {
+  DEBUG,
+  INTRO_SRC,
+  NATIVE_PROGRESS,
+  NATIVE_PROGRESS_ENDPOINT,
+  STREAM_FALLBACK_BASES,
+  WATCH_BASE,
+} from "../../player/env.js";
+import { getOrCreateDeviceKey } from "../../player/device.js";
 import { normalizeGatewayUrl } from "../../player/gateway.js";
 
 function parsePositiveEnvNumber(rawValue, fallbackValue) {
@@ -83,6 +91,9 @@ export function useNativePlaybackEngine({
   subtitleToGatewayUrl,
 }) {
   const tokenTimerRef = useRef(null);
+  // token renovado no lugar muda o subtitleToGatewayUrl; por ref para não reiniciar o efeito
+  const subtitleToGatewayUrlRef = useRef(subtitleToGatewayUrl);
+  subtitleToGatewayUrlRef.current = subtitleToGatewayUrl;
   const isPlayingRef = useRef(false);
   const currentRef = useRef(0);
   const videoOffsetY = useRef(
@@ -90,6 +101,21 @@ export function useNativePlaybackEngine({
   );
   const preferSdr =
     String(import.meta?.env?.VITE_TV_PREFER_SDR ?? "1") !== "0";
+  // soundbar/AVR: AC-3/E-AC-3 sem decodificar na CPU
+  const audioPassthrough =
+    String(import.meta?.env?.VITE_TV_AUDIO_PASSTHROUGH ?? "0") === "1";
+  const audioOffload =
+    String(import.meta?.env?.VITE_TV_AUDIO_OFFLOAD ?? "0") === "1";
+  // off | seamless | always (troca de modo do display para o fps do conteúdo)
+  const frameRateMatching =
+    String(import.meta?.env?.VITE_TV_FRAME_RATE_MATCHING || "off").trim().toLowerCase();
+  // HLS chunkless + extractors enxutos + início alinhado ao segmento
+  const fastStart =
+    String(import.meta?.env?.VITE_TV_FAST_START ?? "0") === "1";
+  // auto | sdr | hdr (decidido no nativo antes da primeira seleção)
+  const colorMode =
+    String(import.meta?.env?.VITE_TV_COLOR_MODE || "").trim().toLowerCase() ||
+    (preferSdr ? "sdr" : "auto");
   const maxVideoHeight = parsePositiveEnvNumber(
     import.meta?.env?.VITE_TV_MAX_HEIGHT,
     2160
@@ -102,6 +128,27 @@ export function useNativePlaybackEngine({
     import.meta?.env?.VITE_TV_MAX_FPS,
     30
   );
+  // ABR: 0 = default do media3
+  const abrBandwidthFraction = parsePositiveEnvNumber(
+    import.meta?.env?.VITE_TV_ABR_BW_FRACTION,
+    0
+  );
+  const abrMinBufferForUpSwitchMs = parsePositiveEnvNumber(
+    import.meta?.env?.VITE_TV_ABR_UP_MS,
+    0
+  );
+  const abrMaxBufferForDownSwitchMs = parsePositiveEnvNumber(
+    import.meta?.env?.VITE_TV_ABR_DOWN_MS,
+    0
+  );
+  // pré-busca de segmentos: "0" desliga; vazio = padrão nativo
+  const prefetchSegmentsEnv = String(import.meta?.env?.VITE_TV_PREFETCH_SEGMENTS ?? "").trim();
+  const prefetchConcurrency = parsePositiveEnvNumber(
+    import.meta?.env?.VITE_TV_PREFETCH_CONCURRENCY,
+    0
+  );
+  // pausa longa solta decoder/buffers: "0" desliga; vazio = padrão nativo (5 min)
+  const idleReleaseEnv = String(import.meta?.env?.VITE_TV_IDLE_RELEASE_MS ?? "").trim();
 
   useEffect(() => {
     if (!enabled || !isNativeExoAvailable()) return;
@@ -128,6 +175,28 @@ export function useNativePlaybackEngine({
       gateBlocked: !!gate?.blocked,
     });
 
+    // contexto de progresso só na fonte principal (intro não entra)
+    const watchContext = () => {
+      if (!NATIVE_PROGRESS) return {};
+      const videoId = String(titleDbIdRef?.current || "").trim();
+      const profileId = String(gate?.profile?.id || "").trim();
+      if (!videoId || !profileId) return {};
+      return { watch: { videoId, profileId } };
+    };
+
+    const configureWatchSync = async (refresh) => {
+      const { data } = refresh ? await supabase.auth.refreshSession() : await supabase.auth.getSession();
+      const accessToken = data?.session?.access_token || "";
+      if (!accessToken) return;
+      const base = String(import.meta?.env?.VITE_SUPABASE_URL || "").replace(/\/+$/, "");
+      await exoPlayer.configureWatchSync({
+        endpoint: NATIVE_PROGRESS_ENDPOINT || `${base}/functions/v1/playback-sync`,
+        accessToken,
+        apiKey: String(import.meta?.env?.VITE_SUPABASE_ANON_KEY || ""),
+        deviceKey: getOrCreateDeviceKey(),
+      });
+    };
+
     const clearTokenTimer = () => {
       if (tokenTimerRef.current) {
         clearTimeout(tokenTimerRef.current);
@@ -144,11 +213,21 @@ export function useNativePlaybackEngine({
       const safety = 120;
       const seconds = Math.max(10, exp - now - safety);
       tokenTimerRef.current = setTimeout(() => {
-        refreshToken("scheduled").catch(() => {});
+        refreshToken("scheduled", { inPlace: true }).catch(() => {});
       }, seconds * 1000);
     };
 
-    const refreshToken = async (reason = "manual") => {
+    // inPlace: só troca o ?t= no nativo (loaders seguem sem re-prepare); setSource é o fallback
+    let refreshInFlight = null;
+    const refreshToken = (reason = "manual", opts = {}) => {
+      if (refreshInFlight) return refreshInFlight;
+      refreshInFlight = doRefreshToken(reason, opts).finally(() => {
+        refreshInFlight = null;
+      });
+      return refreshInFlight;
+    };
+
+    const doRefreshToken = async (reason, { inPlace = false } = {}) => {
       if (!supabase?.functions?.invoke) return false;
       const body = pbBodyRef?.current;
       if (!body) return false;
@@ -175,6 +254,14 @@ export function useNativePlaybackEngine({
           onTokenRefreshed?.({ master, thumbs, exp });
         } catch {}
 
+        if (inPlace) {
+          const upd = await exoPlayer.updateToken(master);
+          if (upd?.ok !== false) {
+            if (DEBUG) console.log("[EXO-JS] token updated in place", reason);
+            return true;
+          }
+        }
+
         const snap = Number(currentRef.current || 0);
         if (snap > 0.5) {
           try {
@@ -182,17 +269,23 @@ export function useNativePlaybackEngine({
           } catch {}
         }
 
-        const subs = buildSubtitleList(subtitleFiles, subtitleToGatewayUrl);
-        const setRes = await exoPlayer.setSource({
-          url: master,
-          startPositionSec: snap > 0.5 ? snap : 0,
-          subtitles: subs,
-        });
+        const subs = buildSubtitleList(subtitleFiles, subtitleToGatewayUrlRef.current);
+        const setRes = await exoPlayer.apply([
+          {
+            op: "setSource",
+            url: master,
+            startPositionSec: snap > 0.5 ? snap : 0,
+            subtitles: subs,
+            cdnBaseUrls: STREAM_FALLBACK_BASES,
+            ...readTrackPrefs(),
+            ...watchContext(),
+          },
+          { op: "play" },
+        ]);
         if (setRes?.ok === false) {
           console.log("[EXO-JS] setSource failed", setRes?.error || "unknown");
           return false;
         }
-        await exoPlayer.play();
         return true;
       } catch (e) {
         if (DEBUG) console.warn("[EXO] refresh failed", e);
@@ -226,8 +319,10 @@ export function useNativePlaybackEngine({
           is_playing: playing,
         });
 
-        if (playing) startProgressTimer?.();
-        else {
+        // com NATIVE_PROGRESS o plugin grava/sincroniza sozinho
+        if (playing) {
+          if (!NATIVE_PROGRESS) startProgressTimer?.();
+        } else if (!NATIVE_PROGRESS) {
           stopProgressTimer?.();
           saveProgress?.({ force: true }).catch(() => {});
         }
@@ -247,6 +342,20 @@ export function useNativePlaybackEngine({
       setActiveAudioTrack(Number.isFinite(idx) ? idx : -1);
     };
 
+    // delta de seleção: a lista de faixas não muda, só quem está ativo
+    const handleTrackSelection = (payload) => {
+      if (!alive) return;
+      const idx = Number(payload?.selectedAudio ?? -1);
+      setActiveAudioTrack(Number.isFinite(idx) ? idx : -1);
+      const textId = String(payload?.selectedTextId || "");
+      setTextTracks((prev) =>
+        (Array.isArray(prev) ? prev : []).map((t) => ({
+          ...t,
+          mode: textId && t?.id === textId ? "showing" : "disabled",
+        }))
+      );
+    };
+
     const handleError = (payload) => {
       if (!alive) return;
       console.log("[EXO-JS] error", payload);
@@ -285,16 +394,65 @@ export function useNativePlaybackEngine({
 
     const subState = exoPlayer.addListener("state", handleState);
     const subTracks = exoPlayer.addListener("tracks", handleTracks);
+    const subTrackSelection = exoPlayer.addListener("trackSelection", handleTrackSelection);
     const subError = exoPlayer.addListener("error", handleError);
     const subEnded = exoPlayer.addListener("ended", handleEnded);
+    const subStartup = exoPlayer.addListener("startup", (payload) => {
+      if (DEBUG) console.log("[EXO-JS] startup", payload);
+    });
+    const subFrameRate = exoPlayer.addListener("frameRateMatch", (payload) => {
+      if (DEBUG) console.log("[EXO-JS] frameRateMatch", payload);
+    });
+    const subDecoderHealth = exoPlayer.addListener("decoderHealth", (payload) => {
+      if (DEBUG) console.log("[EXO-JS] decoderHealth", payload);
+    });
+    // aquecimento do device (status/degrau do ThermalMonitor); vai junto no log de suporte
+    const subThermal = exoPlayer.addListener("thermal", (payload) => {
+      if (DEBUG) console.log("[EXO-JS] thermal", payload);
+    });
+    const subIdle = exoPlayer.addListener("idle", (payload) => {
+      if (DEBUG) console.log("[EXO-JS] idle", payload);
+    });
+    // loader parado num 401/403 esperando token (PlaybackToken no nativo)
+    const subTokenExpired = exoPlayer.addListener("tokenExpired", (payload) => {
+      if (!alive) return;
+      if (DEBUG) console.log("[EXO-JS] tokenExpired", payload);
+      refreshToken(`expired-${payload?.http || 0}`, { inPlace: true }).catch(() => {});
+    });
+    const subWatchSync = NATIVE_PROGRESS
+      ? exoPlayer.addListener("watchSync", (payload) => {
+          if (DEBUG && !payload?.ok) console.log("[EXO-JS] watchSync", payload);
+          // 401 = access token vencido; 410 = aparelho revogado, o nativo descarta e para
+          if (Number(payload?.status) === 401) configureWatchSync(true).catch(() => {});
+        })
+      : null;
+    const authSub = NATIVE_PROGRESS
+      ? supabase?.auth?.onAuthStateChange?.((event, session) => {
+          if (event === "TOKEN_REFRESHED" && session?.access_token) {
+            exoPlayer.configureWatchSync({ accessToken: session.access_token }).catch(() => {});
+          }
+        })
+      : null;
 
     (async () => {
       const initRes = await exoPlayer.init({
         transparent: true,
         preferSdr,
+        colorMode,
         maxVideoHeight: Number.isFinite(maxVideoHeight) ? maxVideoHeight : 0,
         maxVideoWidth: Number.isFinite(maxVideoWidth) ? maxVideoWidth : 0,
         maxVideoFps: Number.isFinite(maxVideoFps) ? maxVideoFps : 0,
+        abrBandwidthFraction,
+        abrMinBufferForUpSwitchMs,
+        abrMaxBufferForDownSwitchMs,
+        ...(prefetchSegmentsEnv ? { prefetchSegments: Number(prefetchSegmentsEnv) || 0 } : {}),
+        prefetchConcurrency,
+        ...(idleReleaseEnv ? { idleReleaseMs: Number(idleReleaseEnv) || 0 } : {}),
+        capToViewport: true,
+        audioPassthrough,
+        audioOffload,
+        frameRateMatching,
+        fastStart,
       });
       if (initRes?.ok === false) {
         console.log("[EXO-JS] init failed", initRes?.error || "unknown");
@@ -302,6 +460,8 @@ export function useNativePlaybackEngine({
         return;
       }
 
+      if (NATIVE_PROGRESS) configureWatchSync(false).catch(() => {});
+
       try {
         if (Number.isFinite(videoOffsetY.current) && videoOffsetY.current !== 0) {
           await exoPlayer.setVideoOffset(videoOffsetY.current);
@@ -335,13 +495,14 @@ export function useNativePlaybackEngine({
 
       // INTRO
       if (introEnabled && !introDone) {
-        const resIntro = await exoPlayer.setSource({ url: INTRO_SRC, startPositionSec: 0, subtitles: [] });
+        const resIntro = await exoPlayer.apply([
+          { op: "setSource", url: INTRO_SRC, startPositionSec: 0, subtitles: [] },
+          { op: "play" },
+        ]);
         if (resIntro?.ok === false) {
           console.log("[EXO-JS] intro setSource failed", resIntro?.error || "unknown");
           setError?.("Falha ao iniciar intro no player nativo.");
-          return;
         }
-        await exoPlayer.play();
         return;
       }
 
@@ -354,8 +515,20 @@ export function useNativePlaybackEngine({
       const startPos = !appliedResumeRef?.current && resume > 1 ? resume : 0;
       if (startPos > 0 && appliedResumeRef) appliedResumeRef.current = true;
 
-      const subs = buildSubtitleList(subtitleFiles, subtitleToGatewayUrl);
-      const resMain = await exoPlayer.setSource({ url: pbSrc, startPositionSec: startPos, subtitles: subs });
+      const subs = buildSubtitleList(subtitleFiles, subtitleToGatewayUrlRef.current);
+      // source + faixas preferidas + play numa ida só ao bridge
+      const resMain = await exoPlayer.apply([
+        {
+          op: "setSource",
+          url: pbSrc,
+          startPositionSec: startPos,
+          subtitles: subs,
+          cdnBaseUrls: STREAM_FALLBACK_BASES,
+          ...readTrackPrefs(),
+          ...watchContext(),
+        },
+        { op: "play" },
+      ]);
       if (resMain?.ok === false) {
         console.log("[EXO-JS] main setSource failed", resMain?.error || "unknown");
         setError?.("Falha ao iniciar player nativo.");
@@ -365,7 +538,6 @@ export function useNativePlaybackEngine({
       const exp = pbExpRef?.current || 0;
       scheduleTokenRefresh(exp);
 
-      await exoPlayer.play();
       armAutoHide?.();
     })();
 
@@ -376,8 +548,17 @@ export function useNativePlaybackEngine({
       try {
         subState?.remove?.();
         subTracks?.remove?.();
+        subTrackSelection?.remove?.();
         subError?.remove?.();
         subEnded?.remove?.();
+        subStartup?.remove?.();
+        subFrameRate?.remove?.();
+        subDecoderHealth?.remove?.();
+        subThermal?.remove?.();
+        subIdle?.remove?.();
+        subTokenExpired?.remove?.();
+        subWatchSync?.remove?.();
+        authSub?.data?.subscription?.unsubscribe?.();
       } catch {}
     };
   }, [
@@ -388,6 +569,5 @@ export function useNativePlaybackEngine({
     introEnabled,
     introDone,
     subtitleFiles,
-    subtitleToGatewayUrl,
   ]);
 }
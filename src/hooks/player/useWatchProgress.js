@@ -12,6 +12,8 @@ export function useWatchProgress({
   locationSearch,
   getCurrentTime,
   getDuration,
+  // (videoId, profileId) => { found, positionSec, updatedAt } do diário nativo
+  readLocalPosition = null,
 }) {
   const [resumeLoading, setResumeLoading] = useState(false);
 
@@ -53,22 +55,36 @@ export function useWatchProgress({
 
       if (!uid || !vid || !pid) return 0;
 
+      let local = null;
+      if (typeof readLocalPosition === "function") {
+        try {
+          const res = await readLocalPosition(vid, pid);
+          if (res?.found) local = res;
+        } catch {}
+      }
+
       const { data, error } = await supabase
         .from("watch_progress")
-        .select("position_sec")
+        .select("position_sec,updated_at")
         .eq("user_id", uid)
         .eq("profile_id", pid)
         .eq("video_id", vid)
         .maybeSingle();
 
+      const localPos = local ? Math.max(0, Math.floor(Number(local.positionSec || 0))) : 0;
+
       if (error) {
         console.warn("[WATCH_PROGRESS] load error:", error);
-        return 0;
+        return localPos;
       }
 
+      // o diário local pode estar à frente do banco (lote ainda não enviado)
+      const dbTs = Date.parse(String(data?.updated_at || "")) || 0;
+      if (local && Number(local.updatedAt || 0) > dbTs) return localPos;
+
       return Math.max(0, Math.floor(Number(data?.position_sec || 0)));
     },
-    [ensureAuthUserId, supabase, getProfileIdFromGate]
+    [ensureAuthUserId, supabase, getProfileIdFromGate, readLocalPosition]
   );
 
   const upsertWatchProgress = useCallback(
@@ -3,11 +3,15 @@
 
 import { Capacitor, CapacitorHttp, registerPlugin } from "@capacitor/core";
 import { App as CapApp } from "@capacitor/app";
+import { openFastChannel } from "../native/exoplayer.js";
 
 type UpdateInfo = {
   latestVersionCode: number;
   latestVersionName?: string;
   apkUrl: string;
+  // com sha256 o APK é baixado direto para uma sessão do PackageInstaller
+  sha256?: string;
+  size?: number;
   mandatory?: boolean;
   notes?: string;
 };
@@ -214,6 +218,8 @@ export async function fetchUpdateInfo(url = UPDATE_URL): Promise<UpdateInfo | nu
     latestVersionCode,
     latestVersionName: String(latestVersionName || ""),
     apkUrl,
+    sha256: raw.sha256 ? String(raw.sha256) : undefined,
+    size: Number(raw.size || raw.apkSize || 0) || undefined,
     mandatory: !!raw.mandatory,
     notes: raw.notes ? String(raw.notes) : undefined,
   };
@@ -313,6 +319,8 @@ export async function checkForUpdateWithDebug(
     latestVersionCode,
     latestVersionName: String(latestVersionName || ""),
     apkUrl,
+    sha256: raw.sha256 ? String(raw.sha256) : undefined,
+    size: Number(raw.size || raw.apkSize || 0) || undefined,
     mandatory: !!raw.mandatory,
     notes: raw.notes ? String(raw.notes) : undefined,
   };
@@ -345,7 +353,8 @@ function listenNativeProgress(onProgress?: (p: DownloadProgress) => void) {
 
 export async function downloadUpdate(
   apkUrl: string,
-  onProgress?: (p: DownloadProgress) => void
+  onProgress?: (p: DownloadProgress) => void,
+  opts: { sha256?: string; size?: number } = {}
 ): Promise<DownloadResult> {
   if (!apkUrl) return { ok: false, method: "external", reason: "missing_apk_url" };
 
@@ -354,7 +363,14 @@ export async function downloadUpdate(
   // Prefer Capacitor native plugin if available.
   if (isNative) {
     try {
-      await (UpdatePlugin as any)?.downloadApk?.({ url: String(apkUrl) });
+      // progresso chega pelo MessagePort quando aberto; senão pelo evaluateJavascript
+      await openFastChannel().catch(() => {});
+      const sha256 = String(opts?.sha256 || "").trim();
+      // sem hash não há como conferir antes do commit: fica no DownloadManager + instalador
+      const args = /^[0-9a-f]{64}$/i.test(sha256)
+        ? { url: String(apkUrl), mode: "session", sha256, size: Number(opts?.size || 0) || undefined }
+        : { url: String(apkUrl) };
+      await (UpdatePlugin as any)?.downloadApk?.(args);
       return { ok: true, method: "native-bridge" };
     } catch {
       cleanup();
@@ -0,0 +1,189 @@
+import { useEffect, useState } from "react";
+import { Capacitor, registerPlugin } from "@capacitor/core";
+import { IS_TV } from "../app/target.js";
+import { isNativeAndroid } from "./exoplayer.js";
+
+const ArtworkPlugin = registerPlugin("ArtworkPlugin");
+
+// VITE_TV_NATIVE_ARTWORK=0 volta para o <img> com a URL original
+const DISABLED = String(import.meta?.env?.VITE_TV_NATIVE_ARTWORK || "1").trim() === "0";
+
+// card da fileira TV: 220x330 CSS com o zoom de foco (1.06)
+export const TV_CARD_ART = { width: 234, height: 350 };
+
+export function isNativeArtworkAvailable() {
+  return IS_TV && !DISABLED && isNativeAndroid();
+}
+
+// espelho do LRU nativo: card remontado pinta na hora, sem ida ao bridge
+const resolved = new Map();
+const MAX_RESOLVED = 600;
+// src local -> de onde veio; o trim do disco nativo pode apagar o arquivo por baixo
+const origins = new Map();
+const prefetched = new Set();
+const MAX_PREFETCHED = 1500;
+
+// px CSS -> px do device, em degraus de 32 para cards parecidos dividirem o cache
+function devicePx(css) {
+  const dpr = typeof window !== "undefined" ? Number(window.devicePixelRatio || 1) : 1;
+  const px = Math.round(Number(css || 0) * dpr);
+  return px > 0 ? Math.ceil(px / 32) * 32 : 0;
+}
+
+function keyOf(url, w, h) {
+  return `${w}x${h}|${url}`;
+}
+
+function remember(key, src, origin) {
+  if (resolved.has(key)) resolved.delete(key);
+  resolved.set(key, src);
+  if (origin && src !== origin.url) origins.set(src, { key, ...origin });
+  if (resolved.size > MAX_RESOLVED) {
+    const oldest = resolved.keys().next().value;
+    origins.delete(resolved.get(oldest));
+    resolved.delete(oldest);
+  }
+}
+
+/** URL local (reduzida ao tamanho do card) ou a própria URL se não der. */
+export async function loadArtwork(url, cssWidth, cssHeight = 0) {
+  const u = String(url || "").trim();
+  if (!u || !/^https?:\/\//i.test(u) || !isNativeArtworkAvailable()) return u;
+  const w = devicePx(cssWidth);
+  const h = devicePx(cssHeight);
+  const key = keyOf(u, w, h);
+  const hit = resolved.get(key);
+  if (hit) return hit;
+  try {
+    const res = await ArtworkPlugin.load({ url: u, width: w, height: h });
+    const src = res?.path ? Capacitor.convertFileSrc(res.path) : u;
+    remember(key, src, { url: u, width: w, height: h });
+    return src;
+  } catch {
+    return u;
+  }
+}
+
+export function useArtworkSrc(url, { width, height = 0 } = {}) {
+  const u = String(url || "").trim();
+  const native = isNativeArtworkAvailable() && /^https?:\/\//i.test(u);
+  const initial = native ? resolved.get(keyOf(u, devicePx(width), devicePx(height))) || "" : u;
+  const [src, setSrc] = useState(initial);
+
+  useEffect(() => {
+    if (!native) {
+      setSrc(u);
+      return;
+    }
+    let alive = true;
+    const cached = resolved.get(keyOf(u, devicePx(width), devicePx(height)));
+    setSrc(cached || "");
+    if (cached) return;
+    loadArtwork(u, width, height).then((s) => {
+      if (alive) setSrc(s);
+    });
+    return () => {
+      alive = false;
+    };
+  }, [u, native, width, height]);
+
+  return src;
+}
+
+/**
+ * onError do <img> com src do useArtworkSrc: o arquivo local sumiu (trim do
+ * disco). Esquece o espelho, pede de novo ao plugin (que rebaixa) e troca o
+ * src direto no elemento; se falhar de novo, cai na URL original.
+ */
+export function artworkLoadFailed(e) {
+  const img = e?.currentTarget;
+  const src = img?.getAttribute?.("src") || "";
+  const o = origins.get(src);
+  if (!o) return;
+  origins.delete(src);
+  if (resolved.get(o.key) === src) resolved.delete(o.key);
+  const swap = (next) => {
+    if (img.isConnected && img.getAttribute("src") === src) img.src = next;
+  };
+  ArtworkPlugin.load({ url: o.url, width: o.width, height: o.height })
+    .then((res) => {
+      if (!res?.path) return swap(o.url);
+      const next = Capacitor.convertFileSrc(res.path);
+      remember(o.key, next, { url: o.url, width: o.width, height: o.height });
+      swap(next);
+    })
+    .catch(() => swap(o.url));
+}
+
+export function prefetchArtwork(urls, cssWidth, cssHeight = 0) {
+  if (!isNativeArtworkAvailable()) return;
+  const w = devicePx(cssWidth);
+  const h = devicePx(cssHeight);
+  const list = [];
+  for (const raw of urls || []) {
+    const u = String(raw || "").trim();
+    if (!/^https?:\/\//i.test(u)) continue;
+    const key = keyOf(u, w, h);
+    if (resolved.has(key) || prefetched.has(key)) continue;
+    prefetched.add(key);
+    list.push(u);
+  }
+  if (prefetched.size > MAX_PREFETCHED) prefetched.clear();
+  if (!list.length) return;
+  ArtworkPlugin.prefetch({ urls: list, width: w, height: h }).catch(() => {});
+}
+
+// ===== prefetch na direção do D-pad =====
+// Cada fileira se registra com o elemento (ordem no DOM) e as URLs das capas.
+const rows = new Map();
+let lastFocus = { rowKey: "", index: 0 };
+const AHEAD_CARDS = 6;
+const AHEAD_ROWS = 2;
+const ROW_HEAD = 8;
+
+export function registerArtworkRow(rowKey, el, urls, size) {
+  if (!rowKey || !el) return () => {};
+  rows.set(rowKey, { el, urls: urls || [], size });
+  return () => {
+    if (rows.get(rowKey)?.el === el) rows.delete(rowKey);
+  };
+}
+
+function orderedRows() {
+  return Array.from(rows.entries())
+    .filter(([, r]) => r.el?.isConnected)
+    .sort(([, a], [, b]) => (a.el.compareDocumentPosition(b.el) & Node.DOCUMENT_POSITION_FOLLOWING ? -1 : 1));
+}
+
+export function artworkFocus(rowKey, index) {
+  if (!isNativeArtworkAvailable()) return;
+  const row = rows.get(rowKey);
+  if (!row) return;
+  const prev = lastFocus;
+  lastFocus = { rowKey, index };
+
+  if (prev.rowKey === rowKey) {
+    const dir = index >= prev.index ? 1 : -1;
+    const from = dir > 0 ? index + 1 : Math.max(0, index - AHEAD_CARDS);
+    const to = dir > 0 ? index + 1 + AHEAD_CARDS : index;
+    prefetchArtwork(row.urls.slice(from, to), row.size.width, row.size.height);
+    return;
+  }
+
+  const order = orderedRows();
+  const cur = order.findIndex(([k]) => k === rowKey);
+  const before = order.findIndex(([k]) => k === prev.rowKey);
+  const dir = before < 0 || cur >= before ? 1 : -1;
+  for (let i = 1; i <= AHEAD_ROWS; i++) {
+    const next = order[cur + dir * i];
+    if (!next) break;
+    const r = next[1];
+    prefetchArtwork(r.urls.slice(0, ROW_HEAD), r.size.width, r.size.height);
+  }
+  prefetchArtwork(row.urls.slice(index + 1, index + 1 + AHEAD_CARDS), row.size.width, row.size.height);
+}
+
+export function getArtworkStats() {
+  if (!isNativeArtworkAvailable()) return Promise.resolve(null);
+  return ArtworkPlugin.getStats().catch(() => null);
+}
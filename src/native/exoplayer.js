@@ -23,6 +23,97 @@ export function isExoDisabled() {
   return DISABLE_EXO;
 }
 
+// ===== canal rápido (MessagePort) =====
+// Streams de alta frequência chegam como "tipo,campo,...", sem o JSON do bridge.
+// Enquanto o canal não abre (ou em web), o nativo usa notifyListeners.
+const fastHandlers = { state: new Set(), metrics: new Set() };
+let fastPort = null;
+let fastOpening = null;
+
+function decodeFast(data) {
+  const parts = String(data || "").split(",");
+  const n = (i) => Number(parts[i] || 0);
+  switch (parts[0]) {
+    case "s":
+      return [
+        "state",
+        { positionSec: n(1) / 1000, durationSec: n(2) / 1000, bufferedSec: n(3) / 1000, isPlaying: n(4) === 1, state: n(5) },
+      ];
+    case "m":
+      return ["metrics", { bandwidthBps: n(1), videoBitrate: n(2), droppedFrames: n(3), bufferAheadMs: n(4) }];
+    case "u": {
+      const received = n(1);
+      const total = n(2);
+      return ["update-progress", { progress: total > 0 ? received / total : 0, received, total }];
+    }
+    default:
+      return [null, null];
+  }
+}
+
+function onFastMessage(ev) {
+  const [type, payload] = decodeFast(ev?.data);
+  if (!type) return;
+  if (type === "update-progress") {
+    // mesmo evento que o evaluateJavascript do UpdatePlugin dispara
+    window.dispatchEvent(new CustomEvent("cs:update-progress", { detail: payload }));
+    return;
+  }
+  fastHandlers[type]?.forEach((cb) => {
+    try {
+      cb(payload);
+    } catch {}
+  });
+}
+
+function onWindowMessage(ev) {
+  if (ev?.data !== "cs-fast" || !ev?.ports?.[0]) return;
+  try {
+    fastPort?.close?.();
+  } catch {}
+  fastPort = ev.ports[0];
+  fastPort.onmessage = onFastMessage;
+  // o nativo só passa a usar o canal depois do ack
+  try {
+    fastPort.postMessage("cs-fast-ack");
+  } catch {}
+}
+
+export function openFastChannel() {
+  if (!isNativeExoAvailable()) return Promise.resolve({ open: false });
+  if (fastOpening) return fastOpening;
+  window.addEventListener("message", onWindowMessage);
+  fastOpening = safeCall("openFastChannel").then((res) => {
+    if (res?.open !== true) {
+      fastOpening = null;
+    } else {
+      // port não chegou (postWebMessage perdido): a próxima inscrição tenta de novo
+      setTimeout(() => {
+        if (!fastPort) fastOpening = null;
+      }, 2000);
+    }
+    return res;
+  });
+  return fastOpening;
+}
+
+function addListenerWithFast(event, cb) {
+  const handle = ExoPlayerPlugin?.addListener?.(event, cb);
+  const set = fastHandlers[event];
+  if (!set) return handle;
+  set.add(cb);
+  openFastChannel();
+  return {
+    remove: async () => {
+      set.delete(cb);
+      try {
+        const h = await handle;
+        await h?.remove?.();
+      } catch {}
+    },
+  };
+}
+
 async function safeCall(method, args = {}) {
   try {
     const fn = ExoPlayerPlugin?.[method];
@@ -36,16 +127,107 @@ async function safeCall(method, args = {}) {
 
 export const exoPlayer = {
   init: (opts = {}) => safeCall("init", opts),
+  // opts.audioLanguage / textLanguage / textEnabled entram já na primeira seleção de faixas
   setSource: (opts = {}) => safeCall("setSource", opts),
+  // lote ordenado numa ida só ao bridge: [{ op: "setSource", ...args }, { op: "play" }]
+  apply: async (commands = []) => {
+    const res = await safeCall("apply", { commands });
+    if (res?.ok !== false || !/not implemented|missing_method/i.test(String(res?.error || ""))) return res;
+    // APK antigo sem apply: mesmas chamadas, uma a uma
+    for (const { op, ...args } of commands) {
+      const r = await safeCall(op, args);
+      if (r?.ok === false) return r;
+    }
+    return { ok: true, applied: commands.length };
+  },
   play: () => safeCall("play"),
   pause: () => safeCall("pause"),
   seek: (positionSec) => safeCall("seek", { position: Number(positionSec || 0) }),
   setVolume: (volume) => safeCall("setVolume", { volume: Number(volume ?? 1) }),
   setPlaybackRate: (rate) => safeCall("setPlaybackRate", { rate: Number(rate || 1) }),
-  setTextTrack: (indexOrOff) => safeCall("setTextTrack", { index: indexOrOff }),
-  setAudioTrack: (index) => safeCall("setAudioTrack", { index: Number(index) }),
+  // id (estável, vindo do evento "tracks") tem prioridade sobre o índice
+  setTextTrack: (indexOrOff, id) =>
+    safeCall("setTextTrack", id ? { index: indexOrOff, id: String(id) } : { index: indexOrOff }),
+  setAudioTrack: (index, id) =>
+    safeCall("setAudioTrack", id ? { index: Number(index), id: String(id) } : { index: Number(index) }),
   setVisible: (visible) => safeCall("setVisible", { visible: !!visible }),
   setVideoOffset: (offsetY) => safeCall("setVideoOffset", { offsetY: Number(offsetY || 0) }),
   destroy: () => safeCall("destroy"),
-  addListener: (event, cb) => ExoPlayerPlugin?.addListener?.(event, cb),
+
+  // preview leve (hero da TV): rect em px CSS; promote = hand-off com buffer
+  // (opts.watch = { videoId, profileId, titlePublicId }, como no setSource)
+  createPreview: (opts = {}) => safeCall("createPreview", opts),
+  setPreviewRect: (handle, rect = {}) => safeCall("setPreviewRect", { handle, ...rect }),
+  setPreviewPaused: (handle, paused) => safeCall("setPreviewPaused", { handle, paused: !!paused }),
+  destroyPreview: (handle) => safeCall("destroyPreview", { handle: Number(handle ?? -1) }),
+  promotePreview: (handle, opts = {}) => safeCall("promotePreview", { handle, ...opts }),
+
+  // progresso nativo: diário local + lote para o endpoint (playback-sync ou stub)
+  configureWatchSync: (opts = {}) => safeCall("configureWatchSync", opts),
+  setWatchContext: (ctx = {}) => safeCall("setWatchContext", ctx),
+  getLastPosition: (videoId, profileId) =>
+    safeCall("getLastPosition", { videoId: String(videoId || ""), profileId: String(profileId || "") }),
+  flushWatchSync: () => safeCall("flushWatchSync"),
+
+  // master novo do playback-token: o plugin extrai o ?t= e os loaders seguem
+  updateToken: (masterUrl) => safeCall("updateToken", { url: String(masterUrl || "") }),
+  // snapshot: banda, bitrate, buffer + hosts[] { host, throughputBps, errorRate, ttfbMs, rank, ... }
+  getMetrics: () => safeCall("getMetrics"),
+  // painel nativo de stats (suporte); sem argumento alterna. Também abre com ↑↑↓↓←→←→ no controle
+  setStatsOverlay: (visible) => safeCall("setStatsOverlay", visible === undefined ? {} : { visible: !!visible }),
+  // ring buffer do log nativo: { lines } (texto) / { path } em cache/logs para bug report
+  getLogs: (max = 200) => safeCall("getLogs", { max }),
+  // Range GET curto: { ttfbMs, throughputBps, applied } — vira a estimativa da primeira seleção do ABR
+  probeNetwork: ({ url, bytes = 0, timeoutMs = 0 } = {}) => safeCall("probeNetwork", { url, bytes, timeoutMs }),
+  exportLogs: () => safeCall("exportLogs"),
+  // "state"/"metrics" também escutam o canal rápido; o nativo manda por um só dos dois
+  addListener: (event, cb) => addListenerWithFast(event, cb),
 };
+
+// último idioma de áudio/legenda escolhido no player; vai no setSource seguinte
+const TRACK_PREFS_KEY = "cs_track_prefs:v1";
+
+export function readTrackPrefs() {
+  try {
+    const p = JSON.parse(localStorage.getItem(TRACK_PREFS_KEY) || "{}") || {};
+    const out = {};
+    if (p.audioLanguage) out.audioLanguage = String(p.audioLanguage);
+    if (p.textLanguage) out.textLanguage = String(p.textLanguage);
+    if (typeof p.textEnabled === "boolean") out.textEnabled = p.textEnabled;
+    return out;
+  } catch {
+    return {};
+  }
+}
+
+export function rememberTrackPrefs(patch) {
+  try {
+    localStorage.setItem(TRACK_PREFS_KEY, JSON.stringify({ ...readTrackPrefs(), ...patch }));
+  } catch {}
+}
+
+// tela de detalhes: mede no máximo uma vez por janela (o nativo descarta o valor após 5 min)
+const PROBE_MIN_INTERVAL_MS = 2 * 60_000;
+let lastProbeAt = 0;
+let probeInFlight = null;
+
+export function probeNetworkOnce(url, opts = {}) {
+  const u = String(url || "").trim();
+  if (!u || !isNativeExoAvailable() || !isNativeAndroid()) return Promise.resolve(null);
+  if (probeInFlight) return probeInFlight;
+  if (Date.now() - lastProbeAt < PROBE_MIN_INTERVAL_MS) return Promise.resolve(null);
+  lastProbeAt = Date.now();
+  probeInFlight = exoPlayer
+    .probeNetwork({ url: u, ...opts })
+    .then((res) => (res?.ok === false ? null : res))
+    .finally(() => {
+      probeInFlight = null;
+    });
+  return probeInFlight;
+}
+
+// payload: { level, step (1..3), heapUsedMb, heapMaxMb } — step >= 2: soltar linhas com muita imagem (BrowseTv)
+export function onMemoryPressure(cb) {
+  if (!isNativeExoAvailable()) return null;
+  return ExoPlayerPlugin?.addListener?.("memoryPressure", cb);
+}
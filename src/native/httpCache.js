@@ -0,0 +1,53 @@
+import { registerPlugin } from "@capacitor/core";
+import { IS_TV } from "../app/target.js";
+import { isNativeAndroid } from "./exoplayer.js";
+
+const HttpCachePlugin = registerPlugin("HttpCachePlugin");
+
+const SUPABASE_URL = String(import.meta?.env?.VITE_SUPABASE_URL || "").trim().replace(/\/+$/, "");
+// VITE_TV_HTTP_CACHE=0 desliga (regras vazias: nada é interceptado)
+const DISABLED = String(import.meta?.env?.VITE_TV_HTTP_CACHE || "1").trim() === "0";
+
+function esc(s) {
+  return String(s).replace(/[.*+?^${}()|[\]\\]/g, "\\$&");
+}
+
+// Só leitura de catálogo: nada por usuário que muda com ação dele
+// (watchlist, likes, progresso). TTL curto + stale longo: o cold start pinta
+// do disco e a revalidação traz o novo para a próxima abertura.
+function defaultRules() {
+  const rules = [
+    { match: "^https://image\\.tmdb\\.org/", ttlSec: 7 * 86400, staleSec: 30 * 86400 },
+    { match: "^https://fonts\\.(googleapis|gstatic)\\.com/", ttlSec: 30 * 86400, staleSec: 30 * 86400 },
+  ];
+  if (SUPABASE_URL) {
+    const rest = `^${esc(SUPABASE_URL)}/rest/v1/`;
+    rules.unshift(
+      { match: `${rest}rpc/get_top10_likes(\\?|$)`, ttlSec: 300, staleSec: 86400 },
+      { match: `${rest}titles\\?`, ttlSec: 120, staleSec: 86400 },
+      { match: `${rest}(media_assets|subtitles)\\?`, ttlSec: 300, staleSec: 86400 }
+    );
+  }
+  return rules;
+}
+
+let configured = false;
+
+/** Regras persistem no nativo; mandar de novo a cada boot só atualiza. */
+export function configureNativeHttpCache(rules = defaultRules()) {
+  if (configured || !IS_TV || !isNativeAndroid()) return;
+  configured = true;
+  HttpCachePlugin.configure({ rules: DISABLED ? [] : rules }).catch(() => {
+    configured = false;
+  });
+}
+
+export function getHttpCacheStats() {
+  if (!IS_TV || !isNativeAndroid()) return Promise.resolve(null);
+  return HttpCachePlugin.getStats().catch(() => null);
+}
+
+export function clearHttpCache() {
+  if (!IS_TV || !isNativeAndroid()) return Promise.resolve();
+  return HttpCachePlugin.clear().catch(() => {});
+}
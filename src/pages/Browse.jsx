@@ -707,7 +707,8 @@ export default function Browse() {
 
     async function loadTop10() {
       try {
-        const { data, error } = await supabase.rpc("get_top10_likes");
+        // GET (só leitura): entra no cache HTTP nativo da TV
+        const { data, error } = await supabase.rpc("get_top10_likes", {}, { get: true });
 
         if (!alive) return;
 
@@ -20,6 +20,10 @@ import { KEY, BACK_KEYCODES, hasCode } from "./_tvKeys.js";
 import { scrollRowToCenter, scrollTopHard, ensureVisibleH } from "./_tvScroll.js";
 
 import { supabase } from "../../lib/supabaseClient.js";
+import { onMemoryPressure } from "../../native/exoplayer.js";
+
+// mesmo intervalo em que o nativo relaxa um passo de memória
+const MEMORY_LEAN_MS = 60_000;
 
 function norm(s) {
   return String(s || "")
@@ -365,6 +369,22 @@ export default function BrowseTv() {
   const [introOpen, setIntroOpen] = useState(false);
   const introBtnRefs = useRef([null]);
 
+  // aviso de memória do nativo (passo >= 2): linhas longe do foco soltam as capas
+  const [memoryLean, setMemoryLean] = useState(false);
+  useEffect(() => {
+    let leanTimer = null;
+    const sub = onMemoryPressure((p) => {
+      if (Number(p?.step || 0) < 2) return;
+      setMemoryLean(true);
+      clearTimeout(leanTimer);
+      leanTimer = setTimeout(() => setMemoryLean(false), MEMORY_LEAN_MS);
+    });
+    return () => {
+      clearTimeout(leanTimer);
+      sub?.remove?.();
+    };
+  }, []);
+
   // Watchlist (TV)
   const [watchlistIds, setWatchlistIds] = useState(new Set());
   const [watchlistOrder, setWatchlistOrder] = useState([]);
@@ -1372,7 +1392,7 @@ if (introOpen) {
   }, [previewItem, watchlistIds]);
 
   return (
-    <div className="fixed inset-0 overflow-hidden bg-black text-white">
+    <div className="cs-tv-page fixed inset-0 overflow-hidden bg-black text-white">
       <div className="relative h-full w-full">
         <TvSidebar
           expanded={sidebarExpanded}
@@ -1473,6 +1493,7 @@ if (introOpen) {
                   setCardRef={(ci, el) => setCardRef(i, ci, el)}
                   onOpenTitle={openTitle}
                   pageEnsureH={area === "rows" && rowIndex === i}
+                  dropImages={memoryLean && Math.abs(i - rowIndex) > 1}
                 />
               ))}
               <div className="h-28" />
@@ -6,7 +6,7 @@ import { RotateCcw, RotateCw, SkipForward, ListVideo, ArrowLeft, Settings } from
 import { supabase } from "../../lib/supabaseClient.js";
 import { verifyPin, setUnlocked } from "../../lib/profilePolicy.js";
 
-import { WATCH_BASE, INTRO_SRC, INTRO_MODE } from "../../player/env.js";
+import { WATCH_BASE, INTRO_SRC, INTRO_MODE, NATIVE_PROGRESS } from "../../player/env.js";
 import { clamp, safeId } from "../../player/utils.js";
 import { inferThumbsVttUrlFromMaster, buildSubtitleGatewayUrl } from "../../player/gateway.js";
 import { fetchWithRetry, parseThumbnailsVtt } from "../../player/thumbs.js";
@@ -19,7 +19,7 @@ import { useDeviceSession } from "../../hooks/player/useDeviceSession.js";
 import { usePlayerBootstrap } from "../../hooks/player/usePlayerBootstrap.js";
 import { usePlaybackEngine } from "../../hooks/player/usePlaybackEngine.js";
 import { useNativePlaybackEngine } from "../../hooks/player/useNativePlaybackEngine.js";
-import { exoPlayer, isNativeAndroid, isNativeExoAvailable } from "../../native/exoplayer.js";
+import { exoPlayer, isNativeAndroid, isNativeExoAvailable, rememberTrackPrefs } from "../../native/exoplayer.js";
 
 // ✅ helpers/UI modularizados
 import { pickThumbCueAtTime, blurActiveElement } from "./player/helpers.js";
@@ -444,11 +444,18 @@ export default function PlayerTv() {
   }, [item, showRatingOnce]);
 
   // Device session
+  const nativeProgress = useNativePlayer && NATIVE_PROGRESS;
+  const readNativePosition = useCallback(
+    (videoId, profileId) => exoPlayer.getLastPosition(videoId, profileId),
+    []
+  );
+
   const { reportSessionState, stopHeartbeat } = useDeviceSession({
     supabase,
     titlePublicIdRef,
     titleDbIdRef,
     setError,
+    heartbeat: !nativeProgress,
   });
 
   // Watch progress
@@ -470,6 +477,7 @@ export default function PlayerTv() {
     locationSearch: location.search,
     getCurrentTime: getCurrentTimeForProgress,
     getDuration: getDurationForProgress,
+    readLocalPosition: nativeProgress ? readNativePosition : null,
   });
 
   // ✅ se vier ?start=..., o bootstrap deve usar exatamente esse valor (0 inclusive)
@@ -1438,17 +1446,21 @@ export default function PlayerTv() {
   const setNativeTextTrack = useCallback(
     (idx) => {
       if (!useNativePlayer) return;
-      exoPlayer.setTextTrack(idx);
+      const track = (textTracks || []).find((t) => String(t?.idx) === String(idx));
+      exoPlayer.setTextTrack(idx, track?.id);
+      rememberTrackPrefs(track ? { textEnabled: true, textLanguage: track.language || "" } : { textEnabled: false });
     },
-    [useNativePlayer]
+    [useNativePlayer, textTracks]
   );
 
   const setNativeAudioTrack = useCallback(
     (idx) => {
       if (!useNativePlayer) return;
-      exoPlayer.setAudioTrack(idx);
+      const track = audioTracks?.[Number(idx)];
+      exoPlayer.setAudioTrack(idx, track?.id);
+      if (track?.lang) rememberTrackPrefs({ audioLanguage: track.lang });
     },
-    [useNativePlayer]
+    [useNativePlayer, audioTracks]
   );
 
   // ✅ tracks + chips (tirados do PlayerTv)
@@ -5,6 +5,8 @@ import { supabase } from "../../lib/supabaseClient.js";
 
 import { fetchTitleById, fetchCatalog } from "../../lib/catalogApi.js";
 import { KEY, BACK_KEYCODES, hasCode, cx } from "./_tvKeys.js";
+import { probeNetworkOnce } from "../../native/exoplayer.js";
+import { STREAM_PROBE_URL } from "../../player/env.js";
 
 import { Play, Sparkles, Plus, Check, ChevronDown, ChevronUp, ListVideo, X } from "lucide-react";
 
@@ -740,6 +742,15 @@ export default function TitleTv() {
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, [id, allow4k]);
 
+  // mede a rede enquanto o usuário lê a sinopse: o play já começa na qualidade certa
+  useEffect(() => {
+    if (!STREAM_PROBE_URL) return;
+    const t = setTimeout(() => {
+      probeNetworkOnce(STREAM_PROBE_URL).catch(() => {});
+    }, 800);
+    return () => clearTimeout(t);
+  }, [id]);
+
   // activeProfileId
   useEffect(() => {
     let alive = true;
@@ -2,6 +2,8 @@
 import React, { useEffect, useMemo, useRef, useState } from "react";
 import { Play, Info } from "lucide-react";
 import { cx } from "../_tvKeys.js";
+import { supabase } from "../../../lib/supabaseClient.js";
+import { exoPlayer, isNativeExoAvailable } from "../../../native/exoplayer.js";
 
 const TMDB_KEY = (import.meta?.env?.VITE_TMDB_KEY || "").trim();
 const OMDB_KEY = (import.meta?.env?.VITE_IMDB_KEY || "").trim(); // chave do OMDb
@@ -80,6 +82,81 @@ async function omdbFetchJson(url, signal) {
   return r.json();
 }
 
+// Trailer do hero no player de preview nativo (TextureView atrás do WebView).
+// Só aparece no primeiro frame: aí a página fica transparente (html.cs-native-preview)
+// e o .cs-preview-hole repinta o preto em volta do rect do hero.
+function useNativeHeroPreview(boxRef, item, visible) {
+  const [showing, setShowing] = useState(false);
+  const previewKey = String(item?.heroPreviewUrl || item?.hero_preview_url || "").trim();
+
+  useEffect(() => {
+    setShowing(false);
+    if (!visible || !previewKey || !isNativeExoAvailable()) return;
+
+    let alive = true;
+    let handle = null;
+    let stateSub = null;
+
+    const rectOf = () => {
+      const r = boxRef.current?.getBoundingClientRect?.();
+      return r && r.width > 0 && r.height > 0 ? { x: r.left, y: r.top, width: r.width, height: r.height } : null;
+    };
+    // o hero rola junto com as linhas
+    const onScroll = () => {
+      const rect = rectOf();
+      if (handle != null && rect) exoPlayer.setPreviewRect(handle, rect);
+    };
+
+    async function run() {
+      let url = previewKey;
+      if (!/^https?:\/\//i.test(url)) {
+        const { data, error } = await supabase.functions.invoke("r2-presign", {
+          body: { key: previewKey, expiresIn: 900 },
+        });
+        if (error || !data?.ok) return;
+        url = String(data.url || "");
+      }
+      const rect = rectOf();
+      if (!alive || !url || !rect) return;
+
+      stateSub = exoPlayer.addListener("previewState", (p) => {
+        if (!alive || handle == null || p?.handle !== handle) return;
+        if (p.state === "firstFrame") setShowing(true);
+        if (p.state === "error") setShowing(false);
+      });
+      const res = await exoPlayer.createPreview({ url, ...rect, muted: true, loop: true });
+      if (res?.ok === false || res?.handle == null) return;
+      handle = res.handle;
+      if (!alive) {
+        exoPlayer.destroyPreview(handle);
+        return;
+      }
+      document.addEventListener("scroll", onScroll, true);
+    }
+
+    run().catch((e) => {
+      if (DEV) console.warn("[TvHero] native preview failed:", e);
+    });
+
+    return () => {
+      alive = false;
+      document.removeEventListener("scroll", onScroll, true);
+      stateSub?.remove?.();
+      if (handle != null) exoPlayer.destroyPreview(handle);
+      setShowing(false);
+    };
+  }, [previewKey, visible]);
+
+  useEffect(() => {
+    if (!showing) return;
+    const html = document.documentElement;
+    html.classList.add("cs-native-preview");
+    return () => html.classList.remove("cs-native-preview");
+  }, [showing]);
+
+  return showing;
+}
+
 // 1) Se não tiver imdb_id no item, tenta achar no OMDb por título/ano
 async function resolveImdbIdViaOmdb(item, signal) {
   if (!OMDB_KEY) return "";
@@ -433,11 +510,17 @@ export default function TvHero({
 
   const showA = activeLayer === "A";
 
+  // 3) trailer nativo por trás (sem ele, fica a rotação de imagens)
+  const boxRef = useRef(null);
+  const nativePreview = useNativeHeroPreview(boxRef, item, visible);
+
   return (
     <section className="relative w-full">
-      <div className="relative w-full h-[740px] bg-black">
+      <div ref={boxRef} className={cx("relative w-full h-[740px]", nativePreview ? "" : "bg-black")}>
+        {nativePreview ? <div className="cs-preview-hole absolute inset-0 pointer-events-none" /> : null}
+
         {/* BACKGROUNDS */}
-        <div className="absolute inset-0 overflow-hidden">
+        <div className={cx("absolute inset-0 overflow-hidden", nativePreview ? "opacity-0" : "")}>
           {layerA ? (
             <img
               src={layerA}
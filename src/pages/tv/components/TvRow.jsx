@@ -78,6 +78,7 @@ const CoverCard = React.memo(function CoverCard({
   index,
   setCardRef,
   onOpenTitle,
+  showImage,
 }) {
   const title = String(item?.title || "Título");
 
@@ -120,7 +121,7 @@ const CoverCard = React.memo(function CoverCard({
         className="relative overflow-hidden bg-white/5 border border-white/10"
         style={{ width: CARD_W, height: CARD_H }}
       >
-        {item?.thumb ? (
+        {showImage && item?.thumb ? (
           <img
             src={item.thumb}
             alt=""
@@ -171,6 +172,7 @@ function TvRowImpl({
   focusedCardIndex,
   setCardRef,
   onOpenTitle,
+  dropImages, // pouca memória: só o placeholder do card, sem <img> nem preload
 }) {
   const scrollerRef = useRef(null);
 
@@ -209,7 +211,7 @@ function TvRowImpl({
 
   // Preload leve + cache
   useEffect(() => {
-    if (!len) return;
+    if (!len || dropImages) return;
 
     const f = Math.max(0, Math.min(len - 1, Number(focusedCardIndex || 0)));
     const a = Math.max(0, f - PRELOAD_RADIUS);
@@ -228,7 +230,7 @@ function TvRowImpl({
       const t = setTimeout(doPreload, 90);
       return () => clearTimeout(t);
     }
-  }, [focusedCardIndex, len, sliced]);
+  }, [focusedCardIndex, len, sliced, dropImages]);
 
   return (
     <section
@@ -279,6 +281,7 @@ function TvRowImpl({
                 tabIndex={focused ? 0 : -1}
                 setCardRef={setCardRef}
                 onOpenTitle={onOpenTitle}
+                showImage={!dropImages}
               />
             );
           })}
@@ -6,9 +6,20 @@ export const INTRO_SRC = String(import.meta.env.VITE_PLAYER_INTRO_URL || "/intro
 export const INTRO_MODE = String(import.meta.env.VITE_PLAYER_INTRO_MODE || "per_title").trim();
 
 export const STREAM_BASE = String(import.meta.env.VITE_STREAM_BASE_URL || "https://stream.cinesuper.com.br").replace(/\/+$/, "");
+// TV nativo: outras origens do mesmo gateway (lista com vírgula); o player ranqueia e troca por requisição
+export const STREAM_FALLBACK_BASES = String(import.meta.env.VITE_STREAM_FALLBACK_URLS || "")
+  .split(",")
+  .map((s) => s.trim().replace(/\/+$/, ""))
+  .filter((s) => /^https?:\/\//i.test(s) && s !== STREAM_BASE);
+// TV nativo: objeto estático do gateway (aceita Range) para medir a rede na tela do título.
+// Só liga com a env definida: o gateway não publica um objeto padrão
+export const STREAM_PROBE_URL = String(import.meta.env.VITE_STREAM_PROBE_URL || "").trim();
 
 export const DEVICE_KEY_STORAGE = "cs_device_key:v1";
 export const DEVICE_LABEL_STORAGE = "cs_device_label:v1";
 
 export const PROGRESS_SAVE_EVERY_MS = 10_000;
+// TV nativo: progresso/heartbeat gravados e enviados em lote pelo ExoPlayerPlugin
+export const NATIVE_PROGRESS = String(import.meta.env.VITE_TV_NATIVE_PROGRESS || "0") === "1";
+export const NATIVE_PROGRESS_ENDPOINT = String(import.meta.env.VITE_TV_PROGRESS_ENDPOINT || "").trim();
 export const PROGRESS_MIN_SAVE_DELTA_SEC = 2;
@@ -0,0 +1,137 @@
+/// <reference lib="deno.ns" />
+import { serve } from "https://deno.land/std@0.224.0/http/server.ts";
+import { createClient } from "https://esm.sh/@supabase/supabase-js@2";
+
+/* =========================
+   Lote do player nativo (TV): progresso + heartbeat de sessão
+   numa única chamada. Usa o client do usuário, então valem as
+   mesmas policies (RLS) dos upserts que o JS fazia.
+========================= */
+const corsHeaders = {
+  "Access-Control-Allow-Origin": "https://app.cinesuper.com.br",
+  "Access-Control-Allow-Methods": "POST, OPTIONS",
+  "Access-Control-Allow-Headers": "authorization, content-type, apikey, x-client-info, x-supabase-authorization, x-supabase-api-version",
+};
+
+function json(data: unknown, status = 200) {
+  return new Response(JSON.stringify(data), {
+    status,
+    headers: { "Content-Type": "application/json", ...corsHeaders },
+  });
+}
+
+function toIso(ms: unknown) {
+  const n = Number(ms);
+  return Number.isFinite(n) && n > 0 ? new Date(n).toISOString() : new Date().toISOString();
+}
+
+serve(async (req) => {
+  if (req.method === "OPTIONS") return new Response(null, { status: 204, headers: corsHeaders });
+  if (req.method !== "POST") return json({ ok: false, error: "Method not allowed" }, 405);
+
+  try {
+    const SUPABASE_URL = Deno.env.get("SUPABASE_URL") || "";
+    const ANON = Deno.env.get("SUPABASE_ANON_KEY") || Deno.env.get("ANON_KEY") || "";
+    if (!SUPABASE_URL || !ANON) return json({ ok: false, error: "Missing secrets" }, 500);
+
+    const auth = req.headers.get("Authorization") || "";
+    const accessToken = auth.startsWith("Bearer ") ? auth.slice(7) : "";
+    if (!accessToken) return json({ ok: false, error: "Missing Bearer token" }, 401);
+
+    const userClient = createClient(SUPABASE_URL, ANON, {
+      global: { headers: { Authorization: `Bearer ${accessToken}` } },
+      auth: { persistSession: false, autoRefreshToken: false },
+    });
+
+    const { data: userData, error: userErr } = await userClient.auth.getUser();
+    const userId = userData?.user?.id || "";
+    if (userErr || !userId) return json({ ok: false, error: "Invalid session" }, 401);
+
+    const body = await req.json().catch(() => ({}));
+    const deviceKey = String(body?.deviceKey || "").trim();
+    const progress = Array.isArray(body?.progress) ? body.progress : [];
+    const session = body?.session && typeof body.session === "object" ? body.session : null;
+
+    // device revogado não grava nada; 410 é terminal para o cliente
+    // (401/403 ele trata como sessão expirada e tenta de novo)
+    let dev: { id: string; is_revoked: boolean } | null = null;
+    if (deviceKey) {
+      const { data, error: devErr } = await userClient
+        .from("user_devices")
+        .select("id,is_revoked")
+        .eq("user_id", userId)
+        .eq("device_key", deviceKey)
+        .maybeSingle();
+      if (devErr) return json({ ok: false, error: devErr.message }, 500);
+      if (data?.is_revoked) return json({ ok: false, error: "Device revoked" }, 410);
+      dev = data;
+    }
+
+    // PK (user_id, profile_id, video_id): o diário já manda só a última por par
+    const rows = progress
+      .map((p: any) => ({
+        user_id: userId,
+        profile_id: String(p?.profileId || "").trim(),
+        video_id: String(p?.videoId || "").trim(),
+        position_sec: Math.max(0, Math.floor(Number(p?.positionSec || 0))),
+        updated_at: toIso(p?.updatedAt),
+      }))
+      .filter((r: any) => r.profile_id && r.video_id);
+
+    // lote pode chegar atrasado (offline, backoff, app morto): só grava se for mais
+    // novo que o que outro device já salvou. Update condicionado ao updated_at e,
+    // se a linha não existe, insert que ignora conflito (outro device pode ter criado).
+    let applied = 0;
+    const results = await Promise.all(
+      rows.map(async (r: any) => {
+        const { data: updated, error: upErr } = await userClient
+          .from("watch_progress")
+          .update({ position_sec: r.position_sec, updated_at: r.updated_at })
+          .eq("user_id", r.user_id)
+          .eq("profile_id", r.profile_id)
+          .eq("video_id", r.video_id)
+          .lt("updated_at", r.updated_at)
+          .select("video_id");
+        if (upErr) return upErr.message;
+        if (updated?.length) {
+          applied++;
+          return "";
+        }
+        const { data: inserted, error: insErr } = await userClient
+          .from("watch_progress")
+          .upsert(r, { onConflict: "user_id,profile_id,video_id", ignoreDuplicates: true })
+          .select("video_id");
+        if (insErr) return insErr.message;
+        if (inserted?.length) applied++;
+        return "";
+      })
+    );
+    const progressError = results.find((e) => e);
+    if (progressError) return json({ ok: false, error: progressError }, 500);
+
+    let sessionUpdated = false;
+    if (session && dev?.id) {
+      const at = toIso(session?.at);
+      await userClient.from("user_devices").update({ last_seen_at: at }).eq("id", dev.id);
+
+      const patch: Record<string, unknown> = {
+        last_seen_at: at,
+        status: "active",
+        profile_id: String(session?.profileId || "").trim() || null,
+        current_title_id: String(session?.videoId || "").trim() || null,
+        is_playing: !!session?.isPlaying,
+        playback_updated_at: at,
+      };
+      const publicId = String(session?.titlePublicId || "").trim();
+      if (publicId) patch.current_title_public_id = publicId;
+
+      const { error: sessErr } = await userClient.from("device_sessions").update(patch).eq("device_id", dev.id);
+      if (sessErr) return json({ ok: false, error: sessErr.message }, 500);
+      sessionUpdated = true;
+    }
+
+    return json({ ok: true, progress: rows.length, applied, session: sessionUpdated });
+  } catch (e) {
+    return json({ ok: false, error: e?.message || "Unknown error" }, 500);
+  }
+});